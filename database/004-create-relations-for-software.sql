@@ -38,6 +38,63 @@ CREATE TABLE repository_url (
 	scraping_disabled_reason VARCHAR(200)
 );
 
+-- Used by the scrapers to save the results of a run in one request.
+-- Every element of the array contains the software id and the columns to update, other columns keep their value.
+-- The rows are updated independently, the ones that could not be updated are returned with their error message.
+CREATE FUNCTION update_repository_url_scraped_data(data JSONB) RETURNS TABLE (
+	software_id UUID,
+	error_message VARCHAR
+) LANGUAGE plpgsql VOLATILE AS
+$$
+DECLARE row_data JSONB;
+BEGIN
+	FOR row_data IN SELECT * FROM JSONB_ARRAY_ELEMENTS(data) LOOP
+		BEGIN
+			UPDATE repository_url SET (
+				license,
+				star_count,
+				fork_count,
+				open_issue_count,
+				basic_data_last_error,
+				basic_data_scraped_at,
+				languages,
+				languages_last_error,
+				languages_scraped_at,
+				commit_history,
+				commit_history_last_error,
+				commit_history_scraped_at,
+				contributor_count,
+				contributor_count_last_error,
+				contributor_count_scraped_at
+			) = (
+				SELECT
+					new_data.license,
+					new_data.star_count,
+					new_data.fork_count,
+					new_data.open_issue_count,
+					new_data.basic_data_last_error,
+					new_data.basic_data_scraped_at,
+					new_data.languages,
+					new_data.languages_last_error,
+					new_data.languages_scraped_at,
+					new_data.commit_history,
+					new_data.commit_history_last_error,
+					new_data.commit_history_scraped_at,
+					new_data.contributor_count,
+					new_data.contributor_count_last_error,
+					new_data.contributor_count_scraped_at
+				FROM JSONB_POPULATE_RECORD(repository_url, row_data) AS new_data
+			)
+			WHERE repository_url.software = (row_data ->> 'software')::UUID;
+		EXCEPTION WHEN OTHERS THEN
+			software_id = (row_data ->> 'software')::UUID;
+			error_message = SQLERRM;
+			RETURN NEXT;
+		END;
+	END LOOP;
+END
+$$;
+
 
 CREATE TYPE package_manager_type AS ENUM (
 	'anaconda',
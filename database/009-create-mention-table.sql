@@ -46,6 +46,7 @@ CREATE TABLE mention (
 	note VARCHAR(500),
 	scraped_at TIMESTAMPTZ,
 	citations_scraped_at TIMESTAMPTZ,
+	citations_full_scraped_at TIMESTAMPTZ,
 	created_at TIMESTAMPTZ NOT NULL,
 	updated_at TIMESTAMPTZ NOT NULL,
 	UNIQUE(external_id, source)
@@ -77,6 +78,14 @@ $$;
 CREATE TRIGGER sanitise_update_mention BEFORE UPDATE ON mention FOR EACH ROW EXECUTE PROCEDURE sanitise_update_mention();
 
 
+-- the registration agency of a DOI never changes, so it is only looked up once by the mention scraper
+CREATE TABLE doi_registration_agency (
+	doi CITEXT PRIMARY KEY CHECK (doi ~ '^10(\.\w+)+/\S+$' AND LENGTH(doi) <= 255),
+	registration_agency VARCHAR(50) NOT NULL,
+	resolved_at TIMESTAMPTZ NOT NULL
+);
+
+
 CREATE TABLE mention_for_software (
 	mention UUID REFERENCES mention (id),
 	software UUID REFERENCES software (id),
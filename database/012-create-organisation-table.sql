@@ -103,6 +103,34 @@ $$;
 CREATE TRIGGER sanitise_update_organisation BEFORE UPDATE ON organisation FOR EACH ROW EXECUTE PROCEDURE sanitise_update_organisation();
 
 
+-- Used by the ROR scraper to save the locations of many organisations in one request.
+-- Every element of the array contains the organisation id, country, city and ror_scraped_at, other columns keep their value.
+-- The rows are updated independently, the ones that could not be updated are returned with their error message.
+CREATE FUNCTION update_organisation_ror_data(data JSONB) RETURNS TABLE (
+	organisation_id UUID,
+	error_message VARCHAR
+) LANGUAGE plpgsql VOLATILE AS
+$$
+DECLARE row_data JSONB;
+BEGIN
+	FOR row_data IN SELECT * FROM JSONB_ARRAY_ELEMENTS(data) LOOP
+		BEGIN
+			UPDATE organisation SET
+				country = row_data ->> 'country',
+				city = row_data ->> 'city',
+				ror_scraped_at = (row_data ->> 'ror_scraped_at')::TIMESTAMPTZ,
+				ror_last_error = NULL
+			WHERE organisation.id = (row_data ->> 'id')::UUID;
+		EXCEPTION WHEN OTHERS THEN
+			organisation_id = (row_data ->> 'id')::UUID;
+			error_message = SQLERRM;
+			RETURN NEXT;
+		END;
+	END LOOP;
+END
+$$;
+
+
 -- including the parent itself
 CREATE FUNCTION list_child_organisations(parent_id UUID) RETURNS TABLE (organisation_id UUID, organisation_name VARCHAR) STABLE LANGUAGE sql AS
 $$
@@ -500,6 +500,13 @@ CREATE POLICY admin_all_rights ON citation_for_mention TO rsd_admin
 	WITH CHECK (TRUE);
 
 
+ALTER TABLE doi_registration_agency ENABLE ROW LEVEL SECURITY;
+
+CREATE POLICY admin_all_rights ON doi_registration_agency TO rsd_admin
+	USING (TRUE)
+	WITH CHECK (TRUE);
+
+
 ALTER TABLE output_for_project ENABLE ROW LEVEL SECURITY;
 
 CREATE POLICY anyone_can_read ON output_for_project FOR SELECT TO rsd_web_anon, rsd_user
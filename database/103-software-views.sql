@@ -11,11 +11,12 @@ RETURNS TABLE (
 	id UUID,
 	doi CITEXT,
 	citations_scraped_at TIMESTAMPTZ,
+	citations_full_scraped_at TIMESTAMPTZ,
 	known_dois CITEXT[]
 )
 LANGUAGE sql STABLE AS
 $$
-	SELECT mention.id, mention.doi, mention.citations_scraped_at, ARRAY_REMOVE(ARRAY_AGG(citation.doi), NULL)
+	SELECT mention.id, mention.doi, mention.citations_scraped_at, mention.citations_full_scraped_at, ARRAY_REMOVE(ARRAY_AGG(citation.doi), NULL)
 	FROM mention
 	LEFT JOIN citation_for_mention ON mention.id = citation_for_mention.mention
 	LEFT JOIN mention AS citation ON citation_for_mention.citation = citation.id
@@ -0,0 +1,108 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Thread-safe holder of the admin token used for PostgREST. A token is signed once and reused until shortly before it
+ * expires. When it gets close to that, a single caller triggers a renewal in the background while all callers keep
+ * using the current token, so signing never happens on the hot path. Only if no usable token is present, a token
+ * is signed by the caller.
+ */
+class AdminJwt {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AdminJwt.class);
+
+	// a token is renewed this long before it expires
+	private static final long RENEWAL_MARGIN_MILLISECONDS = 2L * 60L * 1000L;
+	// a token is not handed out anymore this long before it expires, so requests using it do not time out with an expired token
+	private static final long EXPIRY_MARGIN_MILLISECONDS = 30L * 1000L;
+
+	private record Token(String value, long renewAt, long usableUntil) {
+	}
+
+	private static class Holder {
+		private static final AdminJwt INSTANCE = new AdminJwt(Config.jwtSigningSecret(), Config.jwtExpirationTime(), System::currentTimeMillis, ForkJoinPool.commonPool());
+	}
+
+	private final Algorithm signingAlgorithm;
+	private final long expirationTime;
+	private final LongSupplier clock;
+	private final Executor renewalExecutor;
+	private final AtomicReference<Token> token = new AtomicReference<>();
+	private final AtomicBoolean renewing = new AtomicBoolean(false);
+
+	AdminJwt(String signingSecret, long expirationTime, LongSupplier clock, Executor renewalExecutor) {
+		this.signingAlgorithm = Algorithm.HMAC256(signingSecret);
+		this.expirationTime = expirationTime;
+		this.clock = clock;
+		this.renewalExecutor = renewalExecutor;
+	}
+
+	/**
+	 * The shared admin token holder. It is created on first use, so the signing secret is only read once.
+	 *
+	 * @return the shared instance
+	 */
+	static AdminJwt instance() {
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * Get a valid admin token.
+	 *
+	 * @return the admin token
+	 */
+	String get() {
+		long now = clock.getAsLong();
+		Token current = token.get();
+
+		if (current == null || now >= current.usableUntil()) {
+			Token fresh = sign(now);
+			token.set(fresh);
+			return fresh.value();
+		}
+
+		if (now >= current.renewAt() && renewing.compareAndSet(false, true)) {
+			CompletableFuture.runAsync(this::renew, renewalExecutor);
+		}
+
+		return current.value();
+	}
+
+	private void renew() {
+		try {
+			token.set(sign(clock.getAsLong()));
+		} catch (RuntimeException e) {
+			// the next caller will try again, and signs itself when the current token is no longer usable
+			LOGGER.warn("Failed to renew the admin JWT", e);
+		} finally {
+			renewing.set(false);
+		}
+	}
+
+	private Token sign(long now) {
+		long expiresAt = now + expirationTime;
+		String value = JWT.create()
+				.withClaim("role", "rsd_admin")
+				.withExpiresAt(new Date(expiresAt))
+				.sign(signingAlgorithm);
+		long usableUntil = Math.max(now, expiresAt - EXPIRY_MARGIN_MILLISECONDS);
+		long renewAt = Math.min(usableUntil, Math.max(now, expiresAt - RENEWAL_MARGIN_MILLISECONDS));
+		return new Token(value, renewAt, usableUntil);
+	}
+}
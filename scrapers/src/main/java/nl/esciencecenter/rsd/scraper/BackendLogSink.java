@@ -0,0 +1,218 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Buffers entries for the backend_log table and inserts them in bulk, so that logging an error does not cost a
+ * blocking request to the backend. The buffer is flushed when it holds {@link #FLUSH_SIZE} entries, periodically and
+ * when the JVM shuts down. Entries with the same service, table, message and stack trace in one flush are merged into
+ * one entry, so that e.g. a rate limit that makes all remaining tasks fail results in one row instead of hundreds.
+ * <p>
+ * The buffer is bounded: when it is full, new entries are dropped and only counted in the application log. The entries
+ * of a failed insert are retried once with the next flush, if that fails too, they are written to the application log.
+ */
+class BackendLogSink {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BackendLogSink.class);
+
+	static final int FLUSH_SIZE = 100;
+	// the maximum number of other reference IDs kept in a merged entry
+	static final int MAX_MERGED_REFERENCE_IDS = 100;
+	// PostgREST requires all objects of a bulk insert to have the same keys
+	private static final List<String> KEYS = List.of("service_name", "table_name", "reference_id", "message", "stack_trace", "other_data");
+
+	private static class Holder {
+		private static final BackendLogSink INSTANCE = createInstance();
+
+		private static BackendLogSink createInstance() {
+			String endpoint = Config.backendBaseUrl() + "/backend_log";
+			BackendLogSink sink = new BackendLogSink(Config.backendLogBufferSize(), json -> Utils.postAsAdmin(endpoint, json));
+			sink.start(Config.backendLogFlushInterval());
+			return sink;
+		}
+	}
+
+	private final BlockingQueue<JsonObject> buffer;
+	private final Consumer<String> bulkInsert;
+	private final AtomicLong dropped = new AtomicLong();
+	// the entries of the last failed insert, they are retried once with the next flush
+	private List<JsonObject> failedEntries = new ArrayList<>();
+	private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("backend-log-flusher").daemon().factory());
+
+	/**
+	 * @param capacity   the maximum number of entries in the buffer
+	 * @param bulkInsert inserts a JSON array of entries into the backend_log table
+	 */
+	BackendLogSink(int capacity, Consumer<String> bulkInsert) {
+		this.buffer = new ArrayBlockingQueue<>(Math.max(1, capacity));
+		this.bulkInsert = bulkInsert;
+	}
+
+	/**
+	 * The shared sink. It is created on first use, which starts the periodic flushing and registers the flush on shutdown.
+	 *
+	 * @return the shared instance
+	 */
+	static BackendLogSink instance() {
+		return Holder.INSTANCE;
+	}
+
+	private void start(int flushIntervalSeconds) {
+		flusher.scheduleWithFixedDelay(this::flushSafely, flushIntervalSeconds, flushIntervalSeconds, TimeUnit.SECONDS);
+		Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "backend-log-drain"));
+	}
+
+	/**
+	 * Adds an entry to the buffer without blocking. The entry is dropped if the buffer is full.
+	 *
+	 * @param entry the entry, with the columns of the backend_log table as keys
+	 */
+	void add(JsonObject entry) {
+		if (!buffer.offer(entry)) {
+			dropped.incrementAndGet();
+			return;
+		}
+
+		if (buffer.size() >= FLUSH_SIZE) {
+			flusher.execute(this::flushSafely);
+		}
+	}
+
+	/**
+	 * Inserts all entries in the buffer, together with the entries of the previous flush if that failed. If the insert
+	 * fails, the entries from the buffer are kept for the next flush and the retried ones are written to the
+	 * application log.
+	 */
+	synchronized void flush() {
+		long droppedEntries = dropped.getAndSet(0);
+		if (droppedEntries > 0) {
+			LOGGER.warn("The backend log buffer was full, {} entries were dropped", droppedEntries);
+		}
+
+		List<JsonObject> retriedEntries = failedEntries;
+		failedEntries = new ArrayList<>();
+		List<JsonObject> entries = new ArrayList<>();
+		buffer.drainTo(entries);
+		if (entries.isEmpty() && retriedEntries.isEmpty()) {
+			return;
+		}
+
+		List<JsonObject> allEntries = new ArrayList<>(retriedEntries);
+		allEntries.addAll(entries);
+		try {
+			bulkInsert.accept(toJsonArray(mergeDuplicates(allEntries)).toString());
+		} catch (RuntimeException e) {
+			failedEntries = entries;
+			logLostEntries(retriedEntries);
+			throw e;
+		}
+	}
+
+	private void flushSafely() {
+		try {
+			flush();
+		} catch (RuntimeException e) {
+			LOGGER.error("Failed to save entries in the backend log", e);
+		}
+	}
+
+	// there is no next flush when the JVM shuts down, so the entries of a failed insert end up in the application log
+	private synchronized void drain() {
+		flushSafely();
+		logLostEntries(failedEntries);
+		failedEntries = new ArrayList<>();
+	}
+
+	private static void logLostEntries(List<JsonObject> entries) {
+		if (!entries.isEmpty()) {
+			LOGGER.error("Could not save {} entries in the backend log: {}", entries.size(), toJsonArray(mergeDuplicates(entries)));
+		}
+	}
+
+	private static JsonArray toJsonArray(Collection<JsonObject> entries) {
+		JsonArray array = new JsonArray(entries.size());
+		entries.forEach(array::add);
+		return array;
+	}
+
+	/**
+	 * Merges entries with the same service name, table name, message and stack trace. The merged entry keeps the
+	 * reference ID and other data of the first one, with the number of occurrences and the other reference IDs added
+	 * to the other data. All returned entries have the same keys.
+	 *
+	 * @param entries the entries to merge
+	 * @return the merged entries, in order of first occurrence
+	 */
+	static Collection<JsonObject> mergeDuplicates(Collection<JsonObject> entries) {
+		Map<List<JsonElement>, List<JsonObject>> groups = new LinkedHashMap<>();
+		for (JsonObject entry : entries) {
+			List<JsonElement> key = List.of(value(entry, "service_name"), value(entry, "table_name"), value(entry, "message"), value(entry, "stack_trace"));
+			groups.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+		}
+
+		Collection<JsonObject> result = new ArrayList<>(groups.size());
+		for (List<JsonObject> group : groups.values()) {
+			JsonObject merged = withAllKeys(group.getFirst());
+			if (group.size() > 1) {
+				merged.add("other_data", mergedOtherData(merged, group));
+			}
+			result.add(merged);
+		}
+		return result;
+	}
+
+	private static JsonObject mergedOtherData(JsonObject first, List<JsonObject> group) {
+		JsonElement firstOtherData = first.get("other_data");
+		JsonObject otherData = firstOtherData.isJsonObject() ? firstOtherData.getAsJsonObject().deepCopy() : new JsonObject();
+		otherData.addProperty("occurrences", group.size());
+
+		JsonElement firstReferenceId = first.get("reference_id");
+		JsonArray otherReferenceIds = new JsonArray();
+		group.stream()
+				.map(entry -> value(entry, "reference_id"))
+				.filter(referenceId -> !referenceId.isJsonNull() && !Objects.equals(referenceId, firstReferenceId))
+				.distinct()
+				.limit(MAX_MERGED_REFERENCE_IDS)
+				.forEach(otherReferenceIds::add);
+		if (!otherReferenceIds.isEmpty()) {
+			otherData.add("other_reference_ids", otherReferenceIds);
+		}
+		return otherData;
+	}
+
+	private static JsonObject withAllKeys(JsonObject entry) {
+		JsonObject result = new JsonObject();
+		for (String key : KEYS) {
+			result.add(key, value(entry, key));
+		}
+		return result;
+	}
+
+	private static JsonElement value(JsonObject entry, String key) {
+		JsonElement value = entry.get(key);
+		return value == null ? JsonNull.INSTANCE : value;
+	}
+}
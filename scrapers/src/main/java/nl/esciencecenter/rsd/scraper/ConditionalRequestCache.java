@@ -0,0 +1,240 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Persistent cache for conditional GET requests. The ETag and Last-Modified validators of successful responses are
+ * stored on disk, together with the body and headers of the response. The next request to the same URL is sent with
+ * If-None-Match and If-Modified-Since. When the server answers with 304 Not Modified, the stored response is returned
+ * instead, so callers do not have to handle 304 themselves. GitHub does not count 304 responses against the rate limit.
+ * <p>
+ * Responses are stored per URL and per credentials, as responses can differ per credentials, e.g. for private
+ * repositories. The credentials themselves are not stored, only a hash of them is part of the name of the file.
+ */
+public class ConditionalRequestCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ConditionalRequestCache.class);
+
+	private static class Holder {
+		private static final ConditionalRequestCache INSTANCE = new ConditionalRequestCache(Path.of(Config.httpCacheDirectory()));
+	}
+
+	private final Path directory;
+
+	ConditionalRequestCache(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * The shared cache, stored in the directory given by {@link Config#httpCacheDirectory()}.
+	 *
+	 * @return the shared instance
+	 */
+	public static ConditionalRequestCache instance() {
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * Sends a GET request, conditionally if a response for the same URL and credentials is stored.
+	 *
+	 * @param request the GET request to send
+	 * @return the response, or the stored response if the server answered with 304 Not Modified
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+		return send(request, HttpTransport.RetryAuthorization.SAME_CREDENTIALS);
+	}
+
+	/**
+	 * Sends a GET request, like {@link #send(HttpRequest)}. A response to a retry with other credentials is not
+	 * stored, as it would be stored under the credentials of the original request. A stored response that is returned
+	 * because of a 304 Not Modified has the rate limit headers of the 304 response.
+	 *
+	 * @param request            the GET request to send
+	 * @param retryAuthorization gives other credentials if the request is rejected because of the rate limit
+	 * @return the response, or the stored response if the server answered with 304 Not Modified
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public HttpResponse<String> send(HttpRequest request, HttpTransport.RetryAuthorization retryAuthorization) throws IOException, InterruptedException {
+		Path file = fileFor(request);
+		Optional<CachedResponse> cached = load(file, request);
+
+		HttpRequest requestToSend = request;
+		if (cached.isPresent()) {
+			HttpRequest.Builder builder = HttpRequest.newBuilder(request, (name, value) -> true);
+			cached.get().headers().firstValue("etag").ifPresent(etag -> builder.header("If-None-Match", etag));
+			cached.get().headers().firstValue("last-modified").ifPresent(lastModified -> builder.header("If-Modified-Since", lastModified));
+			requestToSend = builder.build();
+		}
+
+		AtomicBoolean otherCredentials = new AtomicBoolean(false);
+		HttpTransport.RetryAuthorization trackedRetryAuthorization = rejected -> {
+			Optional<String> otherAuthorization = retryAuthorization.forRetry(rejected);
+			otherCredentials.set(otherAuthorization.isPresent());
+			return otherAuthorization;
+		};
+		HttpResponse<String> response = HttpTransport.send(requestToSend, trackedRetryAuthorization);
+		if (response.statusCode() == 304 && cached.isPresent()) {
+			return withRateLimitHeadersOf(cached.get(), response.headers());
+		}
+
+		boolean hasValidator = response.headers().firstValue("etag").isPresent() || response.headers().firstValue("last-modified").isPresent();
+		if (response.statusCode() == 200 && hasValidator && !otherCredentials.get()) {
+			store(file, response);
+		}
+
+		return response;
+	}
+
+	// The rate limit headers of the stored response are from when it was stored, callers that track the budget of
+	// their credentials need the ones of the 304 response instead.
+	static CachedResponse withRateLimitHeadersOf(CachedResponse cached, HttpHeaders notModifiedHeaders) {
+		Map<String, List<String>> headerMap = new LinkedHashMap<>();
+		cached.headers().map().forEach((name, values) -> {
+			if (!isRateLimitHeader(name)) {
+				headerMap.put(name, values);
+			}
+		});
+		notModifiedHeaders.map().forEach((name, values) -> {
+			if (isRateLimitHeader(name)) {
+				headerMap.put(name, values);
+			}
+		});
+		return new CachedResponse(cached.request(), cached.uri(), HttpHeaders.of(headerMap, (name, value) -> true), cached.body());
+	}
+
+	private static boolean isRateLimitHeader(String name) {
+		String lowerCaseName = name.toLowerCase(Locale.ROOT);
+		return lowerCaseName.startsWith("x-ratelimit-") || lowerCaseName.startsWith("ratelimit-") || lowerCaseName.equals("retry-after");
+	}
+
+	private Path fileFor(HttpRequest request) {
+		return directory.resolve(key(request) + ".json");
+	}
+
+	static String key(HttpRequest request) {
+		String authorization = request.headers().firstValue("Authorization").orElse("");
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(request.uri().toString().getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) '\n');
+			digest.update(authorization.getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private Optional<CachedResponse> load(Path file, HttpRequest request) {
+		if (!Files.isRegularFile(file)) {
+			return Optional.empty();
+		}
+
+		try {
+			String json = Files.readString(file);
+			return Optional.of(parseCachedResponse(json, request));
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Ignoring unreadable cache entry {} for {}", file, request.uri(), e);
+			return Optional.empty();
+		}
+	}
+
+	private void store(Path file, HttpResponse<String> response) {
+		try {
+			Files.createDirectories(directory);
+			// write to a temporary file first, so concurrent readers never see a partially written entry
+			Path temporaryFile = Files.createTempFile(directory, "entry", ".tmp");
+			Files.writeString(temporaryFile, toJson(response));
+			Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to store cache entry for {}", response.uri(), e);
+		}
+	}
+
+	static String toJson(HttpResponse<String> response) {
+		JsonObject headers = new JsonObject();
+		for (Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+			JsonArray values = new JsonArray();
+			header.getValue().forEach(values::add);
+			headers.add(header.getKey(), values);
+		}
+
+		JsonObject entry = new JsonObject();
+		entry.addProperty("uri", response.uri().toString());
+		entry.add("headers", headers);
+		entry.addProperty("body", response.body());
+		return entry.toString();
+	}
+
+	static CachedResponse parseCachedResponse(String json, HttpRequest request) {
+		JsonObject entry = JsonParser.parseString(json).getAsJsonObject();
+
+		Map<String, List<String>> headerMap = new LinkedHashMap<>();
+		for (Map.Entry<String, JsonElement> header : entry.getAsJsonObject("headers").entrySet()) {
+			List<String> values = new ArrayList<>();
+			header.getValue().getAsJsonArray().forEach(value -> values.add(value.getAsString()));
+			headerMap.put(header.getKey(), values);
+		}
+
+		URI uri = URI.create(entry.getAsJsonPrimitive("uri").getAsString());
+		HttpHeaders headers = HttpHeaders.of(headerMap, (name, value) -> true);
+		String body = entry.getAsJsonPrimitive("body").getAsString();
+		return new CachedResponse(request, uri, headers, body);
+	}
+
+	record CachedResponse(HttpRequest request, URI uri, HttpHeaders headers, String body) implements HttpResponse<String> {
+
+		@Override
+		public int statusCode() {
+			return 200;
+		}
+
+		@Override
+		public Optional<HttpResponse<String>> previousResponse() {
+			return Optional.empty();
+		}
+
+		@Override
+		public Optional<SSLSession> sslSession() {
+			return Optional.empty();
+		}
+
+		@Override
+		public HttpClient.Version version() {
+			return HttpClient.Version.HTTP_1_1;
+		}
+	}
+}
@@ -92,7 +92,11 @@ public class Config {
 		}
 
 		try {
-			return Integer.parseInt(System.getenv(name));
+			String value = System.getenv(name);
+			if (value == null || value.isBlank()) {
+				return defaultValue;
+			}
+			return Integer.parseInt(value.strip());
 		} catch (Exception e) {
 			LOGGER.warn("Failed to retrieve environment variable: {}", name, e);
 		}
@@ -100,6 +104,24 @@ public class Config {
 		return defaultValue;
 	}
 
+	/**
+	 * Retrieves the integer value of the environment variable with the given name, like
+	 * {@link #getIntEnv(String, int)}, but also returns the default value if the value is zero or negative.
+	 *
+	 * @param name         the name of the variable.
+	 * @param defaultValue the default value, it should be positive.
+	 * @return the value from the environment of the default value if no positive value could be obtained
+	 */
+	private static int getPositiveIntEnv(String name, int defaultValue) {
+		int value = getIntEnv(name, defaultValue);
+		if (value <= 0) {
+			LOGGER.warn("Environment variable {} should be positive, but is {}, using {} instead", name, value, defaultValue);
+			return defaultValue;
+		}
+
+		return value;
+	}
+
 	/**
 	 * Get the JWT expiration time (in milliseconds).
 	 *
@@ -159,6 +181,16 @@ public class Config {
 		return getIntEnv("MAX_REQUESTS_ROR", 6);
 	}
 
+	/**
+	 * The path of a data dump of ROR, see {@link nl.esciencecenter.rsd.scraper.ror.RorDumpIndex}. When set, the ROR
+	 * scraper only uses the API for organisations that are not in the dump.
+	 *
+	 * @return the path of the dump, a zip or a JSON file (default unset).
+	 */
+	public static Optional<String> rorDumpFile() {
+		return getOptionalEnv("ROR_DUMP_FILE");
+	}
+
 	/**
 	 * Get the maximum number of citation sources to scrape in one run of the CitationScraper.
 	 *
@@ -168,6 +200,44 @@ public class Config {
 		return getIntEnv("MAX_REQUESTS_OPENALEX", 5);
 	}
 
+	/**
+	 * Get the maximum number of citation sources to scrape at the same time. Values that are not positive are ignored.
+	 *
+	 * @return the maximum number of citation sources to scrape concurrently (default 3).
+	 */
+	public static int citationSourcesConcurrency() {
+		return getPositiveIntEnv("CITATION_SOURCES_CONCURRENCY", 3);
+	}
+
+	/**
+	 * Get the API key for the premium tier of OpenAlex.
+	 *
+	 * @return the API key for OpenAlex (default unset).
+	 */
+	public static Optional<String> openalexApiKey() {
+		return getOptionalEnv("OPENALEX_API_KEY");
+	}
+
+	/**
+	 * Get the number of days before the last scrape from which citing works are requested by an incremental citation
+	 * scrape without an OpenAlex API key, based on their publication date.
+	 *
+	 * @return the number of days to look back (default 30).
+	 */
+	public static int citationLookbackDays() {
+		return getIntEnv("CITATION_LOOKBACK_DAYS", 30);
+	}
+
+	/**
+	 * Get the number of days after which all citations of a reference paper are scraped again, instead of only the new
+	 * ones.
+	 *
+	 * @return the number of days between full citation scrapes (default 14).
+	 */
+	public static int citationFullRefreshDays() {
+		return getIntEnv("CITATION_FULL_REFRESH_DAYS", 14);
+	}
+
 	/**
 	 * Get the email contact address for crossref.
 	 *
@@ -177,15 +247,80 @@ public class Config {
 		return getOptionalEnv("CROSSREF_CONTACT_EMAIL");
 	}
 
+	/**
+	 * The maximum number of DOIs in one request to the works API of Crossref.
+	 *
+	 * @return the maximum number of DOIs per request (default 50).
+	 */
+	public static int crossrefChunkSize() {
+		return getIntEnv("CROSSREF_CHUNK_SIZE", 50);
+	}
+
+	/**
+	 * The maximum number of concurrent requests to the works API of Crossref for one list of DOIs.
+	 *
+	 * @return the maximum number of concurrent requests (default 3).
+	 */
+	public static int crossrefConcurrency() {
+		return getIntEnv("CROSSREF_CONCURRENCY", 3);
+	}
+
 	/**
 	 * Get the API credentials for GitHub.
 	 *
-	 * @return the API credentials for GitHub (default unset).
+	 * @return the API credentials for GitHub, several credentials are separated by commas (default unset).
 	 */
 	public static Optional<String> apiCredentialsGithub() {
 		return getOptionalEnv("API_CREDENTIALS_GITHUB");
 	}
 
+	/**
+	 * The number of repositories requested at once from the GitHub GraphQL API.
+	 *
+	 * @return the batch size (default 50).
+	 */
+	public static int githubGraphqlBatchSize() {
+		return getIntEnv("GITHUB_GRAPHQL_BATCH_SIZE", 50);
+	}
+
+	/**
+	 * Whether the GitLab commit scraper retrieves all commits of a repository, instead of only the commits since the
+	 * last week of the stored commit history.
+	 *
+	 * @return true if a full rescan is requested (default false).
+	 */
+	public static boolean gitlabCommitsFullRescan() {
+		return getOptionalEnv("GITLAB_COMMITS_FULL_RESCAN").map(Boolean::parseBoolean).orElse(false);
+	}
+
+	/**
+	 * The maximum number of pages of commits of one GitLab repository that are requested concurrently. Values that are
+	 * not positive are ignored.
+	 *
+	 * @return the maximum number of concurrent page requests (default 4).
+	 */
+	public static int gitlabCommitPageConcurrency() {
+		return getPositiveIntEnv("GITLAB_COMMIT_PAGE_CONCURRENCY", 4);
+	}
+
+	/**
+	 * The maximum number of DOIs in one request to the GraphQL API of DataCite.
+	 *
+	 * @return the maximum number of DOIs per request (default 50).
+	 */
+	public static int dataciteChunkSize() {
+		return getIntEnv("DATACITE_CHUNK_SIZE", 50);
+	}
+
+	/**
+	 * The maximum number of concurrent requests to the GraphQL API of DataCite for one list of DOIs.
+	 *
+	 * @return the maximum number of concurrent requests (default 4).
+	 */
+	public static int dataciteConcurrency() {
+		return getIntEnv("DATACITE_CONCURRENCY", 4);
+	}
+
 	/**
 	 * Get the IO key for libraries.io.
 	 *
@@ -194,4 +329,158 @@ public class Config {
 	public static Optional<String> librariesIoKey() {
 		return getOptionalEnv("LIBRARIES_IO_ACCESS_TOKEN");
 	}
+
+	/**
+	 * The time between two runs of a scraper job in the daemon (in seconds). It can be set for all jobs at once, or
+	 * per job, e.g. SCRAPER_JOB_INTERVAL_COMMITS for the job named "commits". Values that are not positive are ignored.
+	 *
+	 * @param jobName the name of the job.
+	 * @return the interval of the job (default 360).
+	 */
+	public static int jobInterval(String jobName) {
+		int defaultInterval = getPositiveIntEnv("SCRAPER_JOB_INTERVAL", 360);
+		return getPositiveIntEnv("SCRAPER_JOB_INTERVAL_" + jobName.toUpperCase(), defaultInterval);
+	}
+
+	/**
+	 * The maximum number of idle connections kept open per host by the shared HTTP client.
+	 *
+	 * @return the maximum number of idle connections (default 0, which means unlimited).
+	 */
+	public static int httpConnectionPoolSize() {
+		return getIntEnv("HTTP_CONNECTION_POOL_SIZE", 0);
+	}
+
+	/**
+	 * The time after which idle connections of the shared HTTP client are closed (in seconds).
+	 *
+	 * @return the keep-alive timeout (default 60).
+	 */
+	public static int httpKeepAliveTimeout() {
+		return getIntEnv("HTTP_KEEP_ALIVE_TIMEOUT", 60);
+	}
+
+	/**
+	 * The maximum number of concurrent HTTP/2 streams per connection of the shared HTTP client.
+	 *
+	 * @return the maximum number of concurrent streams (default 100).
+	 */
+	public static int httpMaxStreams() {
+		return getIntEnv("HTTP_MAX_STREAMS", 100);
+	}
+
+	/**
+	 * The timeout for setting up a connection of the shared HTTP client (in seconds).
+	 *
+	 * @return the connect timeout (default 10).
+	 */
+	public static int httpConnectTimeout() {
+		return getIntEnv("HTTP_CONNECT_TIMEOUT", 10);
+	}
+
+	/**
+	 * The maximum number of concurrent requests to one host, for hosts without their own limit in
+	 * {@link #httpHostConcurrency()}. Values that are not positive are ignored.
+	 *
+	 * @return the maximum number of concurrent requests per host (default 16).
+	 */
+	public static int httpMaxConcurrentRequestsPerHost() {
+		return getPositiveIntEnv("HTTP_MAX_CONCURRENT_REQUESTS_PER_HOST", 16);
+	}
+
+	/**
+	 * The maximum number of concurrent requests to specific hosts, e.g. api.github.com=8,gitlab.com=4.
+	 *
+	 * @return the limits per host (default unset).
+	 */
+	public static Optional<String> httpHostConcurrency() {
+		return getOptionalEnv("HTTP_HOST_CONCURRENCY");
+	}
+
+	/**
+	 * The maximum time a request waits when the rate limit of a host is reached (in seconds). When the budget of the
+	 * host is not available again within this time, the request fails with an {@link RsdRateLimitException}.
+	 *
+	 * @return the maximum pause (default 900).
+	 */
+	public static int rateLimitMaxPause() {
+		return getIntEnv("RATE_LIMIT_MAX_PAUSE", 900);
+	}
+
+	/**
+	 * The maximum number of entries for the backend log that are buffered before they are saved, see
+	 * {@link BackendLogSink}. When the buffer is full, new entries are dropped.
+	 *
+	 * @return the size of the buffer (default 1000).
+	 */
+	public static int backendLogBufferSize() {
+		return getIntEnv("BACKEND_LOG_BUFFER_SIZE", 1000);
+	}
+
+	/**
+	 * The time between two saves of the buffered entries for the backend log (in seconds). Values that are not positive
+	 * are ignored.
+	 *
+	 * @return the flush interval (default 5).
+	 */
+	public static int backendLogFlushInterval() {
+		return getPositiveIntEnv("BACKEND_LOG_FLUSH_INTERVAL", 5);
+	}
+
+	/**
+	 * The directory in which the responses of conditional requests are stored, see {@link ConditionalRequestCache}.
+	 * The cache is only useful if the directory outlives the scraper container, so a volume should be mounted on it.
+	 *
+	 * @return the cache directory (default /var/cache/rsd-http-cache).
+	 */
+	public static String httpCacheDirectory() {
+		return getOptionalEnv("HTTP_CACHE_DIR").orElse("/var/cache/rsd-http-cache");
+	}
+
+	/**
+	 * The hosts whose GET responses are cached, with the time to live of their responses in hours, see
+	 * {@link ResponseCache}.
+	 *
+	 * @return the comma separated hosts with their time to live (default api.ror.org=168,api.crossref.org=24,libraries.io=24).
+	 */
+	public static String httpResponseCacheTtl() {
+		return getOptionalEnv("HTTP_RESPONSE_CACHE_TTL").orElse("api.ror.org=168,api.crossref.org=24,libraries.io=24");
+	}
+
+	/**
+	 * The maximum size of the responses that {@link ResponseCache} keeps in memory, in megabytes.
+	 *
+	 * @return the maximum size in memory (default 64).
+	 */
+	public static int httpResponseCacheMemoryMegabytes() {
+		return getIntEnv("HTTP_RESPONSE_CACHE_MEMORY_MB", 64);
+	}
+
+	/**
+	 * The maximum size of the responses that {@link ResponseCache} keeps on disk, in megabytes.
+	 *
+	 * @return the maximum size on disk (default 1024).
+	 */
+	public static int httpResponseCacheDiskMegabytes() {
+		return getIntEnv("HTTP_RESPONSE_CACHE_DISK_MB", 1024);
+	}
+
+	/**
+	 * The port on which the daemon serves its metrics, see {@link ScraperMetrics}. 0 disables the endpoint.
+	 *
+	 * @return the port of the metrics endpoint (default 9400).
+	 */
+	public static int metricsPort() {
+		return getIntEnv("METRICS_PORT", 9400);
+	}
+
+	/**
+	 * The file to which the metrics are written when the scraper stops, see {@link ScraperMetrics}. Meant for the
+	 * one-shot runs of single scrapers, which have no metrics endpoint.
+	 *
+	 * @return the path of the metrics file (default unset).
+	 */
+	public static Optional<String> metricsFile() {
+		return getOptionalEnv("METRICS_FILE");
+	}
 }
@@ -0,0 +1,68 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the number of concurrent requests per host. Since the scrapers run every task on a virtual thread, thousands
+ * of requests could otherwise be sent to the same API at once. Host names are compared case-insensitively.
+ */
+class HostPermits {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(HostPermits.class);
+
+	private final int defaultPermits;
+	private final Map<String, Integer> permitsPerHost;
+	private final Map<String, Semaphore> semaphores = new ConcurrentHashMap<>();
+
+	/**
+	 * @param defaultPermits the maximum number of concurrent requests to a host without its own limit
+	 * @param permitsPerHost the maximum number of concurrent requests to specific hosts
+	 */
+	HostPermits(int defaultPermits, Map<String, Integer> permitsPerHost) {
+		this.defaultPermits = Math.max(1, defaultPermits);
+		Map<String, Integer> lowerCasePermitsPerHost = new HashMap<>();
+		permitsPerHost.forEach((host, permits) -> lowerCasePermitsPerHost.put(host.toLowerCase(Locale.ROOT), permits));
+		this.permitsPerHost = Map.copyOf(lowerCasePermitsPerHost);
+	}
+
+	Semaphore forHost(String host) {
+		return semaphores.computeIfAbsent(host.toLowerCase(Locale.ROOT), h -> new Semaphore(permitsPerHost.getOrDefault(h, defaultPermits)));
+	}
+
+	/**
+	 * Parses limits per host of the form {@code api.github.com=8,gitlab.com=4}. Invalid entries are skipped.
+	 *
+	 * @param value the limits per host
+	 * @return the limit per host
+	 */
+	static Map<String, Integer> parsePermitsPerHost(String value) {
+		Map<String, Integer> result = new HashMap<>();
+		for (String entry : value.split(",")) {
+			String[] hostAndPermits = entry.split("=");
+			try {
+				if (hostAndPermits.length != 2) {
+					throw new IllegalArgumentException("Expected host=permits");
+				}
+				int permits = Integer.parseInt(hostAndPermits[1].strip());
+				if (permits < 1) {
+					throw new IllegalArgumentException("The number of permits must be positive");
+				}
+				result.put(hostAndPermits[0].strip().toLowerCase(Locale.ROOT), permits);
+			} catch (IllegalArgumentException e) {
+				LOGGER.warn("Skipping invalid concurrency limit {}: {}", entry, e.getMessage());
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,267 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.function.LongConsumer;
+
+/**
+ * Shared HTTP transport for all scraper traffic. A single long-lived {@link HttpClient} is used, so connections
+ * (and their TCP and TLS handshakes) are pooled per host and reused between requests. HTTP/2 is negotiated with
+ * remotes that support it, in which case concurrent requests to the same host are multiplexed over one connection.
+ * The number of concurrent requests per host is capped, see {@link Config#httpMaxConcurrentRequestsPerHost()}.
+ */
+public class HttpTransport {
+
+	private static final HttpClient CLIENT = createClient();
+	private static final RateLimiter RATE_LIMITER = new RateLimiter(Config.rateLimitMaxPause() * 1000L);
+	private static final HostPermits HOST_PERMITS = new HostPermits(Config.httpMaxConcurrentRequestsPerHost(),
+			Config.httpHostConcurrency().map(HostPermits::parsePermitsPerHost).orElse(Map.of()));
+
+	/**
+	 * Gives the credentials for the retry of a request that was rejected because the budget of its credentials is used
+	 * up, for APIs where several credentials can be used.
+	 *
+	 * @see #send(HttpRequest, HttpResponse.BodyHandler, RetryAuthorization)
+	 */
+	@FunctionalInterface
+	public interface RetryAuthorization {
+
+		RetryAuthorization SAME_CREDENTIALS = rejected -> Optional.empty();
+
+		/**
+		 * @param rejected the response that rejected the request, its body is already discarded
+		 * @return the value of the Authorization header to retry with, or empty to retry with the same credentials
+		 */
+		Optional<String> forRetry(HttpResponse<?> rejected);
+	}
+
+	private HttpTransport() {
+	}
+
+	private static HttpClient createClient() {
+		// These properties are read once, when the first HttpClient is created, so they have to be set before that.
+		// Values given on the command line (-D...) take precedence.
+		setPropertyIfAbsent("jdk.httpclient.connectionPoolSize", Config.httpConnectionPoolSize());
+		setPropertyIfAbsent("jdk.httpclient.keepalive.timeout", Config.httpKeepAliveTimeout());
+		setPropertyIfAbsent("jdk.httpclient.maxstreams", Config.httpMaxStreams());
+
+		return HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.followRedirects(HttpClient.Redirect.NORMAL)
+				.connectTimeout(Duration.ofSeconds(Config.httpConnectTimeout()))
+				.build();
+	}
+
+	private static void setPropertyIfAbsent(String name, int value) {
+		if (System.getProperty(name) == null) {
+			System.setProperty(name, String.valueOf(value));
+		}
+	}
+
+	/**
+	 * Sends a request and returns the response body as a String. The request waits if the rate limit of the host
+	 * requires so, see {@link RateLimiter}.
+	 *
+	 * @param request the request to send
+	 * @return the response
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+		return send(request, RetryAuthorization.SAME_CREDENTIALS);
+	}
+
+	/**
+	 * Sends a request and returns the response body as a String, like {@link #send(HttpRequest)}.
+	 *
+	 * @param request            the request to send
+	 * @param retryAuthorization gives other credentials if the request is rejected because of the rate limit
+	 * @return the response
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static HttpResponse<String> send(HttpRequest request, RetryAuthorization retryAuthorization) throws IOException, InterruptedException {
+		ResponseCache responseCache = ResponseCache.instance();
+		if (!responseCache.isCacheable(request)) {
+			return send(request, HttpResponse.BodyHandlers.ofString(), retryAuthorization);
+		}
+
+		Optional<HttpResponse<String>> cached = responseCache.get(request);
+		if (cached.isPresent()) {
+			return cached.get();
+		}
+		HttpResponse<String> response = send(request, HttpResponse.BodyHandlers.ofString(), retryAuthorization);
+		responseCache.put(request, response);
+		return response;
+	}
+
+	/**
+	 * Sends a request and returns the response body as given by the body handler.
+	 *
+	 * @param request     the request to send
+	 * @param bodyHandler the handler for the response body
+	 * @return the response
+	 * @throws RsdRateLimitException if the rate limit of the host requires waiting longer than the configured maximum pause
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+		return send(request, bodyHandler, RetryAuthorization.SAME_CREDENTIALS);
+	}
+
+	/**
+	 * Sends a request and returns the response body as given by the body handler. If the request is rejected because
+	 * the budget of its credentials is used up, it is retried once, with the credentials given by retryAuthorization.
+	 *
+	 * @param request            the request to send
+	 * @param bodyHandler        the handler for the response body
+	 * @param retryAuthorization gives other credentials if the request is rejected because of the rate limit
+	 * @return the response
+	 * @throws RsdRateLimitException if the rate limit of the host requires waiting longer than the configured maximum pause
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler, RetryAuthorization retryAuthorization) throws IOException, InterruptedException {
+		HttpRequest requestToSend = withSupportedVersion(request);
+		URI uri = requestToSend.uri();
+		String budgetKey = budgetKey(requestToSend);
+
+		RATE_LIMITER.acquire(budgetKey, uri);
+		HttpResponse<T> response = sendWithPermit(requestToSend, bodyHandler);
+		boolean rateLimited = RATE_LIMITER.update(budgetKey, response.headers());
+		if (rateLimited && isRejected(response.statusCode())) {
+			// with other credentials the request can be retried right away, otherwise the limiter now knows when the
+			// budget is available again, so we wait for that and try once more
+			discardBody(response);
+			Optional<String> otherAuthorization = retryAuthorization.forRetry(response);
+			if (otherAuthorization.isPresent()) {
+				requestToSend = withAuthorization(requestToSend, otherAuthorization.get());
+				budgetKey = budgetKey(requestToSend);
+			}
+			RATE_LIMITER.acquire(budgetKey, uri);
+			response = sendWithPermit(requestToSend, bodyHandler);
+			RATE_LIMITER.update(budgetKey, response.headers());
+		}
+
+		return response;
+	}
+
+	// APIs like GitHub give every credential its own budget, so requests with different credentials are limited
+	// separately. Only a hash of the credentials is kept in the key.
+	static String budgetKey(HttpRequest request) {
+		String host = request.uri().getHost();
+		return request.headers()
+				.firstValue("Authorization")
+				.map(authorization -> host + '#' + Integer.toHexString(authorization.hashCode()))
+				.orElse(host);
+	}
+
+	static HttpRequest withAuthorization(HttpRequest request, String authorization) {
+		return HttpRequest.newBuilder(request, (name, value) -> !"Authorization".equalsIgnoreCase(name))
+				.header("Authorization", authorization)
+				.build();
+	}
+
+	// The permit is taken after waiting for the rate limit, so that a request paused by the rate limiter does not keep
+	// other requests to the host waiting. A streamed body may still be received after the permit is released.
+	private static <T> HttpResponse<T> sendWithPermit(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+		Semaphore permits = HOST_PERMITS.forHost(request.uri().getHost());
+		permits.acquire();
+		try {
+			String host = request.uri().getHost();
+			long start = System.nanoTime();
+			HttpResponse<T> response = CLIENT.send(request, countingBytes(bodyHandler, bytes -> ScraperMetrics.instance().countHttpResponseBytes(host, bytes)));
+			ScraperMetrics.instance().recordHttpResponse(host, response.statusCode(), System.nanoTime() - start, response.headers());
+			return response;
+		} finally {
+			permits.release();
+		}
+	}
+
+	// The body is counted as it is received, instead of taking Content-Length, which is often missing with HTTP/2 and
+	// compressed responses. A streamed body is counted while it is read.
+	static <T> HttpResponse.BodyHandler<T> countingBytes(HttpResponse.BodyHandler<T> bodyHandler, LongConsumer byteCounter) {
+		return responseInfo -> new CountingBodySubscriber<>(bodyHandler.apply(responseInfo), byteCounter);
+	}
+
+	private static class CountingBodySubscriber<T> implements HttpResponse.BodySubscriber<T> {
+
+		private final HttpResponse.BodySubscriber<T> subscriber;
+		private final LongConsumer byteCounter;
+
+		private CountingBodySubscriber(HttpResponse.BodySubscriber<T> subscriber, LongConsumer byteCounter) {
+			this.subscriber = subscriber;
+			this.byteCounter = byteCounter;
+		}
+
+		@Override
+		public CompletionStage<T> getBody() {
+			return subscriber.getBody();
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			subscriber.onSubscribe(subscription);
+		}
+
+		@Override
+		public void onNext(List<ByteBuffer> item) {
+			long bytes = 0;
+			for (ByteBuffer buffer : item) {
+				bytes += buffer.remaining();
+			}
+			byteCounter.accept(bytes);
+			subscriber.onNext(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			subscriber.onError(throwable);
+		}
+
+		@Override
+		public void onComplete() {
+			subscriber.onComplete();
+		}
+	}
+
+	// a streamed body that is not read has to be closed, so that the connection can be reused
+	private static void discardBody(HttpResponse<?> response) throws IOException {
+		if (response.body() instanceof InputStream body) {
+			body.close();
+		}
+	}
+
+	private static boolean isRejected(int statusCode) {
+		// GitHub uses 403 for its rate limits, most other APIs use 429
+		return statusCode == 403 || statusCode == 429;
+	}
+
+	// Over plain http, the client would try to upgrade to HTTP/2 on every new connection (h2c), which services
+	// like PostgREST do not support. We only want HTTP/2 over TLS, where it is negotiated during the handshake.
+	static HttpRequest withSupportedVersion(HttpRequest request) {
+		if (request.version().isPresent() || !"http".equalsIgnoreCase(request.uri().getScheme())) {
+			return request;
+		}
+
+		return HttpRequest.newBuilder(request, (name, value) -> true)
+				.version(HttpClient.Version.HTTP_1_1)
+				.build();
+	}
+}
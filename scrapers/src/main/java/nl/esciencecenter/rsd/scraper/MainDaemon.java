@@ -0,0 +1,105 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper;
+
+import nl.esciencecenter.rsd.scraper.doi.MainCitations;
+import nl.esciencecenter.rsd.scraper.doi.MainMentions;
+import nl.esciencecenter.rsd.scraper.doi.MainReleases;
+import nl.esciencecenter.rsd.scraper.git.MainBasicData;
+import nl.esciencecenter.rsd.scraper.git.MainCommits;
+import nl.esciencecenter.rsd.scraper.git.MainContributors;
+import nl.esciencecenter.rsd.scraper.git.MainProgrammingLanguages;
+import nl.esciencecenter.rsd.scraper.package_manager.MainPackageManager;
+import nl.esciencecenter.rsd.scraper.ror.MainRor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-running entry point that hosts all scrapers in a single JVM. Every scraper runs as a job with its own
+ * interval, so startup, JIT compilation and HTTP connection pools are shared between runs. The main methods of the
+ * individual scrapers remain available for one-shot runs.
+ */
+public class MainDaemon {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MainDaemon.class);
+
+	/**
+	 * A scraper job. The initial delays spread the jobs over the interval, like the offsets of the former cron jobs.
+	 *
+	 * @param name         the name of the job, used for logging and for the interval configuration
+	 * @param task         the work to do in one run
+	 * @param initialDelay the time to wait before the first run
+	 */
+	record ScraperJob(String name, Runnable task, Duration initialDelay) {
+	}
+
+	static final List<ScraperJob> JOBS = List.of(
+			new ScraperJob("programming_languages", MainProgrammingLanguages::run, Duration.ZERO),
+			new ScraperJob("package_manager", MainPackageManager::run, Duration.ZERO),
+			new ScraperJob("releases", MainReleases::run, Duration.ofMinutes(1)),
+			new ScraperJob("basic_data", MainBasicData::run, Duration.ofMinutes(2)),
+			new ScraperJob("ror", MainRor::run, Duration.ofMinutes(2)),
+			new ScraperJob("mentions", MainMentions::run, Duration.ofMinutes(3)),
+			new ScraperJob("commits", MainCommits::run, Duration.ofMinutes(4)),
+			new ScraperJob("contributors", MainContributors::run, Duration.ofMinutes(5)),
+			new ScraperJob("citations", MainCitations::run, Duration.ofMinutes(5))
+	);
+
+	public static void main(String[] args) {
+		LOGGER.info("Starting scraper daemon");
+
+		ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(JOBS.size());
+		for (ScraperJob job : JOBS) {
+			long interval = Config.jobInterval(job.name());
+			LOGGER.info("Scheduling job {} every {} seconds", job.name(), interval);
+			// with a fixed delay, a job that takes longer than its interval is never run twice at the same time
+			scheduler.scheduleWithFixedDelay(() -> runSafely(job), job.initialDelay().toSeconds(), interval, TimeUnit.SECONDS);
+		}
+
+		int metricsPort = Config.metricsPort();
+		if (metricsPort > 0) {
+			try {
+				ScraperMetrics.instance().startServer(metricsPort);
+				LOGGER.info("Serving metrics on port {}", metricsPort);
+			} catch (IOException e) {
+				// the scrapers do not need the metrics to work
+				LOGGER.error("Failed to serve metrics on port {}", metricsPort, e);
+			}
+		}
+
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			LOGGER.info("Stopping scraper daemon");
+			scheduler.shutdownNow();
+			try {
+				if (!scheduler.awaitTermination(30, TimeUnit.SECONDS)) {
+					LOGGER.warn("Not all jobs stopped in time");
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+	}
+
+	// An exception escaping from a scheduled task would cancel all its future runs, so we catch everything here.
+	// Errors are caught as well, since Config throws them for missing environment variables.
+	static void runSafely(ScraperJob job) {
+		long start = System.nanoTime();
+		try {
+			job.task().run();
+			ScraperMetrics.instance().recordJobRun(job.name(), System.nanoTime() - start, true);
+			LOGGER.info("HTTP response cache after job {}: {}", job.name(), ResponseCache.instance());
+		} catch (Throwable e) {
+			ScraperMetrics.instance().recordJobRun(job.name(), System.nanoTime() - start, false);
+			LOGGER.error("Job {} failed", job.name(), e);
+		}
+	}
+}
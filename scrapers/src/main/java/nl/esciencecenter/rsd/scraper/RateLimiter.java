@@ -0,0 +1,219 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-host rate limiter, driven by the rate limit headers that APIs like GitHub and GitLab send with every response.
+ * <p>
+ * Every host gets a token bucket, or every combination of host and credentials when the budgets are per credential.
+ * Its refill rate is the remaining budget divided by the time until the budget resets, so the requests are spread over
+ * the window instead of using up the budget at the start of it. A small burst is allowed. When the budget is used up,
+ * or the host sent a Retry-After header, requests wait until the budget resets. Hosts that never sent rate limit headers
+ * are not limited.
+ * <p>
+ * The following headers are supported:
+ * <ul>
+ *     <li>X-RateLimit-Remaining and X-RateLimit-Reset (epoch seconds), as sent by GitHub</li>
+ *     <li>RateLimit-Remaining and RateLimit-Reset, as sent by GitLab (epoch seconds) and by the IETF draft
+ *     (delta seconds)</li>
+ *     <li>Retry-After, both as delta seconds and as HTTP date</li>
+ * </ul>
+ */
+public class RateLimiter {
+
+	// values of the reset headers above this are epoch seconds, values below are seconds from now
+	private static final long EPOCH_SECONDS_THRESHOLD = 1_000_000_000L;
+	// the part of the remaining budget that can be used at once
+	private static final double BURST_FRACTION = 0.1;
+
+	private final Map<String, HostBudget> budgets = new ConcurrentHashMap<>();
+	private final LongSupplier clock;
+	private final long maxPauseMillis;
+
+	public RateLimiter(long maxPauseMillis) {
+		this(maxPauseMillis, System::currentTimeMillis);
+	}
+
+	RateLimiter(long maxPauseMillis, LongSupplier clock) {
+		this.maxPauseMillis = maxPauseMillis;
+		this.clock = clock;
+	}
+
+	/**
+	 * Waits until a request to the given URI is allowed.
+	 *
+	 * @param uri the URI that will be requested
+	 * @throws RsdRateLimitException if the request would have to wait longer than the configured maximum pause
+	 * @throws InterruptedException
+	 */
+	public void acquire(URI uri) throws InterruptedException {
+		acquire(uri.getHost(), uri);
+	}
+
+	/**
+	 * Waits until a request to the given URI is allowed by the budget of the given key.
+	 *
+	 * @param key the key of the budget, e.g. the host together with the credentials, as every credential has its own
+	 *            budget
+	 * @param uri the URI that will be requested
+	 * @throws RsdRateLimitException if the request would have to wait longer than the configured maximum pause
+	 * @throws InterruptedException
+	 */
+	public void acquire(String key, URI uri) throws InterruptedException {
+		long wait = reserve(key);
+		if (wait > maxPauseMillis) {
+			throw new RsdRateLimitException(429, uri, null, "Rate limit for " + uri.getHost() + " reached, the budget is available again in " + (wait / 1000) + " seconds");
+		}
+		if (wait > 0) {
+			Thread.sleep(wait);
+		}
+	}
+
+	/**
+	 * Updates the budget of the host of the given URI with the rate limit headers of a response.
+	 *
+	 * @param uri     the URI that was requested
+	 * @param headers the headers of the response
+	 * @return true if the headers indicate that the request was rejected because of the rate limit
+	 */
+	public boolean update(URI uri, HttpHeaders headers) {
+		return update(uri.getHost(), headers);
+	}
+
+	/**
+	 * Updates the budget of the given key with the rate limit headers of a response.
+	 *
+	 * @param key     the key of the budget, as given to {@link #acquire(String, URI)}
+	 * @param headers the headers of the response
+	 * @return true if the headers indicate that the request was rejected because of the rate limit
+	 */
+	public boolean update(String key, HttpHeaders headers) {
+		long now = clock.getAsLong();
+		OptionalLong remaining = firstLong(headers, "x-ratelimit-remaining", "ratelimit-remaining");
+		OptionalLong resetAt = firstLong(headers, "x-ratelimit-reset", "ratelimit-reset");
+		OptionalLong retryAt = headers.firstValue("retry-after").map(value -> parseRetryAfter(value, now)).orElse(OptionalLong.empty());
+		if (remaining.isEmpty() && retryAt.isEmpty()) {
+			return false;
+		}
+
+		HostBudget budget = budgets.computeIfAbsent(key, k -> new HostBudget());
+		if (retryAt.isPresent()) {
+			budget.pause(retryAt.getAsLong());
+		}
+		if (remaining.isPresent() && resetAt.isPresent()) {
+			budget.update(now, remaining.getAsLong(), toEpochMillis(resetAt.getAsLong(), now));
+		}
+
+		return retryAt.isPresent() || (remaining.isPresent() && remaining.getAsLong() == 0);
+	}
+
+	/**
+	 * Reserves a request against the budget of the given key.
+	 *
+	 * @param key the key of the budget, the host for {@link #acquire(URI)}
+	 * @return the time to wait before the request may be sent (in milliseconds)
+	 */
+	long reserve(String key) {
+		HostBudget budget = budgets.get(key);
+		return budget == null ? 0 : budget.reserve(clock.getAsLong());
+	}
+
+	private static OptionalLong firstLong(HttpHeaders headers, String... names) {
+		for (String name : names) {
+			OptionalLong value = headers.firstValue(name).map(RateLimiter::parseLong).orElse(OptionalLong.empty());
+			if (value.isPresent()) {
+				return value;
+			}
+		}
+		return OptionalLong.empty();
+	}
+
+	private static OptionalLong parseLong(String value) {
+		try {
+			return OptionalLong.of(Long.parseLong(value.strip()));
+		} catch (NumberFormatException e) {
+			return OptionalLong.empty();
+		}
+	}
+
+	static long toEpochMillis(long reset, long now) {
+		return reset >= EPOCH_SECONDS_THRESHOLD ? reset * 1000L : now + reset * 1000L;
+	}
+
+	static OptionalLong parseRetryAfter(String value, long now) {
+		OptionalLong seconds = parseLong(value);
+		if (seconds.isPresent()) {
+			return OptionalLong.of(now + seconds.getAsLong() * 1000L);
+		}
+		try {
+			return OptionalLong.of(ZonedDateTime.parse(value.strip(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli());
+		} catch (DateTimeParseException e) {
+			return OptionalLong.empty();
+		}
+	}
+
+	private static class HostBudget {
+
+		private boolean known = false;
+		private double tokens;
+		private double capacity;
+		private double refillPerMilli;
+		private long lastRefill;
+		private long resetAt;
+		private long pausedUntil;
+
+		synchronized void pause(long until) {
+			pausedUntil = Math.max(pausedUntil, until);
+		}
+
+		synchronized void update(long now, long remaining, long resetAt) {
+			boolean newWindow = !known || resetAt != this.resetAt;
+			if (!newWindow) {
+				tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerMilli);
+			}
+			this.known = true;
+			this.resetAt = resetAt;
+			this.lastRefill = now;
+			this.refillPerMilli = (double) remaining / Math.max(1L, resetAt - now);
+			this.capacity = Math.max(1.0, remaining * BURST_FRACTION);
+			// The header is the source of truth, it also includes the requests of other clients using the same
+			// credentials. It can only lower the balance within a window though, otherwise every response would hand
+			// out a new burst and the requests would never be paced.
+			this.tokens = newWindow ? Math.min(remaining, capacity) : Math.min(tokens, Math.min(remaining, capacity));
+		}
+
+		synchronized long reserve(long now) {
+			long wait = Math.max(0L, pausedUntil - now);
+
+			if (known && now >= resetAt) {
+				// a new window has started, the budget is unknown until the next response
+				known = false;
+			}
+			if (!known) {
+				return wait;
+			}
+
+			tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerMilli);
+			lastRefill = now;
+			tokens -= 1.0;
+			if (tokens < 0) {
+				long untilReset = resetAt - now;
+				long untilToken = refillPerMilli > 0 ? (long) Math.ceil(-tokens / refillPerMilli) : untilReset;
+				wait = Math.max(wait, Math.min(untilToken, untilReset));
+			}
+			return wait;
+		}
+	}
+}
@@ -0,0 +1,358 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Cache for GET responses of APIs whose data rarely changes, like ROR, Crossref and libraries.io. Unlike
+ * {@link ConditionalRequestCache}, a stored response is returned without asking the server at all, as long as it is
+ * younger than the time to live of its host. Hosts without a time to live are not cached.
+ * <p>
+ * The responses are kept in two tiers: the most recently used ones in memory, and all of them on disk, so that a
+ * restarted scraper still finds them. Both tiers are bounded in size, the least recently used responses are evicted
+ * first. Only successful responses are stored. The key of a response is a hash of the URL and the request headers, so
+ * neither the URL (which can contain an API key) nor the headers are written to disk.
+ */
+public class ResponseCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ResponseCache.class);
+
+	// when a tier is full, it is evicted to this part of its maximum size, so that not every store evicts again
+	private static final double EVICTION_TARGET = 0.9;
+
+	private static class Holder {
+		private static final ResponseCache INSTANCE = new ResponseCache(
+				Path.of(Config.httpCacheDirectory(), "responses"),
+				parseTimesToLive(Config.httpResponseCacheTtl()),
+				Config.httpResponseCacheMemoryMegabytes() * 1024L * 1024L,
+				Config.httpResponseCacheDiskMegabytes() * 1024L * 1024L,
+				System::currentTimeMillis
+		);
+	}
+
+	record Statistics(long memoryHits, long diskHits, long misses, long memoryBytes, long diskBytes) {
+	}
+
+	private record Entry(long storedAt, HttpHeaders headers, String body, long size) {
+	}
+
+	private final Path directory;
+	private final Map<String, Duration> timeToLivePerHost;
+	private final long maxMemoryBytes;
+	private final long maxDiskBytes;
+	private final LongSupplier clock;
+
+	// in access order, so that iterating starts at the least recently used entry
+	private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+	private long memoryBytes = 0;
+	// unknown until the directory is first scanned
+	private long diskBytes = -1;
+
+	private final LongAdder memoryHits = new LongAdder();
+	private final LongAdder diskHits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	ResponseCache(Path directory, Map<String, Duration> timeToLivePerHost, long maxMemoryBytes, long maxDiskBytes, LongSupplier clock) {
+		this.directory = directory;
+		this.timeToLivePerHost = timeToLivePerHost;
+		this.maxMemoryBytes = maxMemoryBytes;
+		this.maxDiskBytes = maxDiskBytes;
+		this.clock = clock;
+	}
+
+	/**
+	 * The shared cache, stored in the directory given by {@link Config#httpCacheDirectory()}.
+	 *
+	 * @return the shared instance
+	 */
+	public static ResponseCache instance() {
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * @param request the request
+	 * @return true if the request is a GET request to a host with a time to live
+	 */
+	public boolean isCacheable(HttpRequest request) {
+		return request.method().equals("GET") && timeToLive(request).isPositive();
+	}
+
+	/**
+	 * Gets a stored response for the request, first from memory and then from disk.
+	 *
+	 * @param request the request
+	 * @return the stored response, or empty if there is none or if it expired
+	 */
+	public Optional<HttpResponse<String>> get(HttpRequest request) {
+		String key = key(request);
+		long now = clock.getAsLong();
+		long maxAge = timeToLive(request).toMillis();
+
+		Entry entry;
+		synchronized (this) {
+			entry = memory.get(key);
+		}
+		if (entry != null && now - entry.storedAt() < maxAge) {
+			memoryHits.increment();
+			return Optional.of(toResponse(request, entry));
+		}
+
+		entry = loadFromDisk(key, request);
+		if (entry != null && now - entry.storedAt() < maxAge) {
+			diskHits.increment();
+			putInMemory(key, entry);
+			touch(fileFor(key));
+			return Optional.of(toResponse(request, entry));
+		}
+
+		misses.increment();
+		return Optional.empty();
+	}
+
+	/**
+	 * Stores a response in both tiers, if it was successful.
+	 *
+	 * @param request  the request
+	 * @param response the response to the request
+	 */
+	public void put(HttpRequest request, HttpResponse<String> response) {
+		if (response.statusCode() != 200 || response.body() == null) {
+			return;
+		}
+
+		String key = key(request);
+		Entry entry = new Entry(clock.getAsLong(), response.headers(), response.body(), (long) response.body().length() * Character.BYTES);
+		putInMemory(key, entry);
+		storeOnDisk(key, entry);
+	}
+
+	Statistics statistics() {
+		synchronized (this) {
+			return new Statistics(memoryHits.sum(), diskHits.sum(), misses.sum(), memoryBytes, Math.max(0, diskBytes));
+		}
+	}
+
+	@Override
+	public String toString() {
+		Statistics statistics = statistics();
+		return "%d memory hits, %d disk hits, %d misses, %d kB in memory, %d kB on disk".formatted(statistics.memoryHits(), statistics.diskHits(), statistics.misses(), statistics.memoryBytes() / 1024, statistics.diskBytes() / 1024);
+	}
+
+	private Duration timeToLive(HttpRequest request) {
+		String host = request.uri().getHost();
+		return host == null ? Duration.ZERO : timeToLivePerHost.getOrDefault(host.toLowerCase(Locale.ROOT), Duration.ZERO);
+	}
+
+	private synchronized void putInMemory(String key, Entry entry) {
+		if (entry.size() > maxMemoryBytes * EVICTION_TARGET) {
+			return;
+		}
+
+		Entry previous = memory.put(key, entry);
+		memoryBytes += entry.size() - (previous == null ? 0 : previous.size());
+		if (memoryBytes > maxMemoryBytes) {
+			Iterator<Entry> iterator = memory.values().iterator();
+			while (memoryBytes > maxMemoryBytes * EVICTION_TARGET && iterator.hasNext()) {
+				memoryBytes -= iterator.next().size();
+				iterator.remove();
+			}
+		}
+	}
+
+	private Entry loadFromDisk(String key, HttpRequest request) {
+		Path file = fileFor(key);
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+
+		try {
+			return parseEntry(Files.readString(file));
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Ignoring unreadable cache entry {} for {}", file, request.uri().getHost(), e);
+			return null;
+		}
+	}
+
+	private void storeOnDisk(String key, Entry entry) {
+		Path file = fileFor(key);
+		try {
+			Files.createDirectories(directory);
+			String json = toJson(entry);
+			// write to a temporary file first, so concurrent readers never see a partially written entry
+			Path temporaryFile = Files.createTempFile(directory, "entry", ".tmp");
+			Files.writeString(temporaryFile, json);
+			long newSize = Files.size(temporaryFile);
+			long oldSize = Files.isRegularFile(file) ? Files.size(file) : 0;
+			Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			touch(file);
+			addDiskBytes(newSize - oldSize);
+		} catch (IOException | UncheckedIOException e) {
+			LOGGER.warn("Failed to store cache entry in {}", directory, e);
+		}
+	}
+
+	private synchronized void addDiskBytes(long bytes) throws IOException {
+		if (diskBytes < 0) {
+			// the moved file is already counted by the scan
+			diskBytes = 0;
+			for (Path file : entryFiles()) {
+				diskBytes += Files.size(file);
+			}
+		} else {
+			diskBytes += bytes;
+		}
+
+		if (diskBytes > maxDiskBytes) {
+			evictFromDisk();
+		}
+	}
+
+	// the files are touched when they are read, so the least recently modified file is the least recently used one
+	private void evictFromDisk() throws IOException {
+		List<Path> files = new ArrayList<>(entryFiles());
+		Map<Path, FileTime> modifiedTimes = new HashMap<>();
+		for (Path file : files) {
+			modifiedTimes.put(file, Files.getLastModifiedTime(file));
+		}
+		files.sort(Comparator.comparing(modifiedTimes::get));
+
+		for (Path file : files) {
+			if (diskBytes <= maxDiskBytes * EVICTION_TARGET) {
+				break;
+			}
+			long size = Files.size(file);
+			if (Files.deleteIfExists(file)) {
+				diskBytes -= size;
+			}
+		}
+	}
+
+	private List<Path> entryFiles() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> file.getFileName().toString().endsWith(".json")).toList();
+		}
+	}
+
+	private void touch(Path file) {
+		try {
+			Files.setLastModifiedTime(file, FileTime.fromMillis(clock.getAsLong()));
+		} catch (IOException e) {
+			LOGGER.debug("Failed to touch cache entry {}", file, e);
+		}
+	}
+
+	private Path fileFor(String key) {
+		return directory.resolve(key + ".json");
+	}
+
+	private static HttpResponse<String> toResponse(HttpRequest request, Entry entry) {
+		return new ConditionalRequestCache.CachedResponse(request, request.uri(), entry.headers(), entry.body());
+	}
+
+	/**
+	 * The key of a request, a hash of its method, URL and headers.
+	 *
+	 * @param request the request
+	 * @return the key, in hexadecimal
+	 */
+	static String key(HttpRequest request) {
+		StringBuilder keyData = new StringBuilder(request.method()).append(' ').append(request.uri());
+		new TreeMap<>(request.headers().map()).forEach((name, values) -> keyData.append('\n').append(name.toLowerCase(Locale.ROOT)).append(':').append(values));
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(keyData.toString().getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(hash);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String toJson(Entry entry) {
+		JsonObject headers = new JsonObject();
+		for (Map.Entry<String, List<String>> header : entry.headers().map().entrySet()) {
+			JsonArray values = new JsonArray();
+			header.getValue().forEach(values::add);
+			headers.add(header.getKey(), values);
+		}
+
+		JsonObject json = new JsonObject();
+		json.addProperty("stored_at", entry.storedAt());
+		json.add("headers", headers);
+		json.addProperty("body", entry.body());
+		return json.toString();
+	}
+
+	private static Entry parseEntry(String json) {
+		JsonObject entry = JsonParser.parseString(json).getAsJsonObject();
+
+		Map<String, List<String>> headerMap = new LinkedHashMap<>();
+		for (Map.Entry<String, JsonElement> header : entry.getAsJsonObject("headers").entrySet()) {
+			List<String> values = new ArrayList<>();
+			header.getValue().getAsJsonArray().forEach(value -> values.add(value.getAsString()));
+			headerMap.put(header.getKey(), values);
+		}
+
+		String body = entry.getAsJsonPrimitive("body").getAsString();
+		return new Entry(entry.getAsJsonPrimitive("stored_at").getAsLong(), HttpHeaders.of(headerMap, (name, value) -> true), body, (long) body.length() * Character.BYTES);
+	}
+
+	/**
+	 * Parses the times to live per host.
+	 *
+	 * @param value the hosts with their time to live in hours, e.g. "api.ror.org=168,api.crossref.org=24"
+	 * @return the time to live per host, in lower case; invalid entries are left out
+	 */
+	static Map<String, Duration> parseTimesToLive(String value) {
+		Map<String, Duration> result = new HashMap<>();
+		for (String hostWithHours : value.split("[,\\s]+")) {
+			String[] parts = hostWithHours.split("=");
+			if (parts.length != 2 || parts[0].isBlank()) {
+				if (!hostWithHours.isBlank()) {
+					LOGGER.warn("Ignoring invalid response cache time to live: {}", hostWithHours);
+				}
+				continue;
+			}
+			try {
+				result.put(parts[0].strip().toLowerCase(Locale.ROOT), Duration.ofHours(Long.parseLong(parts[1].strip())));
+			} catch (NumberFormatException e) {
+				LOGGER.warn("Ignoring invalid response cache time to live: {}", hostWithHours);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,31 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Shared executor for the fan-out of the scrapers. Almost all the work of a scraper is waiting for HTTP responses, so
+ * every task gets its own virtual thread instead of a thread of a bounded pool like {@link java.util.concurrent.ForkJoinPool#commonPool()},
+ * whose size depends on the number of cores. The number of concurrent requests to one host is limited by
+ * {@link HttpTransport} instead.
+ */
+public class ScraperExecutor {
+
+	private static final ExecutorService EXECUTOR = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("scraper-", 0).factory());
+
+	private ScraperExecutor() {
+	}
+
+	/**
+	 * The shared executor. It must not be shut down, so it cannot be used in a try-with-resources statement.
+	 *
+	 * @return an executor that runs every task on a new virtual thread
+	 */
+	public static ExecutorService executor() {
+		return EXECUTOR;
+	}
+}
@@ -0,0 +1,277 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper;
+
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the scrapers, in the text format of Prometheus. They show where the time of a scraper run goes: the
+ * latency and status codes of the requests per host, the latency of the writes to PostgREST and the number of items
+ * that were scraped, that failed and that were skipped because of rate limits.
+ * <p>
+ * The daemon serves the metrics on an HTTP endpoint, see {@link #startServer(int)}. One-shot runs write them to a file
+ * when they end, if {@link Config#metricsFile()} is set.
+ */
+public class ScraperMetrics {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ScraperMetrics.class);
+
+	// in seconds, from fast cached responses to slow paginated APIs
+	private static final double[] LATENCY_BUCKETS = {0.01, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+
+	private static final String HTTP_REQUEST_DURATION = "rsd_scraper_http_request_duration_seconds";
+	private static final String HTTP_RESPONSES = "rsd_scraper_http_responses_total";
+	private static final String HTTP_RESPONSE_BYTES = "rsd_scraper_http_response_bytes_total";
+	private static final String RATE_LIMIT_REMAINING = "rsd_scraper_rate_limit_remaining";
+	private static final String POSTGREST_WRITE_DURATION = "rsd_scraper_postgrest_write_duration_seconds";
+	private static final String ITEMS = "rsd_scraper_items_total";
+	private static final String JOB_DURATION = "rsd_scraper_job_duration_seconds";
+	private static final String JOB_RUNS = "rsd_scraper_job_runs_total";
+
+	private static final Map<String, String> HELP = Map.of(
+			HTTP_REQUEST_DURATION, "Duration of HTTP requests per host, until the response headers are received.",
+			HTTP_RESPONSES, "HTTP responses per host and status code.",
+			HTTP_RESPONSE_BYTES, "Bytes of the bodies of HTTP responses per host, as received.",
+			RATE_LIMIT_REMAINING, "Remaining rate limit budget per host, as given by the last response.",
+			POSTGREST_WRITE_DURATION, "Duration of writes to PostgREST per method and endpoint.",
+			ITEMS, "Items per scraper that were scraped, failed or were skipped because of a rate limit.",
+			JOB_DURATION, "Duration of the runs of the jobs of the daemon.",
+			JOB_RUNS, "Runs of the jobs of the daemon per result."
+	);
+
+	public enum ItemOutcome {
+		SCRAPED, FAILED, SKIPPED
+	}
+
+	private static final ScraperMetrics INSTANCE = new ScraperMetrics();
+
+	static {
+		Config.metricsFile().ifPresent(file -> Runtime.getRuntime().addShutdownHook(new Thread(() -> INSTANCE.writeToFile(Path.of(file)), "metrics-dump")));
+	}
+
+	private static class Histogram {
+		private final LongAdder[] bucketCounts = new LongAdder[LATENCY_BUCKETS.length];
+		private final LongAdder count = new LongAdder();
+		private final DoubleAdder sum = new DoubleAdder();
+
+		Histogram() {
+			for (int i = 0; i < bucketCounts.length; i++) {
+				bucketCounts[i] = new LongAdder();
+			}
+		}
+
+		void observe(double value) {
+			for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+				if (value <= LATENCY_BUCKETS[i]) {
+					bucketCounts[i].increment();
+					break;
+				}
+			}
+			count.increment();
+			sum.add(value);
+		}
+	}
+
+	// keys are the metric name followed by the labels, e.g. rsd_scraper_http_responses_total{host="api.github.com"},
+	// sorted so that the series of a metric are written together
+	private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+	private final Map<String, AtomicLong> gauges = new ConcurrentSkipListMap<>();
+	private final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+	private final Map<String, String> namePerSeries = new ConcurrentHashMap<>();
+
+	ScraperMetrics() {
+	}
+
+	public static ScraperMetrics instance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Records a response to an HTTP request.
+	 *
+	 * @param host          the host of the request
+	 * @param statusCode    the status code of the response
+	 * @param durationNanos the time until the response headers were received
+	 * @param headers       the headers of the response
+	 */
+	public void recordHttpResponse(String host, int statusCode, long durationNanos, HttpHeaders headers) {
+		String hostLabel = "host=\"" + escape(host) + "\"";
+		histogram(HTTP_REQUEST_DURATION, hostLabel).observe(durationNanos / 1e9);
+		counter(HTTP_RESPONSES, hostLabel + ",status=\"" + statusCode + "\"").increment();
+
+		Optional<String> remaining = headers.firstValue("x-ratelimit-remaining").or(() -> headers.firstValue("ratelimit-remaining"));
+		if (remaining.isPresent()) {
+			try {
+				gauge(RATE_LIMIT_REMAINING, hostLabel).set(Long.parseLong(remaining.get().strip()));
+			} catch (NumberFormatException e) {
+				LOGGER.debug("Ignoring invalid rate limit header {} of {}", remaining.get(), host);
+			}
+		}
+	}
+
+	/**
+	 * Counts bytes of the body of a response to an HTTP request, as they are received. A streamed body is counted while
+	 * it is read.
+	 *
+	 * @param host  the host of the request
+	 * @param bytes the number of bytes received
+	 */
+	public void countHttpResponseBytes(String host, long bytes) {
+		if (bytes > 0) {
+			counter(HTTP_RESPONSE_BYTES, "host=\"" + escape(host) + "\"").add(bytes);
+		}
+	}
+
+	/**
+	 * Records a write to PostgREST.
+	 *
+	 * @param method        the HTTP method, e.g. POST
+	 * @param endpoint      the path of the request, without the query, e.g. /rpc/update_repository_url_scraped_data
+	 * @param durationNanos the duration of the request
+	 */
+	public void recordPostgrestWrite(String method, String endpoint, long durationNanos) {
+		histogram(POSTGREST_WRITE_DURATION, "method=\"" + escape(method) + "\",endpoint=\"" + escape(endpoint) + "\"").observe(durationNanos / 1e9);
+	}
+
+	/**
+	 * @param service the name of the scraper, as used for the backend log
+	 * @param outcome what happened to the items
+	 * @param count   the number of items
+	 */
+	public void countItems(String service, ItemOutcome outcome, long count) {
+		if (count > 0) {
+			counter(ITEMS, "service=\"" + escape(service) + "\",outcome=\"" + outcome.name().toLowerCase(Locale.ROOT) + "\"").add(count);
+		}
+	}
+
+	/**
+	 * @param job           the name of the job
+	 * @param durationNanos the duration of the run
+	 * @param succeeded     false if the run threw
+	 */
+	public void recordJobRun(String job, long durationNanos, boolean succeeded) {
+		String jobLabel = "job=\"" + escape(job) + "\"";
+		histogram(JOB_DURATION, jobLabel).observe(durationNanos / 1e9);
+		counter(JOB_RUNS, jobLabel + ",result=\"" + (succeeded ? "success" : "failure") + "\"").increment();
+	}
+
+	private LongAdder counter(String name, String labels) {
+		return counters.computeIfAbsent(series(name, labels), series -> new LongAdder());
+	}
+
+	private AtomicLong gauge(String name, String labels) {
+		return gauges.computeIfAbsent(series(name, labels), series -> new AtomicLong());
+	}
+
+	private Histogram histogram(String name, String labels) {
+		return histograms.computeIfAbsent(series(name, labels), series -> new Histogram());
+	}
+
+	private String series(String name, String labels) {
+		String series = name + "{" + labels + "}";
+		namePerSeries.putIfAbsent(series, name);
+		return series;
+	}
+
+	static String escape(String labelValue) {
+		return labelValue == null ? "" : labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	/**
+	 * @return the metrics in the text format of Prometheus, version 0.0.4
+	 */
+	public String toPrometheusText() {
+		StringBuilder text = new StringBuilder();
+		String[] lastName = {null};
+
+		counters.forEach((series, value) -> {
+			writeHeader(text, series, "counter", lastName);
+			text.append(series).append(' ').append(value.sum()).append('\n');
+		});
+		gauges.forEach((series, value) -> {
+			writeHeader(text, series, "gauge", lastName);
+			text.append(series).append(' ').append(value.get()).append('\n');
+		});
+		histograms.forEach((series, histogram) -> {
+			writeHeader(text, series, "histogram", lastName);
+			String name = namePerSeries.get(series);
+			String labels = series.substring(name.length() + 1, series.length() - 1);
+			long cumulativeCount = 0;
+			for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+				cumulativeCount += histogram.bucketCounts[i].sum();
+				text.append(name).append("_bucket{").append(labels).append(",le=\"").append(LATENCY_BUCKETS[i]).append("\"} ").append(cumulativeCount).append('\n');
+			}
+			long count = histogram.count.sum();
+			text.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(count).append('\n');
+			text.append(name).append("_sum{").append(labels).append("} ").append(histogram.sum.sum()).append('\n');
+			text.append(name).append("_count{").append(labels).append("} ").append(count).append('\n');
+		});
+
+		return text.toString();
+	}
+
+	private void writeHeader(StringBuilder text, String series, String type, String[] lastName) {
+		String name = namePerSeries.get(series);
+		if (!name.equals(lastName[0])) {
+			text.append("# HELP ").append(name).append(' ').append(HELP.get(name)).append('\n');
+			text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+			lastName[0] = name;
+		}
+	}
+
+	/**
+	 * Serves the metrics on /metrics, for Prometheus to scrape.
+	 *
+	 * @param port the port to listen on
+	 * @return the server, already started
+	 * @throws IOException if the port cannot be used
+	 */
+	public HttpServer startServer(int port) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+		server.createContext("/metrics", exchange -> {
+			byte[] body = toPrometheusText().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream output = exchange.getResponseBody()) {
+				output.write(body);
+			}
+		});
+		server.setExecutor(ScraperExecutor.executor());
+		server.start();
+		return server;
+	}
+
+	void writeToFile(Path file) {
+		try {
+			Path directory = file.toAbsolutePath().getParent();
+			Files.createDirectories(directory);
+			// write to a temporary file first, so that a collector never reads a partially written file
+			Path temporaryFile = Files.createTempFile(directory, "metrics", ".tmp");
+			Files.writeString(temporaryFile, toPrometheusText());
+			Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to write the metrics to {}", file, e);
+		}
+	}
+}
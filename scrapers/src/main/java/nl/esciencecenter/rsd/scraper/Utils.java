@@ -9,19 +9,19 @@
 
 package nl.esciencecenter.rsd.scraper;
 
-import com.auth0.jwt.JWT;
-import com.auth0.jwt.algorithms.Algorithm;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.URI;
 import java.net.URLEncoder;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
@@ -29,7 +29,7 @@ import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Base64;
-import java.util.Date;
+import java.util.Set;
 import java.util.UUID;
 
 public class Utils {
@@ -89,6 +89,111 @@ public class Utils {
 	 * @throws InterruptedException
 	 */
 	public static HttpResponse<String> getAsHttpResponse(String uri, String... headers) throws IOException, InterruptedException {
+		return HttpTransport.send(getRequest(uri, headers));
+	}
+
+	/**
+	 * Performs a GET request with given headers and returns the entire http response, with the body as a stream. This
+	 * allows parsing the body while it is being received, without holding all of it in memory. The caller has to close
+	 * the body.
+	 *
+	 * @param uri     The encoded URI
+	 * @param headers (Optional) Variable amount of headers. Number of arguments must be a multiple of two.
+	 * @return The response with the body as an InputStream.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static HttpResponse<InputStream> getAsInputStreamResponse(String uri, String... headers) throws IOException, InterruptedException {
+		return getAsInputStreamResponse(uri, HttpTransport.RetryAuthorization.SAME_CREDENTIALS, headers);
+	}
+
+	/**
+	 * Like {@link #getAsInputStreamResponse(String, String...)}, but a request that is rejected because of the rate
+	 * limit of its credentials is retried with the credentials given by retryAuthorization.
+	 */
+	public static HttpResponse<InputStream> getAsInputStreamResponse(String uri, HttpTransport.RetryAuthorization retryAuthorization, String... headers) throws IOException, InterruptedException {
+		return HttpTransport.send(getRequest(uri, headers), HttpResponse.BodyHandlers.ofInputStream(), retryAuthorization);
+	}
+
+	/**
+	 * Reads the remainder of a response body, e.g. to add it to an exception when the response was not successful.
+	 *
+	 * @param body The response body
+	 * @return The body decoded as UTF-8.
+	 * @throws IOException
+	 */
+	public static String bodyAsString(InputStream body) throws IOException {
+		return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads the next JSON object from the reader, only keeping the members with the given names. The values of all
+	 * other members are skipped without being parsed into a tree.
+	 *
+	 * @param reader The reader, positioned before the start of an object
+	 * @param names  The names of the members to keep
+	 * @return An object with the kept members.
+	 * @throws IOException
+	 */
+	public static JsonObject readSelectedMembers(JsonReader reader, Set<String> names) throws IOException {
+		JsonObject result = new JsonObject();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (names.contains(name)) {
+				result.add(name, JsonParser.parseReader(reader));
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return result;
+	}
+
+	/**
+	 * Performs a conditional GET request with given headers, see {@link ConditionalRequestCache}, and returns the body
+	 * of the response.
+	 *
+	 * @param uri     The encoded URI
+	 * @param headers (Optional) Variable amount of headers. Number of arguments must be a multiple of two.
+	 * @return The response as a String.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 * @throws RsdResponseException
+	 */
+	public static String getCached(String uri, String... headers) throws IOException, InterruptedException, RsdResponseException {
+		HttpResponse<String> response = getCachedAsHttpResponse(uri, headers);
+
+		if (response.statusCode() >= 300) {
+			throw new RsdResponseException(response.statusCode(), response.uri(), response.body(), "Unexpected response");
+		}
+
+		return response.body();
+	}
+
+	/**
+	 * Performs a conditional GET request with given headers, see {@link ConditionalRequestCache}, and returns the
+	 * entire http response. If the resource was not modified, the stored response is returned.
+	 *
+	 * @param uri     The encoded URI
+	 * @param headers (Optional) Variable amount of headers. Number of arguments must be a multiple of two.
+	 * @return The response as a String.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static HttpResponse<String> getCachedAsHttpResponse(String uri, String... headers) throws IOException, InterruptedException {
+		return getCachedAsHttpResponse(uri, HttpTransport.RetryAuthorization.SAME_CREDENTIALS, headers);
+	}
+
+	/**
+	 * Like {@link #getCachedAsHttpResponse(String, String...)}, but a request that is rejected because of the rate
+	 * limit of its credentials is retried with the credentials given by retryAuthorization.
+	 */
+	public static HttpResponse<String> getCachedAsHttpResponse(String uri, HttpTransport.RetryAuthorization retryAuthorization, String... headers) throws IOException, InterruptedException {
+		return ConditionalRequestCache.instance().send(getRequest(uri, headers), retryAuthorization);
+	}
+
+	private static HttpRequest getRequest(String uri, String... headers) {
 		HttpRequest.Builder httpRequestBuilder = HttpRequest.newBuilder()
 				.GET()
 				.timeout(DEFAULT_TIMEOUT)
@@ -96,11 +201,7 @@ public class Utils {
 		if (headers != null && headers.length > 0 && headers.length % 2 == 0) {
 			httpRequestBuilder.headers(headers);
 		}
-		HttpRequest request = httpRequestBuilder.build();
-
-		try (HttpClient client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build()) {
-			return client.send(request, HttpResponse.BodyHandlers.ofString());
-		}
+		return httpRequestBuilder.build();
 	}
 
 	/**
@@ -120,8 +221,8 @@ public class Utils {
 
 		HttpResponse<String> response;
 
-		try (HttpClient client = HttpClient.newHttpClient()) {
-			response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		try {
+			response = HttpTransport.send(request);
 		} catch (InterruptedException e) {
 			LOGGER.warn("Request to {} was interrupted", uri, e);
 			Thread.currentThread().interrupt();
@@ -147,18 +248,10 @@ public class Utils {
 	 * @return The response body as a string
 	 */
 	public static String post(String uri, String body, String... extraHeaders) {
-		HttpRequest.Builder httpRequestBuilder = HttpRequest.newBuilder()
-				.POST(HttpRequest.BodyPublishers.ofString(body))
-				.timeout(DEFAULT_TIMEOUT)
-				.uri(URI.create(uri));
-		if (extraHeaders != null && extraHeaders.length > 0 && extraHeaders.length % 2 == 0) {
-			httpRequestBuilder.headers(extraHeaders);
-		}
-		HttpRequest request = httpRequestBuilder.build();
 		HttpResponse<String> response;
 
-		try (HttpClient client = HttpClient.newHttpClient()) {
-			response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		try {
+			response = HttpTransport.send(postRequest(uri, body, extraHeaders));
 		} catch (InterruptedException e) {
 			Thread.currentThread().interrupt();
 			throw new RuntimeException(e);
@@ -172,6 +265,46 @@ public class Utils {
 		return response.body();
 	}
 
+	/**
+	 * Performs a POST request with given headers and returns the response body as a stream, see
+	 * {@link #getAsInputStreamResponse(String, String...)}. The caller has to close the stream.
+	 *
+	 * @param uri          The URI
+	 * @param body         the request body as a string
+	 * @param extraHeaders Additional headers (amount must be multiple of two)
+	 * @return The response body as an InputStream
+	 */
+	public static InputStream postForInputStream(String uri, String body, String... extraHeaders) {
+		HttpResponse<InputStream> response;
+
+		try {
+			response = HttpTransport.send(postRequest(uri, body, extraHeaders), HttpResponse.BodyHandlers.ofInputStream());
+			if (response.statusCode() >= 300) {
+				try (InputStream errorBody = response.body()) {
+					throw new RuntimeException("Error fetching data from endpoint " + uri + " with response: " + bodyAsString(errorBody));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+
+		return response.body();
+	}
+
+	private static HttpRequest postRequest(String uri, String body, String... extraHeaders) {
+		HttpRequest.Builder httpRequestBuilder = HttpRequest.newBuilder()
+				.POST(HttpRequest.BodyPublishers.ofString(body))
+				.timeout(DEFAULT_TIMEOUT)
+				.uri(URI.create(uri));
+		if (extraHeaders != null && extraHeaders.length > 0 && extraHeaders.length % 2 == 0) {
+			httpRequestBuilder.headers(extraHeaders);
+		}
+		return httpRequestBuilder.build();
+	}
+
 	/**
 	 * Post data to the database.
 	 *
@@ -192,8 +325,8 @@ public class Utils {
 		HttpRequest request = builder.build();
 		HttpResponse<String> response;
 
-		try (HttpClient client = HttpClient.newHttpClient()) {
-			response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		try {
+			response = sendWrite(request);
 		} catch (InterruptedException e) {
 			Thread.currentThread().interrupt();
 			throw new RuntimeException(e);
@@ -207,6 +340,16 @@ public class Utils {
 		return response.body();
 	}
 
+	// the time of writes to PostgREST includes waiting for a permit, as that is part of the time the scraper spends on it
+	private static HttpResponse<String> sendWrite(HttpRequest request) throws IOException, InterruptedException {
+		long start = System.nanoTime();
+		try {
+			return HttpTransport.send(request);
+		} finally {
+			ScraperMetrics.instance().recordPostgrestWrite(request.method(), request.uri().getPath(), System.nanoTime() - start);
+		}
+	}
+
 	private static JsonObject basicData(String serviceName, String tableName, UUID referenceId, Exception e) {
 		String message = e.getMessage();
 		StringWriter stringWriter = new StringWriter();
@@ -225,14 +368,20 @@ public class Utils {
 		return jsonObject;
 	}
 
+	/**
+	 * Saves an exception in the backend log. This does not block: the entry is buffered and saved in bulk later, see
+	 * {@link BackendLogSink}.
+	 */
 	public static void saveExceptionInDatabase(String serviceName, String tableName, UUID referenceId, Exception e) {
 		JsonObject logData = basicData(serviceName, tableName, referenceId, e);
+		countFailedItem(serviceName, referenceId);
 
-		postAsAdmin(Config.backendBaseUrl() + "/backend_log", logData.toString());
+		BackendLogSink.instance().add(logData);
 	}
 
 	public static void saveExceptionInDatabase(String serviceName, String tableName, UUID referenceId, RsdResponseException e) {
 		JsonObject logData = basicData(serviceName, tableName, referenceId, e);
+		countFailedItem(serviceName, referenceId);
 
 		JsonObject other = new JsonObject();
 		other.addProperty("status_code", e.statusCode);
@@ -241,11 +390,13 @@ public class Utils {
 
 		logData.add("other_data", other);
 
-		postAsAdmin(Config.backendBaseUrl() + "/backend_log", logData.toString());
+		BackendLogSink.instance().add(logData);
 	}
 
 	public static void saveExceptionInDatabase(String serviceName, String tableName, UUID referenceId, RsdRateLimitException e) {
 		JsonObject logData = basicData(serviceName, tableName, referenceId, e);
+		// items that hit a rate limit are scraped again first in the next run
+		ScraperMetrics.instance().countItems(serviceName, ScraperMetrics.ItemOutcome.SKIPPED, 1);
 
 		JsonObject other = new JsonObject();
 		other.addProperty("status_code", e.statusCode);
@@ -254,7 +405,14 @@ public class Utils {
 
 		logData.add("other_data", other);
 
-		postAsAdmin(Config.backendBaseUrl() + "/backend_log", logData.toString());
+		BackendLogSink.instance().add(logData);
+	}
+
+	// exceptions without a reference are about a whole run or batch, not about one item
+	private static void countFailedItem(String serviceName, UUID referenceId) {
+		if (referenceId != null) {
+			ScraperMetrics.instance().countItems(serviceName, ScraperMetrics.ItemOutcome.FAILED, 1);
+		}
 	}
 
 	public static void saveErrorMessageInDatabase(String message, String tableName, String columnName, String primaryKey, String primaryKeyName, ZonedDateTime scrapedAt, String scrapedAtName) {
@@ -281,13 +439,13 @@ public class Utils {
 		HttpRequest request = HttpRequest.newBuilder()
 				.method("PATCH", HttpRequest.BodyPublishers.ofString(json))
 				.uri(URI.create(uri))
-				.timeout(Duration.ofSeconds(30))
+				.timeout(DEFAULT_TIMEOUT)
 				.header("Content-Type", "application/json")
 				.header("Authorization", "Bearer " + jwtString)
 				.build();
 		HttpResponse<String> response;
-		try (HttpClient client = HttpClient.newHttpClient()) {
-			response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		try {
+			response = sendWrite(request);
 		} catch (InterruptedException e) {
 			Thread.currentThread().interrupt();
 			throw new RuntimeException(e);
@@ -301,12 +459,7 @@ public class Utils {
 	}
 
 	private static String adminJwt() {
-		String signingSecret = Config.jwtSigningSecret();
-		Algorithm signingAlgorithm = Algorithm.HMAC256(signingSecret);
-		return JWT.create()
-				.withClaim("role", "rsd_admin")
-				.withExpiresAt(new Date(System.currentTimeMillis() + Config.jwtExpirationTime()))
-				.sign(signingAlgorithm);
+		return AdminJwt.instance().get();
 	}
 
 	public static String stringOrNull(JsonElement e) {
@@ -5,6 +5,7 @@
 
 package nl.esciencecenter.rsd.scraper.doi;
 
+import java.time.ZonedDateTime;
 import java.util.Collection;
 import java.util.UUID;
 
@@ -21,6 +22,12 @@ public class CitationData {
 	
 	// List of known DOIs citing this entry.
 	public final Collection<String> knownDois;
+
+	// When the citations of this entry were last scraped, null if never.
+	public final ZonedDateTime citationsScrapedAt;
+
+	// When all citations of this entry were last scraped, null if never.
+	public final ZonedDateTime citationsFullScrapedAt;
 	
 	/**
 	 * Create a CitationData and initialize with data provided.
@@ -28,11 +35,15 @@ public class CitationData {
 	 * @param id of this entry in the database
 	 * @param doi of this entry
 	 * @param knownDois list of known DOIs citing this entry
+	 * @param citationsScrapedAt when the citations of this entry were last scraped, null if never
+	 * @param citationsFullScrapedAt when all citations of this entry were last scraped, null if never
 	 */
-	public CitationData(UUID id, String doi, Collection<String> knownDois) {
+	public CitationData(UUID id, String doi, Collection<String> knownDois, ZonedDateTime citationsScrapedAt, ZonedDateTime citationsFullScrapedAt) {
 		super();
 		this.id = id;
 		this.doi = doi;
 		this.knownDois = knownDois;
+		this.citationsScrapedAt = citationsScrapedAt;
+		this.citationsFullScrapedAt = citationsFullScrapedAt;
 	}
 }
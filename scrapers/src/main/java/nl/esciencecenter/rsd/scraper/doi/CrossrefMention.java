@@ -74,9 +74,23 @@ public class CrossrefMention implements Mention {
 		Config.crossrefContactEmail().ifPresent(email -> url.append("?mailto=").append(email));
 		String responseJson = Utils.get(url.toString());
 		JsonObject jsonTree = JsonParser.parseString(responseJson).getAsJsonObject();
-		MentionRecord result = new MentionRecord();
 		JsonObject workJson = jsonTree.getAsJsonObject("message");
 
+		return parseWork(workJson, doi, Instant.now());
+	}
+
+	/**
+	 * Parses a work of the works API of Crossref as a mention. The publication year is taken from the published date if
+	 * available and otherwise from the issued date, as published cannot be selected in a list query.
+	 *
+	 * @param workJson  the work
+	 * @param doi       the DOI of the work, as it is known in the RSD
+	 * @param scrapedAt the time of scraping
+	 * @return the mention
+	 */
+	static MentionRecord parseWork(JsonObject workJson, String doi, Instant scrapedAt) {
+		MentionRecord result = new MentionRecord();
+
 		result.doi = doi;
 		result.url = URI.create("https://doi.org/" + Utils.urlEncode(result.doi));
 		result.title = workJson.getAsJsonArray("title").get(0).getAsString();
@@ -96,12 +110,13 @@ public class CrossrefMention implements Mention {
 		}
 
 		result.publisher = Utils.stringOrNull(workJson.get("publisher"));
+		JsonObject publishedJson = workJson.has("published") ? workJson.getAsJsonObject("published") : workJson.getAsJsonObject("issued");
 		try {
-			result.publicationYear = Utils.integerOrNull(workJson.getAsJsonObject("published").getAsJsonArray("date-parts").get(0).getAsJsonArray().get(0));
+			result.publicationYear = Utils.integerOrNull(publishedJson.getAsJsonArray("date-parts").get(0).getAsJsonArray().get(0));
 		} catch (RuntimeException e) {
 			//			year not found, we leave it at null, nothing to do
 		}
-		if (!workJson.getAsJsonArray("container-title").isEmpty()) {
+		if (workJson.has("container-title") && !workJson.getAsJsonArray("container-title").isEmpty()) {
 			JsonArray journalTitles = workJson.getAsJsonArray("container-title");
 			result.journal = journalTitles.get(0).getAsString();
 			for (int i = 1; i < journalTitles.size(); i++) {
@@ -111,7 +126,7 @@ public class CrossrefMention implements Mention {
 		result.page = Utils.stringOrNull(workJson.get("page"));
 		result.mentionType = crossrefTypeMap.getOrDefault(Utils.stringOrNull(workJson.get("type")), MentionType.other);
 		result.source = "Crossref";
-		result.scrapedAt = Instant.now();
+		result.scrapedAt = scrapedAt;
 
 		return result;
 	}
@@ -0,0 +1,160 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.doi;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import nl.esciencecenter.rsd.scraper.Config;
+import nl.esciencecenter.rsd.scraper.ScraperExecutor;
+import nl.esciencecenter.rsd.scraper.Utils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Scrapes mentions from the works API of Crossref, many DOIs per request. Only the fields that are used for the
+ * mentions are requested.
+ */
+public class CrossrefMentionRepository implements MentionRepository {
+
+	static final String WORKS_URL = "https://api.crossref.org/works";
+	// the fields read by CrossrefMention.parseWork, published cannot be selected, issued is used instead
+	static final String SELECTED_FIELDS = "DOI,title,author,publisher,issued,container-title,page,type";
+
+	private final int chunkSize;
+	private final int maxConcurrentChunks;
+	private final Optional<String> email;
+
+	public CrossrefMentionRepository() {
+		this(Config.crossrefChunkSize(), Config.crossrefConcurrency(), Config.crossrefContactEmail());
+	}
+
+	CrossrefMentionRepository(int chunkSize, int maxConcurrentChunks, Optional<String> email) {
+		this.chunkSize = Math.max(1, chunkSize);
+		this.maxConcurrentChunks = Math.max(1, maxConcurrentChunks);
+		this.email = email;
+	}
+
+	@Override
+	public Collection<MentionRecord> leastRecentlyScrapedMentions(int limit) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Scrapes the mentions of the DOIs in chunks, of which a limited number is requested at the same time. A chunk that
+	 * fails is saved in the backend log, the mentions of the other chunks are still returned.
+	 *
+	 * @param dois the DOIs registered at Crossref
+	 * @return the mentions that were found
+	 */
+	@Override
+	public Collection<MentionRecord> mentionData(Collection<String> dois) {
+		List<List<String>> chunks = DoiUtils.chunks(dois, chunkSize);
+		Semaphore permits = new Semaphore(maxConcurrentChunks);
+
+		List<CompletableFuture<Collection<MentionRecord>>> futures = new ArrayList<>(chunks.size());
+		for (List<String> chunk : chunks) {
+			futures.add(CompletableFuture.supplyAsync(() -> scrapeChunk(chunk, permits), ScraperExecutor.executor()));
+		}
+
+		Collection<MentionRecord> mentions = new ArrayList<>();
+		for (CompletableFuture<Collection<MentionRecord>> future : futures) {
+			mentions.addAll(future.join());
+		}
+		return mentions;
+	}
+
+	private Collection<MentionRecord> scrapeChunk(List<String> chunk, Semaphore permits) {
+		String url = worksUrl(chunk, email);
+		String[] headers = email.map(mail -> new String[]{"User-Agent", "RSD (https://research-software-directory.org; mailto:" + mail + ")"})
+				.orElse(new String[0]);
+
+		String responseJson;
+		try {
+			permits.acquire();
+			try {
+				responseJson = Utils.get(url, headers);
+			} finally {
+				permits.release();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			Utils.saveExceptionInDatabase("Crossref mention scraper", "mention", null, e);
+			return List.of();
+		} catch (Exception e) {
+			RuntimeException exceptionWithMessage = new RuntimeException("Failed to scrape %d Crossref mentions with URL %s".formatted(chunk.size(), url), e);
+			Utils.saveExceptionInDatabase("Crossref mention scraper", "mention", null, exceptionWithMessage);
+			return List.of();
+		}
+
+		return parseWorks(responseJson, chunk, Instant.now(), e -> Utils.saveExceptionInDatabase("Crossref mention scraper", "mention", null, e));
+	}
+
+	/**
+	 * @param dois  the DOIs to request, at most as many as the maximum number of rows of Crossref (1000)
+	 * @param email the contact email for the polite pool of Crossref
+	 * @return the URL to request the works with the DOIs
+	 */
+	static String worksUrl(Collection<String> dois, Optional<String> email) {
+		String filter = dois.stream()
+				.map(doi -> "doi:" + doi)
+				.collect(Collectors.joining(","));
+		StringBuilder url = new StringBuilder(WORKS_URL)
+				.append("?filter=").append(Utils.urlEncode(filter))
+				.append("&rows=").append(dois.size())
+				.append("&select=").append(Utils.urlEncode(SELECTED_FIELDS));
+		email.ifPresent(mail -> url.append("&mailto=").append(Utils.urlEncode(mail)));
+		return url.toString();
+	}
+
+	/**
+	 * Parses a list of works as mentions. The DOIs of the mentions are the requested DOIs, as Crossref returns them in
+	 * lower case.
+	 *
+	 * @param json               the response of the works API
+	 * @param requestedDois      the DOIs in the request
+	 * @param scrapedAt          the time of scraping, set on all mentions
+	 * @param invalidWorkHandler called for every work that cannot be parsed as a mention
+	 * @return the mentions
+	 */
+	static Collection<MentionRecord> parseWorks(String json, Collection<String> requestedDois, Instant scrapedAt, Consumer<RuntimeException> invalidWorkHandler) {
+		Map<String, String> requestedDoiPerDoi = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		for (String requestedDoi : requestedDois) {
+			requestedDoiPerDoi.putIfAbsent(requestedDoi, requestedDoi);
+		}
+
+		JsonArray worksJson = JsonParser.parseString(json)
+				.getAsJsonObject()
+				.getAsJsonObject("message")
+				.getAsJsonArray("items");
+		Collection<MentionRecord> mentions = new ArrayList<>();
+		for (JsonElement work : worksJson) {
+			try {
+				JsonObject workJson = work.getAsJsonObject();
+				String doi = workJson.getAsJsonPrimitive("DOI").getAsString();
+				mentions.add(CrossrefMention.parseWork(workJson, requestedDoiPerDoi.getOrDefault(doi, doi), scrapedAt));
+			} catch (RuntimeException e) {
+				invalidWorkHandler.accept(new RuntimeException("Failed to parse a Crossref mention with data " + work, e));
+			}
+		}
+		return mentions;
+	}
+
+	@Override
+	public void save(Collection<MentionRecord> mentions) {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -13,11 +13,14 @@ import nl.esciencecenter.rsd.scraper.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 
 public class DataCiteReleaseRepository {
 
@@ -39,24 +42,89 @@ public class DataCiteReleaseRepository {
 			}
 			""";
 
-	public Map<String, Collection<MentionRecord>> getVersionedDois(Collection<String> conceptDois) {
+	/**
+	 * @param releasesPerConceptDoi the versions per concept DOI, for the DOIs that are concept DOIs
+	 * @param failedConceptDois     the concept DOIs of which the versions could not be scraped, ignoring case, they
+	 *                              are not in releasesPerConceptDoi
+	 */
+	public record VersionedDois(Map<String, Collection<MentionRecord>> releasesPerConceptDoi, Set<String> failedConceptDois) {
+	}
+
+	private final DataciteGraphqlClient client;
+
+	public DataCiteReleaseRepository() {
+		this(new DataciteGraphqlClient());
+	}
+
+	DataCiteReleaseRepository(DataciteGraphqlClient client) {
+		this.client = client;
+	}
+
+	/**
+	 * Scrapes the versions of the concept DOIs. The versions of all concept DOIs are scraped in one batch, instead of
+	 * one request per concept DOI.
+	 *
+	 * A concept DOI is reported as failed if DataCite failed for the concept DOI itself or for one of its versions.
+	 *
+	 * @param conceptDois the concept DOIs
+	 * @return the versions per concept DOI and the concept DOIs that failed
+	 */
+	public VersionedDois getVersionedDois(Collection<String> conceptDois) {
 		if (conceptDois.isEmpty()) {
-			return Collections.emptyMap();
+			return new VersionedDois(Collections.emptyMap(), Collections.emptySet());
 		}
 
-		String query = QUERY_UNFORMATTED.formatted(DataciteMentionRepository.joinCollection(conceptDois));
-		JsonObject body = new JsonObject();
-		body.addProperty("query", query);
-		String responseJson = Utils.post("https://api.datacite.org/graphql", body.toString(), "Content-Type", "application/json");
-		return parseJson(responseJson);
+		Map<String, Collection<String>> versionDoisPerConceptDoi = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		DataciteGraphqlClient.QueryResult<Map<String, Collection<String>>> conceptResult = client.queryReportingFailures(conceptDois, QUERY_UNFORMATTED, DataCiteReleaseRepository::parseVersionDois);
+		conceptResult.results().forEach(versionDoisPerConceptDoi::putAll);
+
+		Collection<String> allVersionDois = versionDoisPerConceptDoi.values().stream()
+				.flatMap(Collection::stream)
+				.toList();
+		DataciteGraphqlClient.QueryResult<MentionRecord> versionResult = new DataciteMentionRepository(client).mentionDataReportingFailures(allVersionDois);
+
+		Set<String> failedConceptDois = failedConceptDois(conceptResult.failedDois(), versionDoisPerConceptDoi, versionResult.failedDois());
+		failedConceptDois.forEach(versionDoisPerConceptDoi::remove);
+		return new VersionedDois(releasesPerConceptDoi(versionDoisPerConceptDoi, versionResult.results()), failedConceptDois);
 	}
 
-	Map<String, Collection<MentionRecord>> parseJson(String json) {
-		DataciteMentionRepository dataciteMentionRepository = new DataciteMentionRepository();
+	static Set<String> failedConceptDois(Set<String> failedConceptQueries, Map<String, Collection<String>> versionDoisPerConceptDoi, Set<String> failedVersionDois) {
+		Set<String> failedConceptDois = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+		failedConceptDois.addAll(failedConceptQueries);
+		Set<String> failedVersionDoisIgnoringCase = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+		failedVersionDoisIgnoringCase.addAll(failedVersionDois);
+		versionDoisPerConceptDoi.forEach((conceptDoi, versionDois) -> {
+			if (versionDois.stream().anyMatch(failedVersionDoisIgnoringCase::contains)) {
+				failedConceptDois.add(conceptDoi);
+			}
+		});
+		return failedConceptDois;
+	}
+
+	static Map<String, Collection<MentionRecord>> releasesPerConceptDoi(Map<String, Collection<String>> versionDoisPerConceptDoi, Collection<MentionRecord> versions) {
+		Map<String, MentionRecord> versionPerDoi = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		for (MentionRecord version : versions) {
+			versionPerDoi.put(version.doi, version);
+		}
 
-		JsonObject root = JsonParser.parseString(json).getAsJsonObject();
-		JsonArray worksJson = root.getAsJsonObject("data").getAsJsonObject("works").getAsJsonArray("nodes");
 		Map<String, Collection<MentionRecord>> releasesPerConceptDoi = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		versionDoisPerConceptDoi.forEach((conceptDoi, versionDois) -> {
+			Collection<MentionRecord> releases = new ArrayList<>();
+			for (String versionDoi : versionDois) {
+				MentionRecord version = versionPerDoi.get(versionDoi);
+				if (version != null) {
+					releases.add(version);
+				}
+			}
+			releasesPerConceptDoi.put(conceptDoi, releases);
+		});
+		return releasesPerConceptDoi;
+	}
+
+	static Map<String, Collection<String>> parseVersionDois(Reader json) {
+		JsonObject root = JsonParser.parseReader(json).getAsJsonObject();
+		JsonArray worksJson = root.getAsJsonObject("data").getAsJsonObject("works").getAsJsonArray("nodes");
+		Map<String, Collection<String>> versionDoisPerConceptDoi = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
 		for (JsonElement work : worksJson) {
 			try {
 				JsonObject workObject = work.getAsJsonObject();
@@ -80,13 +148,12 @@ public class DataCiteReleaseRepository {
 					String relatedIdentifierDoi = relatedIdentifierObject.getAsJsonPrimitive("relatedIdentifier").getAsString();
 					versionDois.add(relatedIdentifierDoi);
 				}
-				Collection<MentionRecord> versionedMentions = dataciteMentionRepository.mentionData(versionDois);
 
-				releasesPerConceptDoi.put(conceptDoi, versionedMentions);
+				versionDoisPerConceptDoi.put(conceptDoi, versionDois);
 			} catch (RuntimeException e) {
 				LOGGER.warn("Failed to scrape a DataCite mention with data {}, ", work, e);
 			}
 		}
-		return releasesPerConceptDoi;
+		return versionDoisPerConceptDoi;
 	}
 }
@@ -0,0 +1,164 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.doi;
+
+import com.google.gson.JsonObject;
+import nl.esciencecenter.rsd.scraper.Config;
+import nl.esciencecenter.rsd.scraper.ScraperExecutor;
+import nl.esciencecenter.rsd.scraper.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Client for the GraphQL API of DataCite. A list of DOIs is split into chunks that are queried concurrently, so that
+ * the size of a response is bounded and a slow or failing chunk does not lose the results of the others. A failing
+ * chunk is retried on its own. The DOIs of chunks that still fail are reported, so that callers can leave them to be
+ * scraped again instead of marking them as done.
+ */
+class DataciteGraphqlClient {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DataciteGraphqlClient.class);
+
+	static final String GRAPHQL_URL = "https://api.datacite.org/graphql";
+	static final int MAX_ATTEMPTS = 3;
+	private static final long FIRST_RETRY_DELAY_MILLISECONDS = 1000L;
+
+	@FunctionalInterface
+	interface ResponseParser<T> {
+		T parse(Reader json) throws IOException;
+	}
+
+	/**
+	 * @param results    the parsed responses of the chunks that succeeded, in the order of the chunks
+	 * @param failedDois the DOIs of the chunks that failed after the last attempt, ignoring case
+	 */
+	record QueryResult<T>(List<T> results, Set<String> failedDois) {
+	}
+
+	private final int chunkSize;
+	private final int maxConcurrentChunks;
+	private final long firstRetryDelayMillis;
+	private final Function<String, InputStream> post;
+	private final Consumer<RuntimeException> failedChunkHandler;
+
+	DataciteGraphqlClient() {
+		this(Config.dataciteChunkSize(), Config.dataciteConcurrency(), FIRST_RETRY_DELAY_MILLISECONDS,
+				body -> Utils.postForInputStream(GRAPHQL_URL, body, "Content-Type", "application/json"),
+				e -> Utils.saveExceptionInDatabase("DataCite GraphQL client", "mention", null, e));
+	}
+
+	/**
+	 * @param chunkSize             the maximum number of DOIs per request
+	 * @param maxConcurrentChunks   the maximum number of requests at the same time
+	 * @param firstRetryDelayMillis the delay before the first retry of a chunk, it doubles for every next retry
+	 * @param post                  sends a request body to the GraphQL API and returns the response body
+	 * @param failedChunkHandler    called for every chunk that still fails after the last attempt
+	 */
+	DataciteGraphqlClient(int chunkSize, int maxConcurrentChunks, long firstRetryDelayMillis, Function<String, InputStream> post, Consumer<RuntimeException> failedChunkHandler) {
+		this.chunkSize = Math.max(1, chunkSize);
+		this.maxConcurrentChunks = Math.max(1, maxConcurrentChunks);
+		this.firstRetryDelayMillis = firstRetryDelayMillis;
+		this.post = post;
+		this.failedChunkHandler = failedChunkHandler;
+	}
+
+	/**
+	 * Runs a query for all DOIs, one chunk of DOIs at a time.
+	 *
+	 * @param dois          the DOIs, duplicates (ignoring case) are removed
+	 * @param queryTemplate the query, with one %s where the quoted and comma separated DOIs of a chunk go
+	 * @param parser        parses the response of one chunk
+	 * @return the parsed responses of the chunks that succeeded, in the order of the chunks
+	 */
+	<T> List<T> query(Collection<String> dois, String queryTemplate, ResponseParser<T> parser) {
+		return queryReportingFailures(dois, queryTemplate, parser).results();
+	}
+
+	/**
+	 * Runs a query for all DOIs, one chunk of DOIs at a time, like {@link #query(Collection, String, ResponseParser)}.
+	 *
+	 * @return the parsed responses of the chunks that succeeded and the DOIs of the chunks that failed
+	 */
+	<T> QueryResult<T> queryReportingFailures(Collection<String> dois, String queryTemplate, ResponseParser<T> parser) {
+		List<List<String>> chunks = DoiUtils.chunks(dois, chunkSize);
+		Semaphore permits = new Semaphore(maxConcurrentChunks);
+
+		List<CompletableFuture<T>> futures = new ArrayList<>(chunks.size());
+		for (List<String> chunk : chunks) {
+			futures.add(CompletableFuture.supplyAsync(() -> queryChunk(chunk, queryTemplate, parser, permits), ScraperExecutor.executor()));
+		}
+
+		List<T> results = new ArrayList<>(chunks.size());
+		Set<String> failedDois = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+		for (int i = 0; i < chunks.size(); i++) {
+			T result = futures.get(i).join();
+			if (result == null) {
+				failedDois.addAll(chunks.get(i));
+			} else {
+				results.add(result);
+			}
+		}
+		return new QueryResult<>(results, failedDois);
+	}
+
+	// returns null if the chunk failed after the last attempt
+	private <T> T queryChunk(List<String> chunk, String queryTemplate, ResponseParser<T> parser, Semaphore permits) {
+		JsonObject body = new JsonObject();
+		body.addProperty("query", queryTemplate.formatted(DataciteMentionRepository.joinCollection(chunk)));
+		String bodyString = body.toString();
+
+		try {
+			permits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failedChunkHandler.accept(new RuntimeException(e));
+			return null;
+		}
+		try {
+			for (int attempt = 1; ; attempt++) {
+				try {
+					return postAndParse(bodyString, parser);
+				} catch (RuntimeException e) {
+					if (attempt >= MAX_ATTEMPTS) {
+						LOGGER.warn("Querying DataCite for {} DOIs failed after {} attempts", chunk.size(), attempt);
+						failedChunkHandler.accept(e);
+						return null;
+					}
+					Thread.sleep(firstRetryDelayMillis << (attempt - 1));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failedChunkHandler.accept(new RuntimeException(e));
+			return null;
+		} finally {
+			permits.release();
+		}
+	}
+
+	private <T> T postAndParse(String body, ResponseParser<T> parser) {
+		try (InputStream response = post.apply(body)) {
+			return parser.parse(new InputStreamReader(response, StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
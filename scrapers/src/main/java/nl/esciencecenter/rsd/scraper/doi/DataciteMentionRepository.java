@@ -9,10 +9,15 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import nl.esciencecenter.rsd.scraper.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.URI;
 import java.time.Instant;
 import java.time.ZonedDateTime;
@@ -20,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -110,6 +116,16 @@ public class DataciteMentionRepository implements MentionRepository {
 		dataciteTextTypeMap.put("Report", MentionType.report);
 	}
 
+	private final DataciteGraphqlClient client;
+
+	public DataciteMentionRepository() {
+		this(new DataciteGraphqlClient());
+	}
+
+	DataciteMentionRepository(DataciteGraphqlClient client) {
+		this.client = client;
+	}
+
 	// "10.5281/zenodo.1408128","10.1186/s12859-018-2165-7"
 	static String joinCollection(Collection<String> dois) {
 		return dois.stream()
@@ -117,11 +133,56 @@ public class DataciteMentionRepository implements MentionRepository {
 	}
 
 	static Collection<MentionRecord> jsonStringToUniqueMentions(String json) {
-		JsonObject root = JsonParser.parseString(json).getAsJsonObject();
-		JsonArray worksJson = root.getAsJsonObject("data").getAsJsonObject("works").getAsJsonArray("nodes");
+		try {
+			return jsonToUniqueMentions(new StringReader(json));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	// the response is read one work at a time, so that only a single work is kept as a JSON tree
+	static Collection<MentionRecord> jsonToUniqueMentions(Reader json) throws IOException {
+		JsonReader reader = new JsonReader(json);
+		Collection<MentionRecord> mentions = null;
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			if (reader.nextName().equals("data") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+				reader.beginObject();
+				while (reader.hasNext()) {
+					if (reader.nextName().equals("works") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+						reader.beginObject();
+						while (reader.hasNext()) {
+							if (reader.nextName().equals("nodes")) {
+								mentions = worksToUniqueMentions(reader);
+							} else {
+								reader.skipValue();
+							}
+						}
+						reader.endObject();
+					} else {
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		if (mentions == null) {
+			throw new RuntimeException("No works found in the response of DataCite");
+		}
+		return mentions;
+	}
+
+	private static Collection<MentionRecord> worksToUniqueMentions(JsonReader reader) throws IOException {
 		Collection<MentionRecord> mentions = new ArrayList<>();
 		Set<String> usedDois = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
-		for (JsonElement work : worksJson) {
+		reader.beginArray();
+		while (reader.hasNext()) {
+			JsonElement work = JsonParser.parseReader(reader);
 			try {
 				// Sometimes, DataCite gives back two of the same results for one DOI, e.g. for 10.4122/1.1000000817,
 				// so we need to only add it once, otherwise we cannot POST it to the backend
@@ -132,9 +193,10 @@ public class DataciteMentionRepository implements MentionRepository {
 				mentions.add(parsedMention);
 			} catch (RuntimeException e) {
 				// TODO: fix exeption type
-				LOGGER.warn("Failed to scrape a DataCite mention with data {} ", work, e);				
+				LOGGER.warn("Failed to scrape a DataCite mention with data {} ", work, e);
 			}
 		}
+		reader.endArray();
 		return mentions;
 	}
 
@@ -206,16 +268,40 @@ public class DataciteMentionRepository implements MentionRepository {
 		throw new UnsupportedOperationException();
 	}
 
+	/**
+	 * Scrapes the mentions of the DOIs from DataCite, see {@link DataciteGraphqlClient} for how the DOIs are split
+	 * over requests. The DOIs of chunks that failed are left out of the result.
+	 */
 	@Override
 	public Collection<MentionRecord> mentionData(Collection<String> dois) {
 		if (dois.isEmpty()) {
 			return Collections.emptyList();
 		}
 
-		JsonObject body = new JsonObject();
-		body.addProperty("query", QUERY_UNFORMATTED.formatted(joinCollection(dois)));
-		String responseJson = Utils.post("https://api.datacite.org/graphql", body.toString(), "Content-Type", "application/json");
-		return jsonStringToUniqueMentions(responseJson);
+		return mentionDataReportingFailures(dois).results();
+	}
+
+	/**
+	 * Scrapes the mentions of the DOIs from DataCite, like {@link #mentionData(Collection)}.
+	 *
+	 * @return the mentions and the DOIs of the chunks that failed
+	 */
+	DataciteGraphqlClient.QueryResult<MentionRecord> mentionDataReportingFailures(Collection<String> dois) {
+		DataciteGraphqlClient.QueryResult<Collection<MentionRecord>> mentionsPerChunk = client.queryReportingFailures(dois, QUERY_UNFORMATTED, DataciteMentionRepository::jsonToUniqueMentions);
+		return new DataciteGraphqlClient.QueryResult<>(mergeUniqueMentions(mentionsPerChunk.results()), mentionsPerChunk.failedDois());
+	}
+
+	static List<MentionRecord> mergeUniqueMentions(Collection<Collection<MentionRecord>> mentionsPerChunk) {
+		List<MentionRecord> mentions = new ArrayList<>();
+		Set<String> usedDois = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+		for (Collection<MentionRecord> chunk : mentionsPerChunk) {
+			for (MentionRecord mention : chunk) {
+				if (usedDois.add(mention.doi)) {
+					mentions.add(mention);
+				}
+			}
+		}
+		return mentions;
 	}
 
 	@Override
@@ -0,0 +1,210 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.doi;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import nl.esciencecenter.rsd.scraper.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves the registration agency (e.g. DataCite or Crossref) of DOIs. As the registration agency of a DOI never
+ * changes, it is kept in memory and in the doi_registration_agency table, so that https://doi.org/doiRA/ is only asked
+ * about DOIs that were not resolved before.
+ */
+public class DoiRegistrationAgencyRepository {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DoiRegistrationAgencyRepository.class);
+
+	static final String DOI_RA_URL = "https://doi.org/doiRA/";
+	// the maximum length of the DOIs in one URL, which keeps the URLs well below the length limits of doi.org and of
+	// the reverse proxy in front of the backend
+	static final int MAX_ENCODED_DOIS_LENGTH = 1800;
+	// keys are the DOIs in lower case, as DOIs are case-insensitive
+	private static final Map<String, String> KNOWN_AGENCIES = new ConcurrentHashMap<>();
+
+	private final String backendUrl;
+
+	public DoiRegistrationAgencyRepository(String backendUrl) {
+		this.backendUrl = Objects.requireNonNull(backendUrl);
+	}
+
+	/**
+	 * Resolves the registration agencies of the DOIs, first from memory, then from the backend and only then from
+	 * doi.org. A chunk of DOIs that fails to resolve is saved in the backend log, the other chunks are still resolved.
+	 *
+	 * @param dois the DOIs
+	 * @return the registration agency per DOI, for the DOIs that could be resolved
+	 */
+	public Map<String, String> registrationAgencies(Collection<String> dois) {
+		Map<String, String> agencyPerDoi = new HashMap<>();
+		Collection<String> unknownDois = new ArrayList<>();
+		for (String doi : dois) {
+			String agency = KNOWN_AGENCIES.get(doi.toLowerCase(Locale.ROOT));
+			if (agency == null) {
+				unknownDois.add(doi);
+			} else {
+				agencyPerDoi.put(doi, agency);
+			}
+		}
+
+		if (!unknownDois.isEmpty()) {
+			resolve(unknownDois, this::loadFromBackend, agencyPerDoi);
+		}
+
+		unknownDois.removeIf(doi -> KNOWN_AGENCIES.containsKey(doi.toLowerCase(Locale.ROOT)));
+		if (!unknownDois.isEmpty()) {
+			Map<String, String> newAgencies = new HashMap<>();
+			resolve(unknownDois, this::loadFromDoiOrg, newAgencies);
+			agencyPerDoi.putAll(newAgencies);
+			saveInBackend(newAgencies);
+		}
+
+		return agencyPerDoi;
+	}
+
+	@FunctionalInterface
+	private interface ChunkLoader {
+		Map<String, String> load(List<String> dois) throws Exception;
+	}
+
+	private static void resolve(Collection<String> dois, ChunkLoader loader, Map<String, String> agenciesToFill) {
+		// the DOIs are matched case-insensitively, but returned as they were asked for
+		Map<String, String> askedDoiPerDoi = new HashMap<>();
+		for (String doi : dois) {
+			askedDoiPerDoi.put(doi.toLowerCase(Locale.ROOT), doi);
+		}
+
+		for (List<String> chunk : chunksByEncodedLength(dois, MAX_ENCODED_DOIS_LENGTH)) {
+			Map<String, String> agencies;
+			try {
+				agencies = loader.load(chunk);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				Utils.saveExceptionInDatabase("DOI mention scraper", "mention", null, e);
+				return;
+			} catch (Exception e) {
+				RuntimeException exceptionWithMessage = new RuntimeException("Failed to resolve the registration agency of %d DOIs".formatted(chunk.size()), e);
+				Utils.saveExceptionInDatabase("DOI mention scraper", "mention", null, exceptionWithMessage);
+				continue;
+			}
+
+			agencies.forEach((doi, agency) -> {
+				String lowerCaseDoi = doi.toLowerCase(Locale.ROOT);
+				KNOWN_AGENCIES.put(lowerCaseDoi, agency);
+				agenciesToFill.put(askedDoiPerDoi.getOrDefault(lowerCaseDoi, doi), agency);
+			});
+		}
+	}
+
+	private Map<String, String> loadFromBackend(List<String> dois) {
+		String quotedDois = dois.stream()
+				.map(doi -> '"' + doi + '"')
+				.collect(Collectors.joining(","));
+		String response = Utils.getAsAdmin(backendUrl + "/doi_registration_agency?select=doi,registration_agency&doi=in.(" + Utils.urlEncode(quotedDois) + ")");
+
+		Map<String, String> result = new HashMap<>();
+		for (JsonElement element : JsonParser.parseString(response).getAsJsonArray()) {
+			JsonObject row = element.getAsJsonObject();
+			result.put(row.getAsJsonPrimitive("doi").getAsString(), row.getAsJsonPrimitive("registration_agency").getAsString());
+		}
+		return result;
+	}
+
+	private Map<String, String> loadFromDoiOrg(List<String> dois) throws Exception {
+		String doisJoined = dois.stream()
+				.map(Utils::urlEncode)
+				.collect(Collectors.joining(","));
+		return parseRegistrationAgencies(Utils.get(DOI_RA_URL + doisJoined));
+	}
+
+	private void saveInBackend(Map<String, String> agencyPerDoi) {
+		if (agencyPerDoi.isEmpty()) {
+			return;
+		}
+
+		String now = Instant.now().toString();
+		JsonArray rows = new JsonArray(agencyPerDoi.size());
+		agencyPerDoi.forEach((doi, agency) -> {
+			JsonObject row = new JsonObject();
+			row.addProperty("doi", doi);
+			row.addProperty("registration_agency", agency);
+			row.addProperty("resolved_at", now);
+			rows.add(row);
+		});
+
+		try {
+			Utils.postAsAdmin(backendUrl + "/doi_registration_agency", rows.toString(), "Prefer", "resolution=merge-duplicates");
+		} catch (RuntimeException e) {
+			// they are still known in memory, and will be resolved again by a next run if needed
+			LOGGER.warn("Failed to save the registration agencies of {} DOIs", agencyPerDoi.size(), e);
+		}
+	}
+
+	/**
+	 * Parses a response of https://doi.org/doiRA/. DOIs that have a status instead of a registration agency (e.g.
+	 * invalid DOIs or DOIs that do not exist (yet)) are left out, so that they are not remembered.
+	 *
+	 * @param json the response
+	 * @return the registration agency per DOI
+	 */
+	static Map<String, String> parseRegistrationAgencies(String json) {
+		JsonArray sourcesArray = JsonParser.parseString(json).getAsJsonArray();
+		Map<String, String> result = new HashMap<>();
+		for (JsonElement jsonElement : sourcesArray) {
+			JsonObject jsonPair = jsonElement.getAsJsonObject();
+			String doi = jsonPair.getAsJsonPrimitive("DOI").getAsString();
+			JsonElement jsonAgency = jsonPair.get("RA");
+			if (jsonAgency == null) {
+				LOGGER.debug("No registration agency for DOI {}, status: {}", doi, jsonPair.get("status"));
+			} else {
+				result.put(doi, jsonAgency.getAsString());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Splits the DOIs into chunks, such that the URL encoded DOIs of a chunk joined together stay within the maximum
+	 * length. Every DOI is counted with 10 extra characters, for the separators and quotes around it.
+	 *
+	 * @param dois      the DOIs
+	 * @param maxLength the maximum length of the encoded DOIs of a chunk
+	 * @return the chunks, a DOI that is longer than the maximum length on its own gets its own chunk
+	 */
+	static List<List<String>> chunksByEncodedLength(Collection<String> dois, int maxLength) {
+		List<List<String>> chunks = new ArrayList<>();
+		List<String> chunk = new ArrayList<>();
+		int chunkLength = 0;
+		for (String doi : dois) {
+			int doiLength = Utils.urlEncode(doi).length() + 10;
+			if (!chunk.isEmpty() && chunkLength + doiLength > maxLength) {
+				chunks.add(chunk);
+				chunk = new ArrayList<>();
+				chunkLength = 0;
+			}
+			chunk.add(doi);
+			chunkLength += doiLength;
+		}
+		if (!chunk.isEmpty()) {
+			chunks.add(chunk);
+		}
+		return chunks;
+	}
+}
@@ -0,0 +1,44 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.doi;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Helpers for lists of DOIs, shared by the clients of the registration agencies.
+ */
+class DoiUtils {
+
+	private DoiUtils() {
+	}
+
+	/**
+	 * Splits the DOIs into chunks, after removing duplicates (ignoring case) and null values.
+	 *
+	 * @param dois      the DOIs
+	 * @param chunkSize the maximum size of a chunk
+	 * @return the chunks
+	 */
+	static List<List<String>> chunks(Collection<String> dois, int chunkSize) {
+		Map<String, String> uniqueDois = new LinkedHashMap<>();
+		for (String doi : dois) {
+			if (doi != null) {
+				uniqueDois.putIfAbsent(doi.toLowerCase(Locale.ROOT), doi);
+			}
+		}
+
+		List<String> doiList = new ArrayList<>(uniqueDois.values());
+		List<List<String>> chunks = new ArrayList<>();
+		for (int start = 0; start < doiList.size(); start += chunkSize) {
+			chunks.add(doiList.subList(start, Math.min(start + chunkSize, doiList.size())));
+		}
+		return chunks;
+	}
+}
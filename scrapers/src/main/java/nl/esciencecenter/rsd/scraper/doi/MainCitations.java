@@ -6,13 +6,21 @@
 package nl.esciencecenter.rsd.scraper.doi;
 
 import nl.esciencecenter.rsd.scraper.Config;
+import nl.esciencecenter.rsd.scraper.ScraperExecutor;
 import nl.esciencecenter.rsd.scraper.Utils;
 
-import java.io.IOException;
+import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,62 +33,131 @@ public class MainCitations {
 	private static final Logger LOGGER = LoggerFactory.getLogger(MainCitations.class);
 	
 	public static void main(String[] args) {
+		run();
+	}
+
+	static final String STAGE_OPENALEX = "OpenAlex";
+	static final String STAGE_SAVING_MENTIONS = "Saving mentions";
+	static final String STAGE_SAVING_CITATIONS = "Saving citations";
+	private static final List<String> STAGES = List.of(STAGE_OPENALEX, STAGE_SAVING_MENTIONS, STAGE_SAVING_CITATIONS);
+
+	public static void run() {
 		
 		LOGGER.info("Start scraping citations");
 
 		long start = System.currentTimeMillis();
 
-		try {
-			// Connect to the database to retrieve the 
-			
-			String backendUrl = Config.backendBaseUrl();
-			PostgrestCitationRepository localCitationRepository = new PostgrestCitationRepository(backendUrl);
-
-			Collection<CitationData> referencePapersToScrape = localCitationRepository.leastRecentlyScrapedCitations(5);
-			OpenAlexCitations openAlexCitations = new OpenAlexCitations();
-			MentionRepository localMentionRepository = new PostgrestMentionRepository(backendUrl);
-			String email = Config.crossrefContactEmail().orElse(null);
-			ZonedDateTime now = ZonedDateTime.now();
+		String backendUrl = Config.backendBaseUrl();
+		PostgrestCitationRepository localCitationRepository = new PostgrestCitationRepository(backendUrl);
+		MentionRepository localMentionRepository = new PostgrestMentionRepository(backendUrl);
+		OpenAlexCitations openAlexCitations = new OpenAlexCitations();
+		String email = Config.crossrefContactEmail().orElse(null);
+		ZonedDateTime now = ZonedDateTime.now();
 
-			for (CitationData citationData : referencePapersToScrape) {
+		Collection<CitationData> referencePapersToScrape;
+		try {
+			referencePapersToScrape = localCitationRepository.leastRecentlyScrapedCitations(Config.maxCitationSourcesToScrape());
+		} catch (RuntimeException e) {
+			Utils.saveExceptionInDatabase("Citation scraper", null, null, e);
+			return;
+		}
 
-				long t1 = System.currentTimeMillis();
+		// the reference papers are scraped concurrently, each one in a pipeline where a page of citations is saved while
+		// the next page is being downloaded
+		Semaphore permits = new Semaphore(Config.citationSourcesConcurrency());
+		StageTimings totalTimings = new StageTimings(STAGES);
+		Collection<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (CitationData citationData : referencePapersToScrape) {
+			futures.add(CompletableFuture.runAsync(() -> {
+				try {
+					permits.acquire();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				try {
+					StageTimings timings = scrapeCitations(citationData, openAlexCitations, email, localMentionRepository, localCitationRepository, backendUrl, now);
+					totalTimings.addAll(timings);
+				} finally {
+					permits.release();
+				}
+			}, ScraperExecutor.executor()));
+		}
+		futures.forEach(CompletableFuture::join);
 
-				LOGGER.info("Scraping for {}", citationData.doi);
+		long time = System.currentTimeMillis() - start;
 
-				Collection<MentionRecord> citingMentions = openAlexCitations.citations(citationData.doi, email, citationData.id);
-				// we don't update mentions that have a DOI in the database with OpenAlex data, as they can already be
-				// scraped through Crossref of DataCite
+		LOGGER.info("Done scraping citations ({} ms.) Summed over {} reference papers: {}", time, referencePapersToScrape.size(), totalTimings);
+	}
 
-				long t2 = System.currentTimeMillis();
+	static StageTimings scrapeCitations(CitationData citationData, OpenAlexCitations openAlexCitations, String email, MentionRepository localMentionRepository, PostgrestCitationRepository localCitationRepository, String backendUrl, ZonedDateTime now) {
+		LOGGER.info("Scraping for {}", citationData.doi);
+
+		StageTimings timings = new StageTimings(STAGES);
+		Collection<MentionRecord> citingMentions = Collections.synchronizedList(new ArrayList<>());
+		// the pages are saved one after the other, in order, but concurrently with downloading the next pages
+		AtomicReference<CompletableFuture<Void>> savingPages = new AtomicReference<>(CompletableFuture.completedFuture(null));
+		Consumer<Collection<MentionRecord>> savePage = page -> {
+			// we don't update mentions that have a DOI in the database with OpenAlex data, as they can already be
+			// scraped through Crossref of DataCite
+			page.removeIf(mention -> mention.doi != null && citationData.knownDois.contains(mention.doi));
+			savingPages.set(savingPages.get().thenRunAsync(() -> {
+				timings.time(STAGE_SAVING_MENTIONS, () -> localMentionRepository.save(page));
+				citingMentions.addAll(page);
+			}, ScraperExecutor.executor()));
+		};
+
+		String extraFilter = null;
+		boolean fullScrape = isFullRefresh(citationData, now.toLocalDate(), Config.citationFullRefreshDays());
+		if (!fullScrape) {
+			extraFilter = OpenAlexCitations.incrementalFilter(citationData.citationsScrapedAt, Config.openalexApiKey().isPresent(), Config.citationLookbackDays());
+			LOGGER.debug("Only scraping new citations for {}, with filter {}", citationData.doi, extraFilter);
+		}
+		String citationsFilter = extraFilter;
 
-				citingMentions.removeIf(mention -> mention.doi != null && citationData.knownDois.contains(mention.doi));
-				localMentionRepository.save(citingMentions);
+		try {
+			timings.time(STAGE_OPENALEX, () -> openAlexCitations.citationPages(citationData.doi, email, citationData.id, citationsFilter, savePage));
+			savingPages.get().join();
 
-				Collection<UUID> citingMentionIds = new ArrayList<>();
-				for (MentionRecord citingMention : citingMentions) {
+			// mentions that failed to save have no ID, and the same mention can be cited more than once
+			Collection<UUID> citingMentionIds = new LinkedHashSet<>();
+			for (MentionRecord citingMention : citingMentions) {
+				if (citingMention.id != null) {
 					citingMentionIds.add(citingMention.id);
 				}
-
-				long t3 = System.currentTimeMillis();
-
-				localCitationRepository.saveCitations(backendUrl, citationData.id, citingMentionIds, now);
-
-				long t4 = System.currentTimeMillis();
-
-				LOGGER.info("Scraping for {} done. OpenAlex: {} ms. Saving mentions {} ms. Saving citations {} ms. Total {} ms.", citationData.doi, (t2-t1), (t3-t2), (t4-t3), (t4-t1));				
 			}
 
-		} catch (IOException | InterruptedException e) {
-			Utils.saveExceptionInDatabase("Citation scraper", null, null, e);
-			
-			if (e instanceof InterruptedException) { 
-				Thread.currentThread().interrupt();
-			}				
+			timings.time(STAGE_SAVING_CITATIONS, () -> localCitationRepository.saveCitations(backendUrl, citationData.id, citingMentionIds, now, fullScrape));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			Utils.saveExceptionInDatabase("Citation scraper", "mention", citationData.id, e);
+		} catch (Exception e) {
+			Utils.saveExceptionInDatabase("Citation scraper", "mention", citationData.id, e);
 		}
 
-		long time = System.currentTimeMillis() - start;
+		LOGGER.info("Scraping for {} done. {}", citationData.doi, timings);
+		return timings;
+	}
 
-		LOGGER.info("Done scraping citations ({} ms.)", time);
+	/**
+	 * Decides whether all citations of a reference paper are scraped, instead of only the new ones. Citations that are
+	 * not found by an incremental scrape (e.g. works added to OpenAlex long after they were published) are found by a
+	 * full scrape. The days of the full scrapes are spread over the reference papers, so that they do not all happen on
+	 * the same day. A paper whose last full scrape is older than the refresh period, e.g. because it was not scraped on
+	 * its day, gets a full scrape as well.
+	 *
+	 * @param citationData    the reference paper
+	 * @param today           the current date
+	 * @param fullRefreshDays the number of days between full scrapes
+	 * @return true if all citations should be scraped
+	 */
+	static boolean isFullRefresh(CitationData citationData, LocalDate today, int fullRefreshDays) {
+		if (citationData.citationsScrapedAt == null || citationData.citationsFullScrapedAt == null || fullRefreshDays <= 1) {
+			return true;
+		}
+		if (citationData.citationsFullScrapedAt.toLocalDate().isBefore(today.minusDays(fullRefreshDays))) {
+			return true;
+		}
+		return Math.floorMod(citationData.id.hashCode() + today.toEpochDay(), fullRefreshDays) == 0;
 	}
 }
@@ -5,10 +5,6 @@
 
 package nl.esciencecenter.rsd.scraper.doi;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import nl.esciencecenter.rsd.scraper.Config;
 import nl.esciencecenter.rsd.scraper.Utils;
 import org.slf4j.Logger;
@@ -17,16 +13,18 @@ import org.slf4j.LoggerFactory;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.stream.Collectors;
 
 public class MainMentions {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(MainMentions.class);
 	
 	public static void main(String[] args) {
+		run();
+	}
+
+	public static void run() {
 		
 		LOGGER.info("Start scraping mentions");
 		
@@ -42,19 +40,11 @@ public class MainMentions {
 			mentionsFailedToScrape.put(mentionRecord.doi, mentionRecord);
 		}
 
-		String doisJoined = mentionsToScrape.stream()
+		Collection<String> doisToScrape = mentionsToScrape.stream()
 				.map(mention -> mention.doi)
-				.map(Utils::urlEncode)
-				.collect(Collectors.joining(","));
-		String jsonSources = null;
-		try {
-			jsonSources = Utils.get("https://doi.org/doiRA/" + doisJoined);
-		} catch (Exception e) {
-			Utils.saveExceptionInDatabase("DOI mention scraper", "mention", null, e);
-			System.exit(1);
-		}
-
-		Map<String, String> doiToSource = parseJsonSources(jsonSources);
+				.toList();
+		// DOIs of which the registration agency could not be resolved stay in mentionsFailedToScrape
+		Map<String, String> doiToSource = new DoiRegistrationAgencyRepository(Config.backendBaseUrl()).registrationAgencies(doisToScrape);
 
 		Collection<MentionRecord> scrapedMentions = new ArrayList<>();
 		Collection<String> dataciteDois = doiToSource.entrySet()
@@ -76,15 +66,14 @@ public class MainMentions {
 				.filter(doiSourceEntry -> doiSourceEntry.getValue().equals("Crossref"))
 				.map(Map.Entry::getKey)
 				.toList();
-		for (String crossrefDoi : crossrefDois) {
-			try {
-				MentionRecord scrapedMention = new CrossrefMention(crossrefDoi).mentionData();
-				scrapedMentions.add(scrapedMention);
-				mentionsFailedToScrape.remove(scrapedMention.doi);
-			} catch (Exception e) {
-				RuntimeException exceptionWithMessage = new RuntimeException("Failed to scrape a Crossref mention with DOI " + crossrefDoi, e);
-				Utils.saveExceptionInDatabase("Crossref mention scraper", "mention", null, exceptionWithMessage);
+		try {
+			Collection<MentionRecord> crossrefMentions = new CrossrefMentionRepository().mentionData(crossrefDois);
+			for (MentionRecord crossrefMention : crossrefMentions) {
+				mentionsFailedToScrape.remove(crossrefMention.doi);
+				scrapedMentions.add(crossrefMention);
 			}
+		} catch (RuntimeException e) {
+			Utils.saveExceptionInDatabase("Crossref mention scraper", "mention", null, e);
 		}
 
 		String email = Config.crossrefContactEmail().orElse(null);
@@ -121,22 +110,4 @@ public class MainMentions {
 
 		LOGGER.info("Done scraping mentions ({} ms.)", time);
 	}
-
-	static Map<String, String> parseJsonSources(String jsonSources) {
-		JsonArray sourcesArray = JsonParser.parseString(jsonSources).getAsJsonArray();
-		Map<String, String> result = new HashMap<>();
-		for (JsonElement jsonElement : sourcesArray) {
-			JsonObject jsonPair = jsonElement.getAsJsonObject();
-			String doi = jsonPair.getAsJsonPrimitive("DOI").getAsString();
-			JsonElement jsonStatus = jsonPair.get("status");
-			if (jsonStatus == null) {
-				String source = jsonPair.getAsJsonPrimitive("RA").getAsString();
-				result.put(doi, source);
-			} else {
-				String status = jsonStatus.getAsString();
-				result.put(doi, status);
-			}
-		}
-		return result;
-	}
 }
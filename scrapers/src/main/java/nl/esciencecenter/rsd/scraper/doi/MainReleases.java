@@ -25,6 +25,10 @@ public class MainReleases {
 	private static final Logger LOGGER = LoggerFactory.getLogger(MainReleases.class);
 	
 	public static void main(String[] args) {
+		run();
+	}
+
+	public static void run() {
 		
 		LOGGER.info("Start scraping releases");
 		
@@ -38,7 +42,15 @@ public class MainReleases {
 				.map(releaseData -> releaseData.conceptDoi)
 				.toList();
 
-		Map<String, Collection<MentionRecord>> scrapedReleasesPerConceptDoi = new DataCiteReleaseRepository().getVersionedDois(conceptDoisToScrape);
+		DataCiteReleaseRepository.VersionedDois versionedDois = new DataCiteReleaseRepository().getVersionedDois(conceptDoisToScrape);
+		Map<String, Collection<MentionRecord>> scrapedReleasesPerConceptDoi = versionedDois.releasesPerConceptDoi();
+		if (!versionedDois.failedConceptDois().isEmpty()) {
+			// these releases are not marked as scraped, so that they are the first to be scraped again in the next run
+			LOGGER.warn("Failed to scrape the versions of {} concept DOIs", versionedDois.failedConceptDois().size());
+			releasesToScrape = releasesToScrape.stream()
+					.filter(release -> !versionedDois.failedConceptDois().contains(release.conceptDoi))
+					.toList();
+		}
 
 		MentionRepository localMentionRepository = new PostgrestMentionRepository(Config.backendBaseUrl());
 		Collection<MentionRecord> allMentions = scrapedReleasesPerConceptDoi.values().stream()
@@ -9,25 +9,50 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import nl.esciencecenter.rsd.scraper.Config;
+import nl.esciencecenter.rsd.scraper.RsdResponseException;
+import nl.esciencecenter.rsd.scraper.ScraperExecutor;
 import nl.esciencecenter.rsd.scraper.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 class OpenAlexCitations {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(OpenAlexCitations.class);
+
 	static final String DOI_FILTER_URL_UNFORMATTED = "https://api.openalex.org/works?filter=doi:%s";
+	// the minimal number of citations to follow multiple cursors for, below this one cursor is fast enough
+	static final int SHARDING_THRESHOLD = 1000;
+	// the members of a work that are read by parseCitationAsMention
+	private static final Set<String> USED_WORK_MEMBERS = Set.of("id", "doi", "title", "locations", "authorships", "publication_year", "type_crossref", "ids");
 
 	public Collection<MentionRecord> mentionData(Collection<String> dataciteDois, String email) throws IOException, InterruptedException {
 		String filter = dataciteDois.stream().filter(Objects::nonNull).collect(Collectors.joining("|"));
@@ -61,16 +86,74 @@ class OpenAlexCitations {
 	}
 
 	public Collection<MentionRecord> citations(String doi, String email, UUID id) throws IOException, InterruptedException {
+		Collection<MentionRecord> citations = new ArrayList<>();
+		citationPages(doi, email, id, null, citations::addAll);
+		return citations;
+	}
+
+	/**
+	 * Scrapes the citations of a DOI, handing over every page of citations as soon as it is parsed, so that the caller
+	 * can process a page while the next one is being downloaded.
+	 *
+	 * @param doi          the cited DOI
+	 * @param email        the contact email for the polite pool of OpenAlex, can be null
+	 * @param id           the ID of the cited mention, used when logging errors
+	 * @param extraFilter  an extra filter on the citing works, see {@link #incrementalFilter}, or null for all of them
+	 * @param pageConsumer called with the citations of every page, in order
+	 */
+	public void citationPages(String doi, String email, UUID id, String extraFilter, Consumer<Collection<MentionRecord>> pageConsumer) throws IOException, InterruptedException {
 
 		String doiUrlEncoded = Utils.urlEncode(doi);
 		String worksUri = DOI_FILTER_URL_UNFORMATTED.formatted(doiUrlEncoded);
 
 		Optional<String> optionalCitationsUri = citationsUri(worksUri, email);
 		if (optionalCitationsUri.isEmpty()) {
-			return Collections.emptyList();
+			return;
+		}
+
+		String citationsUri = optionalCitationsUri.get();
+		if (extraFilter != null) {
+			citationsUri = withExtraFilter(citationsUri, extraFilter);
+		}
+		String apiKey = Config.openalexApiKey().orElse(null);
+		if (apiKey != null) {
+			citationsUri += (citationsUri.contains("?") ? "&" : "?") + "api_key=" + Utils.urlEncode(apiKey);
+		}
+
+		scrapeCitations(citationsUri, email, id, pageConsumer);
+	}
+
+	/**
+	 * Creates a filter for the citing works that were added since the last scrape. With an API key, the premium filter
+	 * on the creation date in OpenAlex is used. Without one, only the publication date can be used, so the works
+	 * published since some days before the last scrape are requested. Works that were added to OpenAlex later than
+	 * that are found by the next full scrape.
+	 *
+	 * @param lastScrapedAt when the citations were last scraped
+	 * @param premium       whether an OpenAlex API key is available
+	 * @param lookbackDays  the number of days before the last scrape to filter the publication date on, without API key
+	 * @return the filter, to be passed to {@link #citationPages}
+	 */
+	static String incrementalFilter(ZonedDateTime lastScrapedAt, boolean premium, int lookbackDays) {
+		LocalDate lastScrapedDay = lastScrapedAt.withZoneSameInstant(ZoneOffset.UTC).toLocalDate();
+		if (premium) {
+			// a day of overlap, as the filter only has a precision of days
+			return "from_created_date:" + lastScrapedDay.minusDays(1);
 		}
+		return "from_publication_date:" + lastScrapedDay.minusDays(lookbackDays);
+	}
 
-		return scrapeCitations(optionalCitationsUri.get(), email, id);
+	static String withExtraFilter(String uri, String filter) {
+		// the cited_by_api_url of OpenAlex ends with its filter, e.g. https://api.openalex.org/works?filter=cites:W123
+		int filterStart = uri.indexOf("filter=");
+		if (filterStart == -1) {
+			return uri + (uri.contains("?") ? "&" : "?") + "filter=" + filter;
+		}
+		int filterEnd = uri.indexOf('&', filterStart);
+		if (filterEnd == -1) {
+			return uri + "," + filter;
+		}
+		return uri.substring(0, filterEnd) + "," + filter + uri.substring(filterEnd);
 	}
 
 	static Optional<String> citationsUri(String worksUri, String email) throws IOException, InterruptedException {
@@ -102,45 +185,169 @@ class OpenAlexCitations {
 		return Optional.of(citationsUri);
 	}
 
+	/**
+	 * Scrapes the citations, handing over every page to the consumer. If there are many citations, they are split into
+	 * shards by publication year, of which the cursors are followed concurrently. The number of concurrent requests to
+	 * OpenAlex is still limited by the HTTP transport. Works are deduplicated on their OpenAlex ID and the consumer is
+	 * never called concurrently.
+	 */
+	static void scrapeCitations(String citationsUri, String email, UUID id, Consumer<Collection<MentionRecord>> pageConsumer) throws IOException, InterruptedException {
+		List<String> shardFilters = shardFilters(citationsUri, email);
+		if (shardFilters.size() <= 1) {
+			scrapeCursor(citationsUri, email, id, pageConsumer);
+			return;
+		}
+
+		Set<String> seenOpenAlexIds = ConcurrentHashMap.newKeySet();
+		Object consumerLock = new Object();
+		Consumer<Collection<MentionRecord>> shardPageConsumer = page -> {
+			page.removeIf(mention -> !seenOpenAlexIds.add(mention.externalId));
+			synchronized (consumerLock) {
+				pageConsumer.accept(page);
+			}
+		};
+
+		List<CompletableFuture<Void>> futures = new ArrayList<>(shardFilters.size());
+		for (String shardFilter : shardFilters) {
+			String shardUri = withExtraFilter(citationsUri, shardFilter);
+			futures.add(CompletableFuture.runAsync(() -> {
+				try {
+					scrapeCursor(shardUri, email, id, shardPageConsumer);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				}
+			}, ScraperExecutor.executor()));
+		}
+
+		try {
+			CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+				throw uncheckedIOException.getCause();
+			}
+			throw e;
+		}
+	}
+
+	// returns no filters if the citations should not be sharded, e.g. when there are only a few
+	private static List<String> shardFilters(String citationsUri, String email) throws InterruptedException {
+		String groupByUri = citationsUri + (citationsUri.contains("?") ? "&" : "?") + "group_by=publication_year";
+		try {
+			String response;
+			if (email == null || email.isBlank()) {
+				response = Utils.get(groupByUri);
+			} else {
+				response = Utils.get(groupByUri, "User-Agent", "mailto:" + email);
+			}
+			return parseShardFilters(response, SHARDING_THRESHOLD);
+		} catch (IOException | RsdResponseException | RuntimeException e) {
+			LOGGER.warn("Failed to group the citations of {} by publication year, not sharding them", citationsUri, e);
+			return List.of();
+		}
+	}
+
+	/**
+	 * Creates disjoint filters on publication year that together cover all citations, from a group_by=publication_year
+	 * response. If the counts of the groups do not add up to the total count (e.g. because there are works without a
+	 * publication year), no filters are returned, as sharding would then miss citations.
+	 *
+	 * @param json      the response of the group_by query
+	 * @param threshold the minimal number of citations to shard
+	 * @return the filters, or an empty list if the citations should not be sharded
+	 */
+	static List<String> parseShardFilters(String json, int threshold) {
+		JsonObject tree = JsonParser.parseString(json).getAsJsonObject();
+		long total = tree.getAsJsonObject("meta").getAsJsonPrimitive("count").getAsLong();
+		if (total < threshold) {
+			return List.of();
+		}
+
+		List<String> filters = new ArrayList<>();
+		long sum = 0;
+		for (JsonElement group : tree.getAsJsonArray("group_by")) {
+			JsonObject groupObject = group.getAsJsonObject();
+			String year = groupObject.getAsJsonPrimitive("key").getAsString();
+			if (!year.matches("\\d+")) {
+				return List.of();
+			}
+			sum += groupObject.getAsJsonPrimitive("count").getAsLong();
+			filters.add("publication_year:" + year);
+		}
+
+		if (sum != total) {
+			LOGGER.debug("The citations per publication year add up to {} instead of {}, not sharding them", sum, total);
+			return List.of();
+		}
+		return filters;
+	}
+
 	// we use cursor paging as that will always work
 	// https://docs.openalex.org/how-to-use-the-api/get-lists-of-entities/paging#cursor-paging
-	static Collection<MentionRecord> scrapeCitations(String citationsUri, String email, UUID id) throws IOException, InterruptedException {
+	private static void scrapeCursor(String citationsUri, String email, UUID id, Consumer<Collection<MentionRecord>> pageConsumer) throws IOException, InterruptedException {
 		final int perPage = 200;
 		String cursor = "*";
 
-		Collection<MentionRecord> citations = new ArrayList<>();
 		while (cursor != null) {
-			HttpResponse<String> response;
+			HttpResponse<InputStream> response;
 			String citationsUriWithCursor = citationsUri + "&per-page=" + perPage + "&cursor=" + cursor;
 			if (email == null || email.isBlank()) {
-				response = Utils.getAsHttpResponse(citationsUriWithCursor);
+				response = Utils.getAsInputStreamResponse(citationsUriWithCursor);
 			} else {
-				response = Utils.getAsHttpResponse(citationsUriWithCursor, "User-Agent", "mailto:" + email);
+				response = Utils.getAsInputStreamResponse(citationsUriWithCursor, "User-Agent", "mailto:" + email);
 			}
-			JsonObject tree = JsonParser.parseString(response.body()).getAsJsonObject();
 
-			cursor = Utils.stringOrNull(tree
-					.getAsJsonObject("meta")
-					.get("next_cursor")
-			);
+			try (InputStream body = response.body()) {
+				if (response.statusCode() >= 300) {
+					throw new RuntimeException(new RsdResponseException(response.statusCode(), response.uri(), Utils.bodyAsString(body), "Unexpected response"));
+				}
 
-			JsonArray citationsArray = tree
-					.getAsJsonArray("results");
+				Collection<MentionRecord> citations = new ArrayList<>();
+				cursor = parseCitationsPage(new InputStreamReader(body, StandardCharsets.UTF_8), Instant.now(), citations,
+						e -> Utils.saveExceptionInDatabase("Citation scraper", "mention", id, e));
+				pageConsumer.accept(citations);
+			}
+		}
+	}
 
-			Instant now = Instant.now();
-			for (JsonElement citation : citationsArray) {
-				MentionRecord citationAsMention;
-				try {
-					citationAsMention = parseCitationAsMention(citation, now);
-				} catch (RuntimeException e) {
-					Utils.saveExceptionInDatabase("Citation scraper", "mention", id, e);
-					continue;
+	/**
+	 * Parses one page of works while it is being read. Only the members of the works that are used for the mentions are
+	 * kept, the other values (like the abstract and the referenced works, which make up most of a response) are skipped.
+	 *
+	 * @param json                   the page of works
+	 * @param scrapedAt              the time of scraping, set on all mentions
+	 * @param citationsToFill        where the parsed mentions are added to
+	 * @param invalidCitationHandler called for every work that cannot be parsed as a mention
+	 * @return the cursor for the next page, or null if this is the last page
+	 */
+	static String parseCitationsPage(Reader json, Instant scrapedAt, Collection<MentionRecord> citationsToFill, Consumer<RuntimeException> invalidCitationHandler) throws IOException {
+		String nextCursor = null;
+		JsonReader reader = new JsonReader(json);
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "meta" -> nextCursor = Utils.stringOrNull(Utils.readSelectedMembers(reader, Set.of("next_cursor")).get("next_cursor"));
+				case "results" -> {
+					reader.beginArray();
+					while (reader.hasNext()) {
+						JsonObject citation = Utils.readSelectedMembers(reader, USED_WORK_MEMBERS);
+						try {
+							citationsToFill.add(parseCitationAsMention(citation, scrapedAt));
+						} catch (RuntimeException e) {
+							invalidCitationHandler.accept(e);
+						}
+					}
+					reader.endArray();
 				}
-				citations.add(citationAsMention);
+				default -> reader.skipValue();
 			}
 		}
+		reader.endObject();
 
-		return citations;
+		return nextCursor;
 	}
 
 	static MentionRecord parseCitationAsMention(JsonElement element, Instant scrapedAt) {
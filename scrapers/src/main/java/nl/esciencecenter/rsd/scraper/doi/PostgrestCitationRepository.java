@@ -9,6 +9,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import nl.esciencecenter.rsd.scraper.ScraperMetrics;
 import nl.esciencecenter.rsd.scraper.Utils;
 
 import java.time.ZonedDateTime;
@@ -45,9 +46,14 @@ public class PostgrestCitationRepository {
 		return parseJson(data);
 	}
 
-	public void saveCitations(String backendUrl, UUID idCitedMention, Collection<UUID> citingMentions, ZonedDateTime scrapedAt) {
-		String jsonPatch = "{\"citations_scraped_at\": \"%s\"}".formatted(scrapedAt.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
-		Utils.patchAsAdmin(backendUrl + "/mention?id=eq." + idCitedMention.toString(), jsonPatch);
+	public void saveCitations(String backendUrl, UUID idCitedMention, Collection<UUID> citingMentions, ZonedDateTime scrapedAt, boolean fullScrape) {
+		JsonObject jsonPatch = new JsonObject();
+		String scrapedAtString = scrapedAt.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+		jsonPatch.addProperty("citations_scraped_at", scrapedAtString);
+		if (fullScrape) {
+			jsonPatch.addProperty("citations_full_scraped_at", scrapedAtString);
+		}
+		Utils.patchAsAdmin(backendUrl + "/mention?id=eq." + idCitedMention.toString(), jsonPatch.toString());
 
 		JsonArray jsonArray = new JsonArray();
 
@@ -72,9 +78,10 @@ public class PostgrestCitationRepository {
 		String uri = backendUrl + "/citation_for_mention";
 
 		Utils.postAsAdmin(uri, jsonArray.toString(), "Prefer", "resolution=merge-duplicates");
+		ScraperMetrics.instance().countItems("Citation scraper", ScraperMetrics.ItemOutcome.SCRAPED, 1);
 	}
 
-	private Collection<CitationData> parseJson(String data) {
+	static Collection<CitationData> parseJson(String data) {
 		
 		JsonArray array = JsonParser.parseString(data).getAsJsonArray();
 		Collection<CitationData> result = new ArrayList<>();
@@ -91,7 +98,9 @@ public class PostgrestCitationRepository {
 				knownDois.add(element.getAsString());
 			}
 
-			result.add(new CitationData(id, doi, knownDois));
+			String citationsScrapedAt = Utils.stringOrNull(jsonObject.get("citations_scraped_at"));
+			String citationsFullScrapedAt = Utils.stringOrNull(jsonObject.get("citations_full_scraped_at"));
+			result.add(new CitationData(id, doi, knownDois, citationsScrapedAt == null ? null : ZonedDateTime.parse(citationsScrapedAt), citationsFullScrapedAt == null ? null : ZonedDateTime.parse(citationsFullScrapedAt)));
 		}
 
 		return result;
@@ -10,18 +10,29 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSerializer;
 import com.google.gson.reflect.TypeToken;
+import nl.esciencecenter.rsd.scraper.ScraperMetrics;
 import nl.esciencecenter.rsd.scraper.Utils;
 
 import java.net.URI;
 import java.time.Instant;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,10 +41,27 @@ public class PostgrestMentionRepository implements MentionRepository {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(PostgrestMentionRepository.class);
 	
+	static final int BATCH_SIZE = 500;
+
 	private final String backendUrl;
+	private final BiFunction<String, String, String> bulkUpsert;
+	private final BiConsumer<MentionRecord, RuntimeException> failedMentionHandler;
 
 	public PostgrestMentionRepository(String backendUrl) {
 		this.backendUrl = Objects.requireNonNull(backendUrl);
+		this.bulkUpsert = (uri, json) -> Utils.postAsAdmin(uri, json, "Prefer", "resolution=merge-duplicates,return=representation");
+		this.failedMentionHandler = this::saveFailedMention;
+	}
+
+	/**
+	 * @param backendUrl           the URL of the backend
+	 * @param bulkUpsert           posts a JSON array of mentions to a URI and returns the saved mentions
+	 * @param failedMentionHandler called for every mention that cannot be saved
+	 */
+	PostgrestMentionRepository(String backendUrl, BiFunction<String, String, String> bulkUpsert, BiConsumer<MentionRecord, RuntimeException> failedMentionHandler) {
+		this.backendUrl = Objects.requireNonNull(backendUrl);
+		this.bulkUpsert = bulkUpsert;
+		this.failedMentionHandler = failedMentionHandler;
 	}
 
 	static Collection<MentionRecord> parseJson(String data) {
@@ -76,56 +104,113 @@ public class PostgrestMentionRepository implements MentionRepository {
 
 		LOGGER.info("Will save {} mentions", mentions.size());
 
+		// a bulk upsert cannot update the same row twice, so mentions with the same key are saved once
+		Map<String, List<MentionRecord>> mentionsPerKey = new LinkedHashMap<>();
+		// mentions without a DOI and without an external ID have no key, they never conflict and are all different
+		List<MentionRecord> mentionsWithoutKey = new ArrayList<>();
 		for (MentionRecord mention : mentions) {
-			String scrapedMentionJson = gson.toJson(mention);
-			String onConflictFilter;
+			if (mention.doi == null && mention.externalId == null) {
+				mentionsWithoutKey.add(mention);
+			} else {
+				mentionsPerKey.computeIfAbsent(conflictKey(mention.doi, mention.externalId, mention.source), key -> new ArrayList<>()).add(mention);
+			}
+		}
 
+		List<MentionRecord> mentionsWithDoi = new ArrayList<>();
+		List<MentionRecord> mentionsWithoutDoi = new ArrayList<>();
+		for (List<MentionRecord> sameMentions : mentionsPerKey.values()) {
+			MentionRecord mention = sameMentions.getLast();
 			if (mention.doi != null) {
-				onConflictFilter = "doi";
+				mentionsWithDoi.add(mention);
 			} else {
-				onConflictFilter = "external_id,source";
+				mentionsWithoutDoi.add(mention);
 			}
+		}
 
-			String uri = "%s/mention?on_conflict=%s&select=id".formatted(backendUrl, onConflictFilter);
-			String response;
+		for (int start = 0; start < mentionsWithDoi.size(); start += BATCH_SIZE) {
+			saveBatch(mentionsWithDoi.subList(start, Math.min(start + BATCH_SIZE, mentionsWithDoi.size())), "doi", gson);
+		}
+		for (int start = 0; start < mentionsWithoutDoi.size(); start += BATCH_SIZE) {
+			saveBatch(mentionsWithoutDoi.subList(start, Math.min(start + BATCH_SIZE, mentionsWithoutDoi.size())), "external_id,source", gson);
+		}
+		// one per request, as the returned IDs cannot be matched to them by key
+		for (MentionRecord mention : mentionsWithoutKey) {
+			saveBatch(List.of(mention), "external_id,source", gson);
+		}
 
-			try {
-				LOGGER.debug("Saving mention: {} / {} / {}", mention.doi, mention.externalId, mention.source);
-				response = Utils.postAsAdmin(uri, scrapedMentionJson, "Prefer", "resolution=merge-duplicates,return=representation");
-				
-				JsonArray responseAsArray = JsonParser.parseString(response).getAsJsonArray();
-				// Used in MainCitations, do not remove
-				mention.id = UUID.fromString(responseAsArray.get(0).getAsJsonObject().getAsJsonPrimitive("id").getAsString());
-
-			} catch (RuntimeException e) {
-				
-				LOGGER.warn("Failed to save mention: {} / {} / {}", mention.doi, mention.externalId, mention.source, e);
-				
-				if (mention.doi == null) {
-					Utils.saveExceptionInDatabase("Mention scraper", "mention", null, e);
-				} else {
-					// We will try to update the scraped_at field, so that it goes back into the queue for being scraped
-					// Note that this operation in itself may also fail.
-					try {
-						String existingMentionResponse = Utils.getAsAdmin("%s/mention?doi=eq.%s&select=id".formatted(backendUrl, mention.doi));
-						JsonArray array = JsonParser.parseString(existingMentionResponse).getAsJsonArray();
-						String id = array.get(0).getAsJsonObject().getAsJsonPrimitive("id").getAsString();
-						Utils.saveErrorMessageInDatabase(null,
-								"mention",
-								null,
-								id,
-								"id",
-								ZonedDateTime.now(),
-								"scraped_at");
-
-						Utils.saveExceptionInDatabase("Mention scraper", "mention", UUID.fromString(id), e);
-					} catch (Exception e2) {
-						LOGGER.warn("Failed to save exception in database", e2);
-					}
-				}
+		for (List<MentionRecord> sameMentions : mentionsPerKey.values()) {
+			UUID id = sameMentions.getLast().id;
+			sameMentions.forEach(mention -> mention.id = id);
+		}
+	}
 
+	// saves the mentions in one request, if that fails the batch is split in two halves until the failing mentions are found
+	private void saveBatch(List<MentionRecord> batch, String onConflictFilter, Gson gson) {
+		String uri = "%s/mention?on_conflict=%s&select=id,doi,external_id,source".formatted(backendUrl, onConflictFilter);
+		try {
+			LOGGER.debug("Saving {} mentions with conflict target {}", batch.size(), onConflictFilter);
+			String response = bulkUpsert.apply(uri, gson.toJson(batch));
+			assignIds(batch, response);
+			ScraperMetrics.instance().countItems("Mention scraper", ScraperMetrics.ItemOutcome.SCRAPED, batch.size());
+		} catch (RuntimeException e) {
+			if (batch.size() == 1) {
+				failedMentionHandler.accept(batch.getFirst(), e);
+				return;
 			}
 
+			LOGGER.debug("Failed to save {} mentions at once, splitting them", batch.size(), e);
+			int middle = batch.size() / 2;
+			saveBatch(batch.subList(0, middle), onConflictFilter, gson);
+			saveBatch(batch.subList(middle, batch.size()), onConflictFilter, gson);
+		}
+	}
+
+	// the IDs are used in MainCitations, do not remove
+	static void assignIds(Collection<MentionRecord> mentions, String response) {
+		Map<String, UUID> idPerKey = new HashMap<>();
+		for (JsonElement element : JsonParser.parseString(response).getAsJsonArray()) {
+			JsonObject row = element.getAsJsonObject();
+			String key = conflictKey(Utils.stringOrNull(row.get("doi")), Utils.stringOrNull(row.get("external_id")), Utils.stringOrNull(row.get("source")));
+			idPerKey.put(key, UUID.fromString(row.getAsJsonPrimitive("id").getAsString()));
+		}
+
+		for (MentionRecord mention : mentions) {
+			mention.id = idPerKey.get(conflictKey(mention.doi, mention.externalId, mention.source));
+			if (mention.id == null) {
+				LOGGER.warn("No ID returned for saved mention: {} / {} / {}", mention.doi, mention.externalId, mention.source);
+			}
+		}
+	}
+
+	static String conflictKey(String doi, String externalId, String source) {
+		// DOIs are stored case-insensitively
+		return doi != null ? "doi:" + doi.toLowerCase(Locale.ROOT) : "external_id:" + externalId + "|source:" + source;
+	}
+
+	private void saveFailedMention(MentionRecord mention, RuntimeException e) {
+		LOGGER.warn("Failed to save mention: {} / {} / {}", mention.doi, mention.externalId, mention.source, e);
+
+		if (mention.doi == null) {
+			Utils.saveExceptionInDatabase("Mention scraper", "mention", null, e);
+		} else {
+			// We will try to update the scraped_at field, so that it goes back into the queue for being scraped
+			// Note that this operation in itself may also fail.
+			try {
+				String existingMentionResponse = Utils.getAsAdmin("%s/mention?doi=eq.%s&select=id".formatted(backendUrl, mention.doi));
+				JsonArray array = JsonParser.parseString(existingMentionResponse).getAsJsonArray();
+				String id = array.get(0).getAsJsonObject().getAsJsonPrimitive("id").getAsString();
+				Utils.saveErrorMessageInDatabase(null,
+						"mention",
+						null,
+						id,
+						"id",
+						ZonedDateTime.now(),
+						"scraped_at");
+
+				Utils.saveExceptionInDatabase("Mention scraper", "mention", UUID.fromString(id), e);
+			} catch (Exception e2) {
+				LOGGER.warn("Failed to save exception in database", e2);
+			}
 		}
 	}
 }
@@ -0,0 +1,73 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.doi;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Adds up the time spent in the stages of a scraper. Stages can run concurrently, e.g. saving the previous page while
+ * downloading the next one, so the times of the stages can add up to more than the time of the whole run.
+ */
+class StageTimings {
+
+	@FunctionalInterface
+	interface TimedAction<E extends Exception> {
+		void run() throws E;
+	}
+
+	private final Map<String, LongAdder> nanosPerStage = new LinkedHashMap<>();
+
+	/**
+	 * @param stages the names of the stages, in the order in which they are reported
+	 */
+	StageTimings(List<String> stages) {
+		for (String stage : stages) {
+			nanosPerStage.put(stage, new LongAdder());
+		}
+	}
+
+	/**
+	 * Runs the action and adds its duration to the stage, also when it throws.
+	 *
+	 * @param stage  one of the stages given to the constructor
+	 * @param action the action to time
+	 */
+	<E extends Exception> void time(String stage, TimedAction<E> action) throws E {
+		long start = System.nanoTime();
+		try {
+			action.run();
+		} finally {
+			add(stage, System.nanoTime() - start);
+		}
+	}
+
+	void add(String stage, long nanos) {
+		LongAdder stageNanos = nanosPerStage.get(stage);
+		if (stageNanos == null) {
+			throw new IllegalArgumentException("Unknown stage: " + stage);
+		}
+		stageNanos.add(nanos);
+	}
+
+	void addAll(StageTimings other) {
+		other.nanosPerStage.forEach((stage, nanos) -> add(stage, nanos.sum()));
+	}
+
+	Duration duration(String stage) {
+		return Duration.ofNanos(nanosPerStage.get(stage).sum());
+	}
+
+	@Override
+	public String toString() {
+		return nanosPerStage.keySet().stream()
+				.map(stage -> "%s: %d ms.".formatted(stage, duration(stage).toMillis()))
+				.collect(Collectors.joining(" "));
+	}
+}
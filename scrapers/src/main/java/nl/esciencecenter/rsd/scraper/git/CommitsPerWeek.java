@@ -5,42 +5,89 @@
 
 package nl.esciencecenter.rsd.scraper.git;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonPrimitive;
-import com.google.gson.JsonSerializer;
+import com.google.gson.stream.JsonReader;
 
-import java.time.DayOfWeek;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.time.Instant;
-import java.time.Period;
-import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
-import java.time.temporal.ChronoUnit;
-import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
 /**
  * Aggregates commits per week. We choose a week to begin on Sunday at midnight UTC, since GitHub aggregates commits at this instance too.
- * In the underlying map, we choose Sunday midnight UTC as a representative for a week as well.
+ * In the JSON representation, we choose Sunday midnight UTC as a representative for a week as well.
+ * <p>
+ * The counts are stored in an array indexed by the number of the week since the Sunday before the epoch, so adding
+ * commits does not allocate. Since a week to which zero commits were added is present in the JSON, while a week to
+ * which nothing was added is not, a bit set keeps track of the weeks present.
  */
 public class CommitsPerWeek {
 
-	final SortedMap<Instant, Long> data = new TreeMap<>();
-	static final Gson gson = new GsonBuilder()
-			.enableComplexMapKeySerialization()
-			.registerTypeAdapter(Instant.class, (JsonSerializer<Instant>) (src, typeOfSrc, context) -> new JsonPrimitive(src.getEpochSecond()))
-			.create();
+	private static final long SECONDS_PER_WEEK = 7L * 24L * 60L * 60L;
+	// the epoch (1970-01-01) is a Thursday, the week containing it starts on Sunday 1969-12-28
+	private static final long SUNDAY_BEFORE_EPOCH_SECOND = -4L * 24L * 60L * 60L;
+	private static final int INITIAL_CAPACITY = 64;
+
+	// counts[i] holds the commits of week number firstWeek + i
+	private long[] counts = new long[0];
+	private long firstWeek = 0;
+	private final BitSet present = new BitSet();
 
 	public void addCommits(ZonedDateTime zonedDateTime, long count) {
-		ZonedDateTime utcTime = zonedDateTime.withZoneSameInstant(ZoneOffset.UTC);
-		Instant sundayMidnight = utcTime.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.SUNDAY)).toInstant();
-		data.merge(sundayMidnight, count, Long::sum);
+		addCommits(zonedDateTime.toEpochSecond(), count);
 	}
 
 	public void addCommits(Instant instant, long count) {
-		ZonedDateTime utcTime = ZonedDateTime.ofInstant(instant, ZoneOffset.UTC);
-		addCommits(utcTime, count);
+		addCommits(instant.getEpochSecond(), count);
+	}
+
+	private void addCommits(long epochSecond, long count) {
+		int index = indexOf(weekNumber(epochSecond));
+		counts[index] += count;
+		present.set(index);
+	}
+
+	static long weekNumber(long epochSecond) {
+		return Math.floorDiv(epochSecond - SUNDAY_BEFORE_EPOCH_SECOND, SECONDS_PER_WEEK);
+	}
+
+	static long weekStart(long weekNumber) {
+		return weekNumber * SECONDS_PER_WEEK + SUNDAY_BEFORE_EPOCH_SECOND;
+	}
+
+	// returns the index of the week in the array, growing the array on either side if needed
+	private int indexOf(long weekNumber) {
+		if (counts.length == 0) {
+			counts = new long[INITIAL_CAPACITY];
+			firstWeek = weekNumber;
+			return 0;
+		}
+
+		if (weekNumber < firstWeek) {
+			int shift = Math.toIntExact(Math.max(firstWeek - weekNumber, counts.length / 2));
+			long[] grown = new long[Math.addExact(counts.length, shift)];
+			System.arraycopy(counts, 0, grown, shift, counts.length);
+			counts = grown;
+			firstWeek -= shift;
+			shiftPresent(shift);
+		}
+
+		int index = Math.toIntExact(weekNumber - firstWeek);
+		if (index >= counts.length) {
+			counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length * 2));
+		}
+		return index;
+	}
+
+	private void shiftPresent(int shift) {
+		for (int i = present.length() - 1; i >= 0; i = present.previousSetBit(i - 1)) {
+			present.clear(i);
+			present.set(i + shift);
+		}
 	}
 
 	/**
@@ -48,17 +95,125 @@ public class CommitsPerWeek {
 	 * We need these zero values so that the commit graphs are displayed properly.
 	 */
 	public void addMissingZeros() {
-		if (data.isEmpty()) return;
+		if (present.isEmpty()) return;
 
-		Instant firstWeek = data.firstKey();
-		Instant lastWeek = data.lastKey();
+		// the counts of weeks that are not present are zero already
+		present.set(present.nextSetBit(0), present.length());
+	}
 
-		for (Instant currentWeek = firstWeek; currentWeek.isBefore(lastWeek); currentWeek = currentWeek.plus(Period.ofWeeks(1))) {
-			data.putIfAbsent(currentWeek, 0L);
+	/**
+	 * Writes the commits as a JSON object, with the epoch second of the start of every week present as key and the
+	 * number of commits as value, ordered by week.
+	 *
+	 * @param out where to write the JSON to
+	 * @throws IOException if writing fails
+	 */
+	public void writeJson(Appendable out) throws IOException {
+		out.append('{');
+		for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+			out.append('"').append(Long.toString(weekStart(firstWeek + i))).append("\":").append(Long.toString(counts[i]));
+			if (present.nextSetBit(i + 1) >= 0) {
+				out.append(',');
+			}
 		}
+		out.append('}');
 	}
 
 	public String toJson() {
-		return gson.toJson(data);
+		StringBuilder json = new StringBuilder(2 + 16 * present.cardinality());
+		try {
+			writeJson(json);
+		} catch (IOException e) {
+			// appending to a StringBuilder does not throw
+			throw new UncheckedIOException(e);
+		}
+		return json.toString();
+	}
+
+	/**
+	 * Adds the commits of another commit history to this one.
+	 *
+	 * @param other the commits to add
+	 */
+	public void addAll(CommitsPerWeek other) {
+		for (int i = other.present.nextSetBit(0); i >= 0; i = other.present.nextSetBit(i + 1)) {
+			int index = indexOf(other.firstWeek + i);
+			counts[index] += other.counts[i];
+			present.set(index);
+		}
+	}
+
+	/**
+	 * Parses a commit history as produced by {@link #toJson()}: an object with the epoch second of every week as key.
+	 *
+	 * @param json the commit history
+	 * @return the parsed commit history
+	 */
+	public static CommitsPerWeek fromJson(String json) {
+		CommitsPerWeek result = new CommitsPerWeek();
+		try (JsonReader reader = new JsonReader(new StringReader(json))) {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				long epochSecond = Long.parseLong(reader.nextName());
+				result.addCommits(epochSecond, reader.nextLong());
+			}
+			reader.endObject();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return result;
+	}
+
+	public boolean isEmpty() {
+		return present.isEmpty();
+	}
+
+	/**
+	 * @return the start of the last week present, or null if no weeks are present
+	 */
+	public Instant lastWeek() {
+		return present.isEmpty() ? null : Instant.ofEpochSecond(weekStart(firstWeek + present.length() - 1));
+	}
+
+	/**
+	 * @param week the start of a week, Sunday midnight UTC
+	 * @return the number of commits in that week
+	 */
+	public long commitsInWeek(Instant week) {
+		long index = weekNumber(week.getEpochSecond()) - firstWeek;
+		return index < 0 || index >= counts.length ? 0 : counts[(int) index];
+	}
+
+	/**
+	 * Replaces all weeks starting from the given week with the weeks of the other commit history.
+	 *
+	 * @param week  the start of the first week to replace, Sunday midnight UTC
+	 * @param other the commit history containing the new weeks, only its weeks from the given week on are used
+	 */
+	public void replaceFrom(Instant week, CommitsPerWeek other) {
+		long fromWeek = weekNumber(week.getEpochSecond());
+		int fromIndex = (int) Math.max(0, Math.min(fromWeek - firstWeek, counts.length));
+		Arrays.fill(counts, fromIndex, counts.length, 0L);
+		present.clear(fromIndex, Math.max(fromIndex, present.length()));
+
+		for (int i = other.present.nextSetBit(0); i >= 0; i = other.present.nextSetBit(i + 1)) {
+			long weekNumber = other.firstWeek + i;
+			if (weekNumber >= fromWeek) {
+				int index = indexOf(weekNumber);
+				counts[index] = other.counts[i];
+				present.set(index);
+			}
+		}
+	}
+
+	/**
+	 * @return the weeks present, mapped from the start of the week to the number of commits
+	 */
+	SortedMap<Instant, Long> toMap() {
+		SortedMap<Instant, Long> result = new TreeMap<>();
+		for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+			result.put(Instant.ofEpochSecond(weekStart(firstWeek + i)), counts[i]);
+		}
+		return result;
 	}
 }
@@ -0,0 +1,62 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.git;
+
+import nl.esciencecenter.rsd.scraper.ScraperExecutor;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revisits a task that has no result yet, like GitHub statistics that are still being computed. The revisits are
+ * scheduled with exponential backoff using a delayed executor, so no thread is blocked while waiting.
+ */
+public class DelayedRevisit {
+
+	private DelayedRevisit() {
+	}
+
+	/**
+	 * Runs the task until it returns a non-null result, revisiting it at most the given number of times. The delay
+	 * before a revisit doubles every time.
+	 *
+	 * @param task        the task, which returns null if the result is not available yet
+	 * @param maxRevisits the maximum number of revisits
+	 * @param firstDelay  the delay before the first revisit
+	 * @return a future with the result, which is null if the task did not return a result in time, or which completes
+	 * exceptionally if the task threw an exception
+	 */
+	public static <T> CompletableFuture<T> untilNonNull(Callable<T> task, int maxRevisits, Duration firstDelay) {
+		return run(task, 0, maxRevisits, firstDelay.toMillis(), ScraperExecutor.executor());
+	}
+
+	private static <T> CompletableFuture<T> run(Callable<T> task, int revisit, int maxRevisits, long firstDelayMillis, Executor executor) {
+		return CompletableFuture.supplyAsync(() -> call(task), executor)
+				.thenCompose(result -> {
+					if (result != null || revisit >= maxRevisits) {
+						return CompletableFuture.completedFuture(result);
+					}
+
+					long delay = firstDelayMillis << revisit;
+					Executor delayedExecutor = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, ScraperExecutor.executor());
+					return run(task, revisit + 1, maxRevisits, firstDelayMillis, delayedExecutor);
+				});
+	}
+
+	private static <T> T call(Callable<T> task) {
+		try {
+			return task.call();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CompletionException(e);
+		} catch (Exception e) {
+			throw new CompletionException(e);
+		}
+	}
+}
@@ -0,0 +1,245 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.git;
+
+import nl.esciencecenter.rsd.scraper.Config;
+import nl.esciencecenter.rsd.scraper.HttpTransport;
+import nl.esciencecenter.rsd.scraper.Utils;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * A pool of GitHub credentials, so that the rate limit budgets of several tokens can be used. Every request is sent
+ * with the credential that has the most budget left, according to the rate limit headers of its last response.
+ * A credential that has used up its budget is not used until its budget resets, unless all credentials have used up
+ * their budget. The HTTP transport rate limits every credential on its own. A request that GitHub rejects because the
+ * budget of its credential is used up is retried with another credential, see {@link #send(String, Function, Request)}.
+ * <p>
+ * The REST and the GraphQL API have separate budgets, so they have separate pools.
+ */
+class GithubCredentialPool {
+
+	// the budget of a credential before its first response, or after its budget reset, until the next response tells
+	// the real budget; counting down from it spreads the first requests evenly over the credentials
+	private static final long UNKNOWN_REMAINING = Long.MAX_VALUE;
+	// how long a credential is not used after a rejected request, if the response did not tell when its budget resets
+	private static final long DEFAULT_PENALTY_SECONDS = 60L;
+
+	private static class Holder {
+		private static final GithubCredentialPool REST = fromConfig();
+		private static final GithubCredentialPool GRAPHQL = fromConfig();
+	}
+
+	static final class Credential {
+		private final String credentials;
+		private long remaining = UNKNOWN_REMAINING;
+		private long resetAt;
+
+		private Credential(String credentials) {
+			this.credentials = credentials;
+		}
+
+		/**
+		 * @return the value of the Authorization header for the REST API
+		 */
+		String basicAuthorization() {
+			return "Basic " + Utils.base64Encode(credentials);
+		}
+
+		/**
+		 * @return the token, without the username if that was configured
+		 */
+		String token() {
+			return tokenFromCredentials(credentials);
+		}
+	}
+
+	/**
+	 * Sends a request with the given Authorization header.
+	 */
+	@FunctionalInterface
+	interface Request<T> {
+		HttpResponse<T> send(String authorization, HttpTransport.RetryAuthorization retryAuthorization) throws IOException, InterruptedException;
+	}
+
+	private final Credential[] credentials;
+	private final LongSupplier clock;
+
+	GithubCredentialPool(List<String> credentials, LongSupplier clock) {
+		this.credentials = credentials.stream().map(Credential::new).toArray(Credential[]::new);
+		this.clock = clock;
+	}
+
+	// the credentials as configured for the REST API are either a token or username:token
+	static String tokenFromCredentials(String credentials) {
+		int separatorIndex = credentials.indexOf(':');
+		return separatorIndex == -1 ? credentials : credentials.substring(separatorIndex + 1);
+	}
+
+	private static GithubCredentialPool fromConfig() {
+		List<String> credentials = Config.apiCredentialsGithub().map(GithubCredentialPool::parseCredentials).orElse(List.of());
+		return new GithubCredentialPool(credentials, System::currentTimeMillis);
+	}
+
+	/**
+	 * @return the pool for the REST API, with the credentials of {@link Config#apiCredentialsGithub()}
+	 */
+	static GithubCredentialPool rest() {
+		return Holder.REST;
+	}
+
+	/**
+	 * @return the pool for the GraphQL API, with the credentials of {@link Config#apiCredentialsGithub()}
+	 */
+	static GithubCredentialPool graphql() {
+		return Holder.GRAPHQL;
+	}
+
+	boolean isEmpty() {
+		return credentials.length == 0;
+	}
+
+	/**
+	 * Takes the credential with the most budget left.
+	 *
+	 * @return the credential, or empty if no credentials are configured
+	 */
+	Optional<Credential> acquire() {
+		return acquire(null);
+	}
+
+	/**
+	 * Takes a credential, preferring the same one for the same key as long as it has budget left. GitHub only answers
+	 * a conditional request with 304 Not Modified if it is sent with the same credentials as the original request.
+	 *
+	 * @param affinityKey the key, e.g. the URL of a conditional request, or null for no preference
+	 * @return the credential, or empty if no credentials are configured
+	 */
+	synchronized Optional<Credential> acquire(String affinityKey) {
+		if (credentials.length == 0) {
+			return Optional.empty();
+		}
+
+		Credential chosen = choose(affinityKey);
+		if (chosen.remaining > 0) {
+			// counts the request before its response arrives, so that concurrent requests are spread over the credentials
+			chosen.remaining--;
+		}
+		return Optional.of(chosen);
+	}
+
+	/**
+	 * Marks the budget of a credential as used up, as GitHub rejected a request sent with it, and takes another
+	 * credential that has budget left.
+	 *
+	 * @param rejected    the credential of the rejected request
+	 * @param headers     the headers of the response that rejected the request
+	 * @param affinityKey the key, as given to {@link #acquire(String)}
+	 * @return the other credential, or empty if no other credential has budget left
+	 */
+	synchronized Optional<Credential> acquireOther(Credential rejected, HttpHeaders headers, String affinityKey) {
+		update(rejected, headers);
+		rejected.remaining = 0;
+		long now = clock.getAsLong();
+		if (rejected.resetAt <= now) {
+			// e.g. the secondary rate limits of GitHub, which only send a Retry-After header
+			rejected.resetAt = now + headers.firstValueAsLong("retry-after").orElse(DEFAULT_PENALTY_SECONDS) * 1000L;
+		}
+
+		Credential chosen = choose(affinityKey);
+		if (chosen == rejected || chosen.remaining == 0) {
+			return Optional.empty();
+		}
+		chosen.remaining--;
+		return Optional.of(chosen);
+	}
+
+	private Credential choose(String affinityKey) {
+		long now = clock.getAsLong();
+		for (Credential credential : credentials) {
+			if (credential.resetAt != 0 && now >= credential.resetAt) {
+				credential.resetAt = 0;
+				credential.remaining = UNKNOWN_REMAINING;
+			}
+		}
+
+		if (affinityKey != null) {
+			Credential preferred = credentials[Math.floorMod(affinityKey.hashCode(), credentials.length)];
+			if (preferred.remaining > 0) {
+				return preferred;
+			}
+		}
+		return withMostRemaining();
+	}
+
+	/**
+	 * Sends a request with a credential of the pool and updates the budget of the credential that was used with the
+	 * response. If GitHub rejects the request because the budget of the credential is used up, it is retried with
+	 * another credential that has budget left. Only if there is none, the retry waits for the budget to reset.
+	 *
+	 * @param affinityKey   the key, as given to {@link #acquire(String)}
+	 * @param authorization gives the value of the Authorization header for a credential
+	 * @param request       sends the request
+	 * @return the response
+	 * @throws IllegalStateException if the pool is empty
+	 */
+	<T> HttpResponse<T> send(String affinityKey, Function<Credential, String> authorization, Request<T> request) throws IOException, InterruptedException {
+		AtomicReference<Credential> used = new AtomicReference<>(acquire(affinityKey).orElseThrow(() -> new IllegalStateException("No GitHub credentials configured")));
+		HttpResponse<T> response = request.send(authorization.apply(used.get()), rejected -> {
+			Optional<Credential> other = acquireOther(used.get(), rejected.headers(), affinityKey);
+			other.ifPresent(used::set);
+			return other.map(authorization);
+		});
+		update(used.get(), response.headers());
+		return response;
+	}
+
+	// if all budgets are used up, the credential whose budget resets first
+	private Credential withMostRemaining() {
+		Credential best = credentials[0];
+		for (Credential credential : credentials) {
+			if (credential.remaining > best.remaining || (credential.remaining == 0 && best.remaining == 0 && credential.resetAt < best.resetAt)) {
+				best = credential;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Updates the budget of a credential with the rate limit headers of a response to a request sent with it.
+	 *
+	 * @param credential the credential
+	 * @param headers    the headers of the response
+	 */
+	synchronized void update(Credential credential, HttpHeaders headers) {
+		OptionalLong remaining = headers.firstValueAsLong("x-ratelimit-remaining");
+		OptionalLong resetAt = headers.firstValueAsLong("x-ratelimit-reset");
+		if (remaining.isPresent() && resetAt.isPresent()) {
+			credential.remaining = remaining.getAsLong();
+			credential.resetAt = resetAt.getAsLong() * 1000L;
+		}
+	}
+
+	/**
+	 * Parses the configured credentials, several credentials are separated by commas or whitespace.
+	 *
+	 * @param value the configured value, e.g. "user1:token1,user2:token2"
+	 * @return the credentials
+	 */
+	static List<String> parseCredentials(String value) {
+		return Arrays.stream(value.split("[,\\s]+"))
+				.filter(credential -> !credential.isBlank())
+				.toList();
+	}
+}
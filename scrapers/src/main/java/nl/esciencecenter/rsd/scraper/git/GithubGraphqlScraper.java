@@ -0,0 +1,205 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.git;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import nl.esciencecenter.rsd.scraper.HttpTransport;
+import nl.esciencecenter.rsd.scraper.RsdRateLimitException;
+import nl.esciencecenter.rsd.scraper.RsdResponseException;
+import nl.esciencecenter.rsd.scraper.Utils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.regex.Matcher;
+
+/**
+ * Scrapes the basic data and the languages of many GitHub repositories at once, using aliased queries of the GraphQL
+ * API. This API requires authentication, so it can only be used when credentials for GitHub are configured.
+ * https://docs.github.com/en/graphql/reference/objects#repository
+ */
+public class GithubGraphqlScraper {
+
+	private static final URI GRAPHQL_URI = URI.create("https://api.github.com/graphql");
+	private static final String REPOSITORY_FRAGMENT = """
+			fragment repositoryData on Repository {
+				stargazerCount
+				forkCount
+				issues(states: OPEN) { totalCount }
+				pullRequests(states: OPEN) { totalCount }
+				licenseInfo { spdxId }
+				languages(first: 100, orderBy: {field: SIZE, direction: DESC}) { edges { size node { name } } }
+			}""";
+
+	private final GithubCredentialPool credentialPool;
+
+	/**
+	 * Uses the configured GitHub credentials, every batch is sent with the credential that has the most budget left.
+	 */
+	public GithubGraphqlScraper() {
+		this(GithubCredentialPool.graphql());
+	}
+
+	GithubGraphqlScraper(GithubCredentialPool credentialPool) {
+		this.credentialPool = Objects.requireNonNull(credentialPool);
+	}
+
+	public record Repository(UUID software, String owner, String name) {
+	}
+
+	public record RepositoryData(BasicGitData basicData, String languages) {
+	}
+
+	/**
+	 * The result of one batch. Every repository of the batch is either in the data or in the errors.
+	 */
+	public record BatchResult(Map<UUID, RepositoryData> data, Map<UUID, RsdResponseException> errors) {
+	}
+
+	/**
+	 * Get the repository of a GitHub URL.
+	 *
+	 * @param software the id of the software the URL belongs to
+	 * @param url      the URL of the repository
+	 * @return the repository, or null if the URL is not a valid GitHub URL
+	 */
+	public static Repository repository(UUID software, String url) {
+		Matcher matcher = GithubScraper.GITHUB_URL_PATTERN.matcher(url);
+		if (!matcher.find()) {
+			return null;
+		}
+
+		return new Repository(software, matcher.group(1), matcher.group(2));
+	}
+
+	/**
+	 * Scrapes the basic data and the languages of the given repositories in one request. Keep the batches below 100
+	 * repositories, to stay within the limits of the GraphQL API.
+	 *
+	 * @param repositories the repositories to scrape
+	 * @return the scraped data and the errors per repository
+	 * @throws RsdRateLimitException if the rate limit was reached
+	 * @throws RsdResponseException  if the request as a whole failed
+	 */
+	public BatchResult basicDataAndLanguages(List<Repository> repositories) throws IOException, InterruptedException, RsdResponseException {
+		if (credentialPool.isEmpty()) {
+			throw new IllegalStateException("The GitHub GraphQL API requires credentials");
+		}
+		String query = queryJson(repositories);
+		HttpResponse<String> response = credentialPool.send(null, credential -> "bearer " + credential.token(), (authorization, retryAuthorization) -> {
+			HttpRequest request = HttpRequest.newBuilder(GRAPHQL_URI)
+					.POST(HttpRequest.BodyPublishers.ofString(query))
+					.timeout(Duration.ofSeconds(60))
+					.header("Content-Type", "application/json")
+					.header("Authorization", authorization)
+					.build();
+			return HttpTransport.send(request, retryAuthorization);
+		});
+
+		return switch (response.statusCode()) {
+			case 200 -> parseBatch(response.body(), repositories, response.uri());
+			case 403, 429 ->
+					throw new RsdRateLimitException(response.statusCode(), response.uri(), response.body(), "Rate limit for GitHub probably reached");
+			default ->
+					throw new RsdResponseException(response.statusCode(), response.uri(), response.body(), "Unexpected response");
+		};
+	}
+
+	static String queryJson(List<Repository> repositories) {
+		StringBuilder parameters = new StringBuilder();
+		StringBuilder aliases = new StringBuilder();
+		JsonObject variables = new JsonObject();
+		for (int i = 0; i < repositories.size(); i++) {
+			Repository repository = repositories.get(i);
+			if (i > 0) {
+				parameters.append(", ");
+			}
+			parameters.append("$owner%d: String!, $name%d: String!".formatted(i, i));
+			aliases.append("\tr%d: repository(owner: $owner%d, name: $name%d) { ...repositoryData }\n".formatted(i, i, i));
+			variables.addProperty("owner" + i, repository.owner());
+			variables.addProperty("name" + i, repository.name());
+		}
+
+		String query = "query(" + parameters + ") {\n" + aliases + "}\n" + REPOSITORY_FRAGMENT;
+		JsonObject body = new JsonObject();
+		body.addProperty("query", query);
+		body.add("variables", variables);
+		return body.toString();
+	}
+
+	static BatchResult parseBatch(String json, List<Repository> repositories, URI uri) {
+		JsonObject root = JsonParser.parseString(json).getAsJsonObject();
+		JsonObject data = root.has("data") && root.get("data").isJsonObject() ? root.getAsJsonObject("data") : new JsonObject();
+
+		Map<String, JsonObject> errorPerAlias = new HashMap<>();
+		if (root.has("errors")) {
+			for (JsonElement errorElement : root.getAsJsonArray("errors")) {
+				JsonObject error = errorElement.getAsJsonObject();
+				if ("RATE_LIMITED".equals(Utils.stringOrNull(error.get("type")))) {
+					throw new RsdRateLimitException(200, uri, json, "Rate limit for GitHub reached");
+				}
+				JsonArray path = error.getAsJsonArray("path");
+				if (path != null && !path.isEmpty()) {
+					errorPerAlias.putIfAbsent(path.get(0).getAsString(), error);
+				}
+			}
+		}
+
+		Map<UUID, RepositoryData> result = new HashMap<>();
+		Map<UUID, RsdResponseException> errors = new HashMap<>();
+		for (int i = 0; i < repositories.size(); i++) {
+			Repository repository = repositories.get(i);
+			String alias = "r" + i;
+			JsonElement repositoryElement = data.get(alias);
+			JsonObject error = errorPerAlias.get(alias);
+
+			if (repositoryElement == null || !repositoryElement.isJsonObject()) {
+				URI repositoryUri = URI.create("https://github.com/" + repository.owner() + "/" + repository.name());
+				if (error != null && "NOT_FOUND".equals(Utils.stringOrNull(error.get("type")))) {
+					errors.put(repository.software(), new RsdResponseException(404, repositoryUri, error.toString(), "Not found, is the repository URL correct?"));
+				} else {
+					String body = error != null ? error.toString() : json;
+					errors.put(repository.software(), new RsdResponseException(200, repositoryUri, body, "Unexpected response"));
+				}
+				continue;
+			}
+
+			result.put(repository.software(), parseRepositoryData(repositoryElement.getAsJsonObject()));
+		}
+
+		return new BatchResult(result, errors);
+	}
+
+	static RepositoryData parseRepositoryData(JsonObject repository) {
+		BasicGitData basicData = new BasicGitData();
+		JsonElement licenseInfo = repository.get("licenseInfo");
+		basicData.license = licenseInfo == null || licenseInfo.isJsonNull() ? null : Utils.stringOrNull(licenseInfo.getAsJsonObject().get("spdxId"));
+		basicData.starCount = repository.getAsJsonPrimitive("stargazerCount").getAsLong();
+		basicData.forkCount = repository.getAsJsonPrimitive("forkCount").getAsInt();
+		// the REST API counts open pull requests as open issues as well
+		basicData.openIssueCount = repository.getAsJsonObject("issues").getAsJsonPrimitive("totalCount").getAsInt()
+				+ repository.getAsJsonObject("pullRequests").getAsJsonPrimitive("totalCount").getAsInt();
+
+		// same format as the REST API: an object with the bytes per language, largest first
+		JsonObject languages = new JsonObject();
+		for (JsonElement edgeElement : repository.getAsJsonObject("languages").getAsJsonArray("edges")) {
+			JsonObject edge = edgeElement.getAsJsonObject();
+			String name = edge.getAsJsonObject("node").getAsJsonPrimitive("name").getAsString();
+			languages.addProperty(name, edge.getAsJsonPrimitive("size").getAsLong());
+		}
+
+		return new RepositoryData(basicData, languages.toString());
+	}
+}
@@ -7,17 +7,21 @@
 
 package nl.esciencecenter.rsd.scraper.git;
 
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
-import nl.esciencecenter.rsd.scraper.Config;
+import com.google.gson.stream.JsonReader;
 import nl.esciencecenter.rsd.scraper.RsdRateLimitException;
 import nl.esciencecenter.rsd.scraper.RsdResponseException;
 import nl.esciencecenter.rsd.scraper.Utils;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
@@ -56,13 +60,7 @@ public class GithubScraper implements GitScraper {
 	 */
 	@Override
 	public BasicGitData basicData() throws IOException, InterruptedException, RsdResponseException {
-		Optional<String> apiCredentials = Config.apiCredentialsGithub();
-		HttpResponse<String> response;
-		if (apiCredentials.isPresent()) {
-			response = Utils.getAsHttpResponse(BASE_API_URL + "/repos/" + organisation + "/" + repo, "Authorization", "Basic " + Utils.base64Encode(apiCredentials.get()));
-		} else {
-			response = Utils.getAsHttpResponse(BASE_API_URL + "/repos/" + organisation + "/" + repo);
-		}
+		HttpResponse<String> response = getCachedAsHttpResponse(BASE_API_URL + "/repos/" + organisation + "/" + repo);
 		return switch (response.statusCode()) {
 			case 200 -> parseBasicData(response.body());
 			case 404 ->
@@ -80,7 +78,7 @@ public class GithubScraper implements GitScraper {
 	 */
 	@Override
 	public String languages() throws IOException, InterruptedException, RsdResponseException {
-		HttpResponse<String> response = getAsHttpResponse(BASE_API_URL + "/repos/" + organisation + "/" + repo + "/languages");
+		HttpResponse<String> response = getCachedAsHttpResponse(BASE_API_URL + "/repos/" + organisation + "/" + repo + "/languages");
 		return switch (response.statusCode()) {
 			case 404 ->
 					throw new RsdResponseException(404, response.uri(), response.body(), "Not found, is the repository URL correct?");
@@ -113,34 +111,32 @@ public class GithubScraper implements GitScraper {
 	 * ]
 	 * }
 	 * <p>
+	 * If GitHub has not computed the statistics yet, it starts doing so and null is returned.
+	 * <p>
 	 * Example URL: https://api.github.com/repos/research-software-directory/RSD-as-a-service/stats/contributors
 	 */
 	@Override
 	public CommitsPerWeek contributions() throws IOException, InterruptedException, RsdResponseException {
-		HttpResponse<String> httpResponse = null;
-		for (int i = 0; i < 2; i++) {
-			httpResponse = getAsHttpResponse(BASE_API_URL + "/repos/" + organisation + "/" + repo + "/stats/contributors");
-
-			if (httpResponse.statusCode() != 202) break;
-			Thread.sleep(3000L);
-		}
+		// the statistics of large repositories can be several MB, so we parse them while they are being received
+		HttpResponse<InputStream> httpResponse = getAsInputStreamResponse(BASE_API_URL + "/repos/" + organisation + "/" + repo + "/stats/contributors");
 
 		int status = httpResponse.statusCode();
-		if (status == 404) {
-			throw new RsdResponseException(status, httpResponse.uri(), httpResponse.body(), "Not found, is the repository URL correct?");
-		} else if (status == 204) {
-			// empty commit history
-			return new CommitsPerWeek();
-		} else if (status == 403) {
-			throw new RsdRateLimitException(403, httpResponse.uri(), httpResponse.body(), "Rate limit for GitHub probably reached");
-		} else if (status == 202) {
-			// response not ready yet
-			return null;
-		} else if (status != 200) {
-			throw new RsdResponseException(status, httpResponse.uri(), httpResponse.body(), "Unexpected response");
-		} else {
-			String contributionsJson = httpResponse.body();
-			return parseCommits(contributionsJson);
+		try (InputStream body = httpResponse.body()) {
+			if (status == 404) {
+				throw new RsdResponseException(status, httpResponse.uri(), Utils.bodyAsString(body), "Not found, is the repository URL correct?");
+			} else if (status == 204) {
+				// empty commit history
+				return new CommitsPerWeek();
+			} else if (status == 403) {
+				throw new RsdRateLimitException(403, httpResponse.uri(), Utils.bodyAsString(body), "Rate limit for GitHub probably reached");
+			} else if (status == 202) {
+				// GitHub is computing the statistics, the caller can revisit the repository later
+				return null;
+			} else if (status != 200) {
+				throw new RsdResponseException(status, httpResponse.uri(), Utils.bodyAsString(body), "Unexpected response");
+			} else {
+				return parseCommits(new InputStreamReader(body, StandardCharsets.UTF_8));
+			}
 		}
 	}
 
@@ -149,7 +145,7 @@ public class GithubScraper implements GitScraper {
 	public Integer contributorCount() throws IOException, InterruptedException, RsdResponseException {
 		// we request one contributor per page and just extract the number of pages from the headers
 		// see https://docs.github.com/en/rest/guides/using-pagination-in-the-rest-api?apiVersion=2022-11-28
-		HttpResponse<String> httpResponse = getAsHttpResponse(BASE_API_URL + "/repos/" + organisation + "/" + repo + "/contributors?per_page=1");
+		HttpResponse<String> httpResponse = getCachedAsHttpResponse(BASE_API_URL + "/repos/" + organisation + "/" + repo + "/contributors?per_page=1");
 
 		int status = httpResponse.statusCode();
 		if (status == 404) {
@@ -172,24 +168,55 @@ public class GithubScraper implements GitScraper {
 	}
 
 	static CommitsPerWeek parseCommits(String json) {
-		CommitsPerWeek commits = new CommitsPerWeek();
-		JsonArray commitsPerContributor = JsonParser.parseString(json).getAsJsonArray();
-
-		for (JsonElement jsonElement : commitsPerContributor) {
-			JsonArray weeks = jsonElement.getAsJsonObject().getAsJsonArray("weeks");
-			for (JsonElement week : weeks) {
-				long weekTimestamp = week.getAsJsonObject().getAsJsonPrimitive("w").getAsLong();
-				long commitsInWeek = week.getAsJsonObject().getAsJsonPrimitive("c").getAsLong();
+		try {
+			return parseCommits(new StringReader(json));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
 
-				Instant weekInstant = Instant.ofEpochSecond(weekTimestamp);
+	// only the week ("w") and the number of commits ("c") of every contributor are read, all other values are skipped
+	static CommitsPerWeek parseCommits(Reader json) throws IOException {
+		CommitsPerWeek commits = new CommitsPerWeek();
+		JsonReader reader = new JsonReader(json);
 
-				commits.addCommits(weekInstant, commitsInWeek);
+		reader.beginArray();
+		while (reader.hasNext()) {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if (reader.nextName().equals("weeks")) {
+					addWeeks(reader, commits);
+				} else {
+					reader.skipValue();
+				}
 			}
+			reader.endObject();
 		}
+		reader.endArray();
 
 		return commits;
 	}
 
+	private static void addWeeks(JsonReader reader, CommitsPerWeek commits) throws IOException {
+		reader.beginArray();
+		while (reader.hasNext()) {
+			long weekTimestamp = 0;
+			long commitsInWeek = 0;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+					case "w" -> weekTimestamp = reader.nextLong();
+					case "c" -> commitsInWeek = reader.nextLong();
+					default -> reader.skipValue();
+				}
+			}
+			reader.endObject();
+
+			commits.addCommits(Instant.ofEpochSecond(weekTimestamp), commitsInWeek);
+		}
+		reader.endArray();
+	}
+
 	static BasicGitData parseBasicData(String json) {
 		BasicGitData result = new BasicGitData();
 		JsonObject jsonObject = JsonParser.parseString(json).getAsJsonObject();
@@ -218,12 +245,25 @@ public class GithubScraper implements GitScraper {
 		throw new RuntimeException("No last page found");
 	}
 
-	static HttpResponse<String> getAsHttpResponse(String url) throws IOException, InterruptedException {
-		Optional<String> apiCredentials = Config.apiCredentialsGithub();
-		if (apiCredentials.isPresent()) {
-			return Utils.getAsHttpResponse(url, "Authorization", "Basic " + Utils.base64Encode(apiCredentials.get()));
-		} else {
-			return Utils.getAsHttpResponse(url);
+	static HttpResponse<InputStream> getAsInputStreamResponse(String url) throws IOException, InterruptedException {
+		GithubCredentialPool pool = GithubCredentialPool.rest();
+		if (pool.isEmpty()) {
+			return Utils.getAsInputStreamResponse(url);
 		}
+
+		return pool.send(null, GithubCredentialPool.Credential::basicAuthorization,
+				(authorization, retryAuthorization) -> Utils.getAsInputStreamResponse(url, retryAuthorization, "Authorization", authorization));
+	}
+
+	// conditional requests that are answered with 304 Not Modified do not count against the rate limit of GitHub,
+	// the same credential is preferred for the same URL, as the ETags of GitHub depend on the credentials
+	static HttpResponse<String> getCachedAsHttpResponse(String url) throws IOException, InterruptedException {
+		GithubCredentialPool pool = GithubCredentialPool.rest();
+		if (pool.isEmpty()) {
+			return Utils.getCachedAsHttpResponse(url);
+		}
+
+		return pool.send(url, GithubCredentialPool.Credential::basicAuthorization,
+				(authorization, retryAuthorization) -> Utils.getCachedAsHttpResponse(url, retryAuthorization, "Authorization", authorization));
 	}
 }
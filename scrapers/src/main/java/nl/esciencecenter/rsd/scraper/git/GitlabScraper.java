@@ -7,23 +7,44 @@
 
 package nl.esciencecenter.rsd.scraper.git;
 
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import nl.esciencecenter.rsd.scraper.Config;
+import nl.esciencecenter.rsd.scraper.HttpTransport;
 import nl.esciencecenter.rsd.scraper.RsdRateLimitException;
 import nl.esciencecenter.rsd.scraper.RsdResponseException;
+import nl.esciencecenter.rsd.scraper.ScraperExecutor;
 import nl.esciencecenter.rsd.scraper.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.URI;
-import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.ZonedDateTime;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class GitlabScraper implements GitScraper {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(GitlabScraper.class);
+
 	public String projectPath;
 	public String apiUri;
 
@@ -49,7 +70,7 @@ public class GitlabScraper implements GitScraper {
 	 */
 	@Override
 	public BasicGitData basicData() throws IOException, InterruptedException, RsdResponseException {
-		String response = Utils.get(apiUri + "/projects/" + Utils.urlEncode(projectPath) + "?license=True");
+		String response = Utils.getCached(apiUri + "/projects/" + Utils.urlEncode(projectPath) + "?license=True");
 		return parseBasicData(response);
 	}
 
@@ -63,7 +84,7 @@ public class GitlabScraper implements GitScraper {
 	 */
 	@Override
 	public String languages() throws IOException, InterruptedException, RsdResponseException {
-		return Utils.get(apiUri + "/projects/" + Utils.urlEncode(projectPath) + "/languages");
+		return Utils.getCached(apiUri + "/projects/" + Utils.urlEncode(projectPath) + "/languages");
 	}
 
 	/**
@@ -81,36 +102,131 @@ public class GitlabScraper implements GitScraper {
 	@Override
 	public CommitsPerWeek contributions() throws IOException, InterruptedException, RsdResponseException {
 		CommitsPerWeek commits = new CommitsPerWeek();
-		String page = "1";
-		boolean done = false;
-		while (!done) {
-			HttpRequest request = HttpRequest.newBuilder().GET()
-					.uri(URI.create(apiUri + "/projects/" + Utils.urlEncode(projectPath)
-							+ "/repository/commits?per_page=100&order=default&page=" + page))
-					.timeout(Duration.ofSeconds(30))
-					.build();
-			HttpResponse<String> response;
-			try (HttpClient client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build()) {
-				response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		addCommitPages("", commits);
+		return commits;
+	}
+
+	/**
+	 * Incremental version of {@link #contributions()}. Only the commits since the start of the last week of the known
+	 * commit history are retrieved, and the weeks from then on are replaced. If the last known week contains fewer
+	 * commits than before, the history was rewritten and all commits are retrieved again.
+	 * <p>
+	 * Example URL: https://gitlab.com/api/v4/projects/gitlab-org%2Fgitlab-shell/repository/commits?per_page=100&order=default&page=1&since=2024-01-07T00:00:00Z
+	 *
+	 * @param knownCommits the commit history scraped before, or null if there is none
+	 * @return the updated commit history
+	 */
+	public CommitsPerWeek contributionsSince(CommitsPerWeek knownCommits) throws IOException, InterruptedException, RsdResponseException {
+		if (knownCommits == null || knownCommits.isEmpty()) {
+			return contributions();
+		}
+
+		Instant lastKnownWeek = knownCommits.lastWeek();
+		CommitsPerWeek recentCommits = new CommitsPerWeek();
+		addCommitPages("&since=" + Utils.urlEncode(lastKnownWeek.toString()), recentCommits);
+
+		if (recentCommits.commitsInWeek(lastKnownWeek) < knownCommits.commitsInWeek(lastKnownWeek)) {
+			LOGGER.info("Commit history of {} was rewritten, retrieving all commits", projectPath);
+			return contributions();
+		}
+
+		knownCommits.replaceFrom(lastKnownWeek, recentCommits);
+		return knownCommits;
+	}
+
+	// When GitLab tells us the number of pages, the remaining pages are requested concurrently after the first one.
+	// Otherwise (GitLab leaves out the totals for more than 10,000 commits), we follow x-next-page one page at a time.
+	private void addCommitPages(String extraQueryParameters, CommitsPerWeek commits) throws IOException, InterruptedException, RsdResponseException {
+		HttpHeaders firstPageHeaders = addCommitPage(1, extraQueryParameters, commits);
+
+		OptionalInt totalPages = totalPages(firstPageHeaders);
+		if (totalPages.isPresent()) {
+			addCommitPagesConcurrently(totalPages.getAsInt(), extraQueryParameters, commits);
+			return;
+		}
+
+		String nextPage = firstPageHeaders.firstValue("x-next-page").orElseThrow();
+		while (!nextPage.isEmpty()) {
+			HttpHeaders headers = addCommitPage(Integer.parseInt(nextPage), extraQueryParameters, commits);
+			nextPage = headers.firstValue("x-next-page").orElseThrow();
+		}
+	}
+
+	private void addCommitPagesConcurrently(int totalPages, String extraQueryParameters, CommitsPerWeek commits) throws IOException, InterruptedException, RsdResponseException {
+		AtomicInteger nextPage = new AtomicInteger(2);
+		AtomicBoolean failed = new AtomicBoolean(false);
+		int workerCount = Math.min(Math.max(1, Config.gitlabCommitPageConcurrency()), totalPages - 1);
+		CompletableFuture<?>[] workers = new CompletableFuture[Math.max(0, workerCount)];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = CompletableFuture.runAsync(() -> {
+				for (int page = nextPage.getAndIncrement(); page <= totalPages && !failed.get(); page = nextPage.getAndIncrement()) {
+					try {
+						CommitsPerWeek pageCommits = new CommitsPerWeek();
+						addCommitPage(page, extraQueryParameters, pageCommits);
+						synchronized (commits) {
+							commits.addAll(pageCommits);
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						failed.set(true);
+						throw new CompletionException(e);
+					} catch (Exception e) {
+						failed.set(true);
+						throw new CompletionException(e);
+					}
+				}
+			}, ScraperExecutor.executor());
+		}
+
+		try {
+			CompletableFuture.allOf(workers).join();
+		} catch (CompletionException e) {
+			switch (e.getCause()) {
+				case RsdResponseException responseException -> throw responseException;
+				case RuntimeException runtimeException -> throw runtimeException;
+				case IOException ioException -> throw ioException;
+				case InterruptedException interruptedException -> throw interruptedException;
+				case null, default -> throw e;
 			}
+		}
+	}
+
+	static OptionalInt totalPages(HttpHeaders headers) {
+		Optional<String> totalPagesHeader = headers.firstValue("x-total-pages");
+		if (totalPagesHeader.isEmpty() || totalPagesHeader.get().isBlank()) {
+			return OptionalInt.empty();
+		}
+		try {
+			return OptionalInt.of(Integer.parseInt(totalPagesHeader.get().strip()));
+		} catch (NumberFormatException e) {
+			return OptionalInt.empty();
+		}
+	}
+
+	// Requests one page of commits and adds them to the given commits, the headers are returned for the pagination.
+	private HttpHeaders addCommitPage(int page, String extraQueryParameters, CommitsPerWeek commitsToFill) throws IOException, InterruptedException, RsdResponseException {
+		HttpRequest request = HttpRequest.newBuilder().GET()
+				.uri(URI.create(apiUri + "/projects/" + Utils.urlEncode(projectPath)
+						+ "/repository/commits?per_page=100&order=default&page=" + page + extraQueryParameters))
+				.timeout(Duration.ofSeconds(30))
+				.build();
+
+		HttpResponse<InputStream> response = HttpTransport.send(request, HttpResponse.BodyHandlers.ofInputStream());
+		try (InputStream body = response.body()) {
 			if (response.statusCode() == 429)
-				throw new RsdRateLimitException(429, response.uri(), response.body(), "API rate limit reached for GitLab");
+				throw new RsdRateLimitException(429, response.uri(), Utils.bodyAsString(body), "API rate limit reached for GitLab");
 			if (response.statusCode() == 404)
-				throw new RsdResponseException(404, response.uri(), response.body(), "Not found, is the repository URL correct?");
+				throw new RsdResponseException(404, response.uri(), Utils.bodyAsString(body), "Not found, is the repository URL correct?");
 
-			String body = response.body();
-			parseCommitPage(body, commits);
-
-			page = response.headers().firstValue("x-next-page").orElseThrow();
-			done = page.isEmpty();
+			parseCommitPage(new InputStreamReader(body, StandardCharsets.UTF_8), commitsToFill);
 		}
-		return commits;
+		return response.headers();
 	}
 
 	// Example URL: https://gitlab.com/api/v4/projects/gitlab-org%2Fgitlab-shell/repository/contributors
 	@Override
 	public Integer contributorCount() throws IOException, InterruptedException, RsdResponseException {
-		HttpResponse<String> httpResponse = Utils.getAsHttpResponse(apiUri + "/projects/" + Utils.urlEncode(projectPath) + "/repository/contributors");
+		HttpResponse<String> httpResponse = Utils.getCachedAsHttpResponse(apiUri + "/projects/" + Utils.urlEncode(projectPath) + "/repository/contributors");
 
 		if (httpResponse.statusCode() == 429)
 			throw new RsdRateLimitException(429, httpResponse.uri(), httpResponse.body(), "Rate limit reached for GitLab");
@@ -123,15 +239,34 @@ public class GitlabScraper implements GitScraper {
 	}
 
 	static void parseCommitPage(String json, CommitsPerWeek commitsToFill) {
-		JsonArray thisPageCommits = JsonParser.parseString(json).getAsJsonArray();
+		try {
+			parseCommitPage(new StringReader(json), commitsToFill);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
 
-		for (JsonElement element : thisPageCommits) {
-			JsonObject currentCommit = element.getAsJsonObject();
-			String timeString = currentCommit.getAsJsonPrimitive("committed_date").getAsString();
-			ZonedDateTime time = ZonedDateTime.parse(timeString);
+	// only the commit date is read, all other values of a commit are skipped
+	static void parseCommitPage(Reader json, CommitsPerWeek commitsToFill) throws IOException {
+		JsonReader reader = new JsonReader(json);
+
+		reader.beginArray();
+		while (reader.hasNext()) {
+			String timeString = null;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if (reader.nextName().equals("committed_date")) {
+					timeString = reader.nextString();
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
 
+			ZonedDateTime time = ZonedDateTime.parse(Objects.requireNonNull(timeString, "Commit without committed_date"));
 			commitsToFill.addCommits(time, 1);
 		}
+		reader.endArray();
 	}
 
 	static BasicGitData parseBasicData(String json) {
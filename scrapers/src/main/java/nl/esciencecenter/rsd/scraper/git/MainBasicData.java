@@ -8,13 +8,17 @@ package nl.esciencecenter.rsd.scraper.git;
 import nl.esciencecenter.rsd.scraper.Config;
 import nl.esciencecenter.rsd.scraper.RsdRateLimitException;
 import nl.esciencecenter.rsd.scraper.RsdResponseException;
+import nl.esciencecenter.rsd.scraper.ScraperExecutor;
 import nl.esciencecenter.rsd.scraper.Utils;
 
 import java.net.URI;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +28,10 @@ public class MainBasicData {
 	private static final Logger LOGGER = LoggerFactory.getLogger(MainBasicData.class);
 	
 	public static void main(String[] args) {
+		run();
+	}
+
+	public static void run() {
 		LOGGER.info("Start scraping basic Git data");
 		
 		long t1 = System.currentTimeMillis();
@@ -37,10 +45,77 @@ public class MainBasicData {
 	}
 
 	private static void scrapeGitHub() {
-		PostgrestConnector softwareInfoRepository = new PostgrestConnector(Config.backendBaseUrl() + "/repository_url", CodePlatformProvider.GITHUB);
+		if (!GithubCredentialPool.graphql().isEmpty()) {
+			scrapeGitHubInBatches();
+		} else {
+			scrapeGitHubPerRepository();
+		}
+	}
+
+	// The GraphQL API returns the data of many repositories in one request. It requires credentials, so without
+	// credentials we fall back to one REST request per repository.
+	private static void scrapeGitHubInBatches() {
+		PostgrestConnector softwareInfoRepository = new PostgrestConnector(Config.backendBaseUrl(), CodePlatformProvider.GITHUB);
+		Collection<BasicRepositoryData> dataToScrape = softwareInfoRepository.statsData(Config.maxRequestsGithub());
+		ZonedDateTime scrapedAt = ZonedDateTime.now();
+		GithubGraphqlScraper scraper = new GithubGraphqlScraper();
+		int batchSize = Config.githubGraphqlBatchSize();
+
+		List<GithubGraphqlScraper.Repository> repositories = new ArrayList<>();
+		for (BasicRepositoryData basicData : dataToScrape) {
+			GithubGraphqlScraper.Repository repository = GithubGraphqlScraper.repository(basicData.software(), basicData.url());
+			if (repository == null) {
+				Utils.saveErrorMessageInDatabase("Not a valid GitHub URL: " + basicData.url(), "repository_url", "basic_data_last_error", basicData.software().toString(), "software", scrapedAt, "basic_data_scraped_at");
+			} else {
+				repositories.add(repository);
+			}
+		}
+
+		Collection<BasicGitDatabaseData> scrapedBasicData = new ArrayList<>();
+		Collection<LanguagesData> scrapedLanguages = new ArrayList<>();
+		for (int from = 0; from < repositories.size(); from += batchSize) {
+			List<GithubGraphqlScraper.Repository> batch = repositories.subList(from, Math.min(from + batchSize, repositories.size()));
+			try {
+				GithubGraphqlScraper.BatchResult result = scraper.basicDataAndLanguages(batch);
+				result.data().forEach((software, data) -> {
+					BasicRepositoryData basicData = new BasicRepositoryData(software, null);
+					scrapedBasicData.add(new BasicGitDatabaseData(basicData, data.basicData(), scrapedAt));
+					scrapedLanguages.add(new LanguagesData(basicData, data.languages(), scrapedAt));
+				});
+				result.errors().forEach((software, e) -> {
+					Utils.saveExceptionInDatabase("GitHub basic data scraper", "repository_url", software, e);
+					Utils.saveErrorMessageInDatabase(e.getMessage(), "repository_url", "basic_data_last_error", software.toString(), "software", scrapedAt, "basic_data_scraped_at");
+				});
+			} catch (RsdRateLimitException e) {
+				// in case we hit the rate limit, we don't update the scraped_at time, so it gets scraped first next time
+				Utils.saveExceptionInDatabase("GitHub basic data scraper", "repository_url", null, e);
+				for (GithubGraphqlScraper.Repository repository : batch) {
+					Utils.saveErrorMessageInDatabase(e.getMessage(), "repository_url", "basic_data_last_error", repository.software().toString(), "software", null, null);
+				}
+			} catch (RsdResponseException e) {
+				Utils.saveExceptionInDatabase("GitHub basic data scraper", "repository_url", null, e);
+				for (GithubGraphqlScraper.Repository repository : batch) {
+					Utils.saveErrorMessageInDatabase(e.getMessage(), "repository_url", "basic_data_last_error", repository.software().toString(), "software", scrapedAt, "basic_data_scraped_at");
+				}
+			} catch (Exception e) {
+				Utils.saveExceptionInDatabase("GitHub basic data scraper", "repository_url", null, e);
+				for (GithubGraphqlScraper.Repository repository : batch) {
+					Utils.saveErrorMessageInDatabase("Unknown error", "repository_url", "basic_data_last_error", repository.software().toString(), "software", scrapedAt, "basic_data_scraped_at");
+				}
+			}
+		}
+
+		softwareInfoRepository.saveBasicData(scrapedBasicData, "GitHub basic data scraper");
+		// the languages come for free with the basic data, saving them means the languages scraper can skip these repositories
+		softwareInfoRepository.saveLanguagesData(scrapedLanguages, "GitHub programming languages scraper");
+	}
+
+	private static void scrapeGitHubPerRepository() {
+		PostgrestConnector softwareInfoRepository = new PostgrestConnector(Config.backendBaseUrl(), CodePlatformProvider.GITHUB);
 		Collection<BasicRepositoryData> dataToScrape = softwareInfoRepository.statsData(Config.maxRequestsGithub());
 		CompletableFuture<?>[] futures = new CompletableFuture[dataToScrape.size()];
 		ZonedDateTime scrapedAt = ZonedDateTime.now();
+		Collection<BasicGitDatabaseData> scrapedData = new ConcurrentLinkedQueue<>();
 		int i = 0;
 		for (BasicRepositoryData basicData : dataToScrape) {
 			CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
@@ -56,7 +131,7 @@ public class MainBasicData {
 					GithubScraper githubScraper = githubScraperOptional.get();
 					BasicGitData scrapedBasicData = githubScraper.basicData();
 					BasicGitDatabaseData updatedData = new BasicGitDatabaseData(basicData, scrapedBasicData, scrapedAt);
-					softwareInfoRepository.saveBasicData(updatedData);
+					scrapedData.add(updatedData);
 				} catch (RsdRateLimitException e) {
 					Utils.saveExceptionInDatabase("GitHub basic data scraper", "repository_url", basicData.software(), e);
 					Utils.saveErrorMessageInDatabase(e.getMessage(), "repository_url", "basic_data_last_error", basicData.software().toString(), "software", null, null);
@@ -67,18 +142,20 @@ public class MainBasicData {
 					Utils.saveExceptionInDatabase("GitHub basic data scraper", "repository_url", basicData.software(), e);
 					Utils.saveErrorMessageInDatabase("Unknown error", "repository_url", "basic_data_last_error", basicData.software().toString(), "software", scrapedAt, "basic_data_scraped_at");
 				}
-			});
+			}, ScraperExecutor.executor());
 			futures[i] = future;
 			i++;
 		}
 		CompletableFuture.allOf(futures).join();
+		softwareInfoRepository.saveBasicData(scrapedData, "GitHub basic data scraper");
 	}
 
 	private static void scrapeGitLab() {
-		PostgrestConnector softwareInfoRepository = new PostgrestConnector(Config.backendBaseUrl() + "/repository_url", CodePlatformProvider.GITLAB);
+		PostgrestConnector softwareInfoRepository = new PostgrestConnector(Config.backendBaseUrl(), CodePlatformProvider.GITLAB);
 		Collection<BasicRepositoryData> dataToScrape = softwareInfoRepository.statsData(Config.maxRequestsGithub());
 		CompletableFuture<?>[] futures = new CompletableFuture[dataToScrape.size()];
 		ZonedDateTime scrapedAt = ZonedDateTime.now();
+		Collection<BasicGitDatabaseData> scrapedData = new ConcurrentLinkedQueue<>();
 		int i = 0;
 		for (BasicRepositoryData basicData : dataToScrape) {
 			CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
@@ -91,7 +168,7 @@ public class MainBasicData {
 
 					BasicGitData scrapedBasicData = new GitlabScraper(apiUrl, projectPath).basicData();
 					BasicGitDatabaseData updatedData = new BasicGitDatabaseData(basicData, scrapedBasicData, scrapedAt);
-					softwareInfoRepository.saveBasicData(updatedData);
+					scrapedData.add(updatedData);
 				} catch (RsdRateLimitException e) {
 					Utils.saveExceptionInDatabase("GitLab basic data scraper", "repository_url", basicData.software(), e);
 					Utils.saveErrorMessageInDatabase(e.getMessage(), "repository_url", "basic_data_last_error", basicData.software().toString(), "software", null, null);
@@ -102,10 +179,11 @@ public class MainBasicData {
 					Utils.saveExceptionInDatabase("GitLab basic data scraper", "repository_url", basicData.software(), e);
 					Utils.saveErrorMessageInDatabase("Unknown error", "repository_url", "basic_data_last_error", basicData.software().toString(), "software", scrapedAt, "basic_data_scraped_at");
 				}
-			});
+			}, ScraperExecutor.executor());
 			futures[i] = future;
 			i++;
 		}
 		CompletableFuture.allOf(futures).join();
+		softwareInfoRepository.saveBasicData(scrapedData, "GitLab basic data scraper");
 	}
 }
@@ -10,13 +10,17 @@ package nl.esciencecenter.rsd.scraper.git;
 import nl.esciencecenter.rsd.scraper.Config;
 import nl.esciencecenter.rsd.scraper.RsdRateLimitException;
 import nl.esciencecenter.rsd.scraper.RsdResponseException;
+import nl.esciencecenter.rsd.scraper.ScraperExecutor;
 import nl.esciencecenter.rsd.scraper.Utils;
 
 import java.net.URI;
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.Collection;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 
 import org.slf4j.Logger;
@@ -25,8 +29,15 @@ import org.slf4j.LoggerFactory;
 public class MainCommits {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(MainCommits.class);
+	// revisits after 5, 10, 20, 40 and 80 seconds
+	private static final int MAX_REVISITS = 5;
+	private static final Duration FIRST_REVISIT_DELAY = Duration.ofSeconds(5);
 	
 	public static void main(String[] args) {
+		run();
+	}
+
+	public static void run() {
 		
 		LOGGER.info("Start scraping commits");
 		
@@ -41,12 +52,15 @@ public class MainCommits {
 	}
 
 	private static void scrapeGitLab() {
-		PostgrestConnector softwareInfoRepository = new PostgrestConnector(Config.backendBaseUrl() + "/repository_url", CodePlatformProvider.GITLAB);
-		Collection<BasicRepositoryData> dataToScrape = softwareInfoRepository.commitData(Config.maxRequestsGitLab());
+		PostgrestConnector softwareInfoRepository = new PostgrestConnector(Config.backendBaseUrl(), CodePlatformProvider.GITLAB);
+		Collection<CommitData> dataToScrape = softwareInfoRepository.commitDataWithHistory(Config.maxRequestsGitLab());
+		boolean fullRescan = Config.gitlabCommitsFullRescan();
 		CompletableFuture<?>[] futures = new CompletableFuture[dataToScrape.size()];
 		ZonedDateTime scrapedAt = ZonedDateTime.now();
+		Collection<CommitData> scrapedData = new ConcurrentLinkedQueue<>();
 		int i = 0;
-		for (BasicRepositoryData commitData : dataToScrape) {
+		for (CommitData storedData : dataToScrape) {
+			BasicRepositoryData commitData = storedData.basicData();
 			CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
 				try {
 					String repoUrl = commitData.url();
@@ -55,9 +69,11 @@ public class MainCommits {
 					String projectPath = repoUrl.replace("https://" + hostname + "/", "");
 					if (projectPath.endsWith("/")) projectPath = projectPath.substring(0, projectPath.length() - 1);
 
-					CommitsPerWeek scrapedCommits = new GitlabScraper(apiUrl, projectPath).contributions();
+					// only the commits since the last stored week are retrieved, unless a full rescan is requested
+					GitlabScraper gitlabScraper = new GitlabScraper(apiUrl, projectPath);
+					CommitsPerWeek scrapedCommits = fullRescan ? gitlabScraper.contributions() : gitlabScraper.contributionsSince(storedData.commitHistory());
 					CommitData updatedData = new CommitData(commitData, scrapedCommits, scrapedAt);
-					softwareInfoRepository.saveCommitData(updatedData);
+					scrapedData.add(updatedData);
 				} catch (RsdRateLimitException e) {
 					Utils.saveExceptionInDatabase("GitLab commit scraper", "repository_url", commitData.software(), e);
 					Utils.saveErrorMessageInDatabase(e.getMessage(), "repository_url", "commit_history_last_error", commitData.software().toString(), "software", null, null);
@@ -68,49 +84,53 @@ public class MainCommits {
 					Utils.saveExceptionInDatabase("GitLab commit scraper", "repository_url", commitData.software(), e);
 					Utils.saveErrorMessageInDatabase("Unknown error", "repository_url", "commit_history_last_error", commitData.software().toString(), "software", scrapedAt, "commit_history_scraped_at");
 				}
-			});
+			}, ScraperExecutor.executor());
 			futures[i] = future;
 			i++;
 		}
 		CompletableFuture.allOf(futures).join();
+		softwareInfoRepository.saveCommitData(scrapedData, "GitLab commit scraper");
 	}
 
 	private static void scrapeGitHub() {
-		PostgrestConnector softwareInfoRepository = new PostgrestConnector(Config.backendBaseUrl() + "/repository_url", CodePlatformProvider.GITHUB);
+		PostgrestConnector softwareInfoRepository = new PostgrestConnector(Config.backendBaseUrl(), CodePlatformProvider.GITHUB);
 		Collection<BasicRepositoryData> dataToScrape = softwareInfoRepository.commitData(Config.maxRequestsGithub());
 		CompletableFuture<?>[] futures = new CompletableFuture[dataToScrape.size()];
 		ZonedDateTime scrapedAt = ZonedDateTime.now();
+		Collection<CommitData> scrapedData = new ConcurrentLinkedQueue<>();
 		int i = 0;
 		for (BasicRepositoryData commitData : dataToScrape) {
-			CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-				try {
-					String repoUrl = commitData.url();
+			String repoUrl = commitData.url();
+			Optional<GithubScraper> githubScraperOptional = GithubScraper.create(repoUrl);
+			if (githubScraperOptional.isEmpty()) {
+				futures[i] = CompletableFuture.runAsync(() -> Utils.saveErrorMessageInDatabase("Not a valid GitHub URL: " + repoUrl, "repository_url", "commit_history_last_error", commitData.software().toString(), "software", scrapedAt, "commit_history_scraped_at"), ScraperExecutor.executor());
+				i++;
+				continue;
+			}
 
-					Optional<GithubScraper> githubScraperOptional = GithubScraper.create(repoUrl);
-					if (githubScraperOptional.isEmpty()) {
-						Utils.saveErrorMessageInDatabase("Not a valid GitHub URL: " + repoUrl, "repository_url", "commit_history_last_error", commitData.software().toString(), "software", scrapedAt, "commit_history_scraped_at");
-						return;
-					}
-
-					GithubScraper githubScraper = githubScraperOptional.get();
-					CommitsPerWeek scrapedCommits = githubScraper.contributions();
-					CommitData updatedData = new CommitData(commitData, scrapedCommits, scrapedAt);
-					softwareInfoRepository.saveCommitData(updatedData);
-				} catch (RsdRateLimitException e) {
-					// in case we hit the rate limit, we don't update the scraped_at time, so it gets scraped first next time
-					Utils.saveExceptionInDatabase("GitHub commit scraper", "repository_url", commitData.software(), e);
-					Utils.saveErrorMessageInDatabase(e.getMessage(), "repository_url", "commit_history_last_error", commitData.software().toString(), "software", null, null);
-				} catch (RsdResponseException e) {
-					Utils.saveExceptionInDatabase("GitHub commit scraper", "repository_url", commitData.software(), e);
-					Utils.saveErrorMessageInDatabase(e.getMessage(), "repository_url", "commit_history_last_error", commitData.software().toString(), "software", scrapedAt, "commit_history_scraped_at");
-				} catch (Exception e) {
-					Utils.saveExceptionInDatabase("GitHub commit scraper", "repository_url", commitData.software(), e);
-					Utils.saveErrorMessageInDatabase("Unknown error", "repository_url", "commit_history_last_error", commitData.software().toString(), "software", scrapedAt, "commit_history_scraped_at");
-				}
-			});
+			GithubScraper githubScraper = githubScraperOptional.get();
+			// GitHub answers with 202 while it computes the statistics, in that case we come back later in this run
+			CompletableFuture<Void> future = DelayedRevisit.untilNonNull(githubScraper::contributions, MAX_REVISITS, FIRST_REVISIT_DELAY)
+					.thenAccept(scrapedCommits -> scrapedData.add(new CommitData(commitData, scrapedCommits, scrapedAt)))
+					.exceptionally(throwable -> {
+						Throwable e = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+						if (e instanceof RsdRateLimitException rateLimitException) {
+							// in case we hit the rate limit, we don't update the scraped_at time, so it gets scraped first next time
+							Utils.saveExceptionInDatabase("GitHub commit scraper", "repository_url", commitData.software(), rateLimitException);
+							Utils.saveErrorMessageInDatabase(e.getMessage(), "repository_url", "commit_history_last_error", commitData.software().toString(), "software", null, null);
+						} else if (e instanceof RsdResponseException responseException) {
+							Utils.saveExceptionInDatabase("GitHub commit scraper", "repository_url", commitData.software(), responseException);
+							Utils.saveErrorMessageInDatabase(e.getMessage(), "repository_url", "commit_history_last_error", commitData.software().toString(), "software", scrapedAt, "commit_history_scraped_at");
+						} else {
+							Utils.saveExceptionInDatabase("GitHub commit scraper", "repository_url", commitData.software(), e instanceof Exception exception ? exception : new RuntimeException(e));
+							Utils.saveErrorMessageInDatabase("Unknown error", "repository_url", "commit_history_last_error", commitData.software().toString(), "software", scrapedAt, "commit_history_scraped_at");
+						}
+						return null;
+					});
 			futures[i] = future;
 			i++;
 		}
 		CompletableFuture.allOf(futures).join();
+		softwareInfoRepository.saveCommitData(scrapedData, "GitHub commit scraper");
 	}
 }
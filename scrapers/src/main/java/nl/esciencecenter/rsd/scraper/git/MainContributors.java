@@ -8,6 +8,7 @@ package nl.esciencecenter.rsd.scraper.git;
 import nl.esciencecenter.rsd.scraper.Config;
 import nl.esciencecenter.rsd.scraper.RsdRateLimitException;
 import nl.esciencecenter.rsd.scraper.RsdResponseException;
+import nl.esciencecenter.rsd.scraper.ScraperExecutor;
 import nl.esciencecenter.rsd.scraper.Utils;
 
 import java.net.URI;
@@ -15,6 +16,7 @@ import java.time.ZonedDateTime;
 import java.util.Collection;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +26,10 @@ public class MainContributors {
 	private static final Logger LOGGER = LoggerFactory.getLogger(MainContributors.class);
 	
 	public static void main(String[] args) {
+		run();
+	}
+
+	public static void run() {
 		LOGGER.info("Start scraping contributors");
 		
 		long t1 = System.currentTimeMillis();
@@ -37,10 +43,11 @@ public class MainContributors {
 	}
 
 	private static void scrapeGitHub() {
-		PostgrestConnector softwareInfoRepository = new PostgrestConnector(Config.backendBaseUrl() + "/repository_url", CodePlatformProvider.GITHUB);
+		PostgrestConnector softwareInfoRepository = new PostgrestConnector(Config.backendBaseUrl(), CodePlatformProvider.GITHUB);
 		Collection<BasicRepositoryData> dataToScrape = softwareInfoRepository.contributorData(Config.maxRequestsGithub());
 		CompletableFuture<?>[] futures = new CompletableFuture[dataToScrape.size()];
 		ZonedDateTime scrapedAt = ZonedDateTime.now();
+		Collection<ContributorDatabaseData> scrapedData = new ConcurrentLinkedQueue<>();
 		int i = 0;
 		for (BasicRepositoryData contributorData : dataToScrape) {
 			CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
@@ -56,7 +63,7 @@ public class MainContributors {
 					GithubScraper githubScraper = githubScraperOptional.get();
 					Integer scrapedContributorData = githubScraper.contributorCount();
 					ContributorDatabaseData updatedData = new ContributorDatabaseData(new BasicRepositoryData(contributorData.software(), null), scrapedContributorData, scrapedAt);
-					softwareInfoRepository.saveContributorCount(updatedData);
+					scrapedData.add(updatedData);
 				} catch (RsdRateLimitException e) {
 					// in case we hit the rate limit, we don't update the scraped_at time, so it gets scraped first next time
 					Utils.saveExceptionInDatabase("GitHub contributor scraper", "repository_url", contributorData.software(), e);
@@ -68,18 +75,20 @@ public class MainContributors {
 					Utils.saveExceptionInDatabase("GitHub contributor scraper", "repository_url", contributorData.software(), e);
 					Utils.saveErrorMessageInDatabase("Unknown error", "repository_url", "contributor_count_last_error", contributorData.software().toString(), "software", scrapedAt, "contributor_count_scraped_at");
 				}
-			});
+			}, ScraperExecutor.executor());
 			futures[i] = future;
 			i++;
 		}
 		CompletableFuture.allOf(futures).join();
+		softwareInfoRepository.saveContributorCount(scrapedData, "GitHub contributor scraper");
 	}
 
 	private static void scrapeGitLab() {
-		PostgrestConnector softwareInfoRepository = new PostgrestConnector(Config.backendBaseUrl() + "/repository_url", CodePlatformProvider.GITLAB);
+		PostgrestConnector softwareInfoRepository = new PostgrestConnector(Config.backendBaseUrl(), CodePlatformProvider.GITLAB);
 		Collection<BasicRepositoryData> dataToScrape = softwareInfoRepository.contributorData(Config.maxRequestsGithub());
 		CompletableFuture<?>[] futures = new CompletableFuture[dataToScrape.size()];
 		ZonedDateTime scrapedAt = ZonedDateTime.now();
+		Collection<ContributorDatabaseData> scrapedData = new ConcurrentLinkedQueue<>();
 		int i = 0;
 		for (BasicRepositoryData contributorData : dataToScrape) {
 			CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
@@ -92,7 +101,7 @@ public class MainContributors {
 
 					Integer scrapedContributorData = new GitlabScraper(apiUrl, projectPath).contributorCount();
 					ContributorDatabaseData updatedData = new ContributorDatabaseData(new BasicRepositoryData(contributorData.software(), null), scrapedContributorData, scrapedAt);
-					softwareInfoRepository.saveContributorCount(updatedData);
+					scrapedData.add(updatedData);
 				} catch (RsdRateLimitException e) {
 					// in case we hit the rate limit, we don't update the scraped_at time, so it gets scraped first next time
 					Utils.saveExceptionInDatabase("GitLab contributor scraper", "repository_url", contributorData.software(), e);
@@ -104,10 +113,11 @@ public class MainContributors {
 					Utils.saveExceptionInDatabase("GitLab contributor scraper", "repository_url", contributorData.software(), e);
 					Utils.saveErrorMessageInDatabase("Unknown error", "repository_url", "contributor_count_last_error", contributorData.software().toString(), "software", scrapedAt, "contributor_count_scraped_at");
 				}
-			});
+			}, ScraperExecutor.executor());
 			futures[i] = future;
 			i++;
 		}
 		CompletableFuture.allOf(futures).join();
+		softwareInfoRepository.saveContributorCount(scrapedData, "GitLab contributor scraper");
 	}
 }
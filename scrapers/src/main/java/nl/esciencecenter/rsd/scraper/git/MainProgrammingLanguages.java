@@ -8,6 +8,7 @@ package nl.esciencecenter.rsd.scraper.git;
 import nl.esciencecenter.rsd.scraper.Config;
 import nl.esciencecenter.rsd.scraper.RsdRateLimitException;
 import nl.esciencecenter.rsd.scraper.RsdResponseException;
+import nl.esciencecenter.rsd.scraper.ScraperExecutor;
 import nl.esciencecenter.rsd.scraper.Utils;
 
 import java.net.URI;
@@ -15,6 +16,7 @@ import java.time.ZonedDateTime;
 import java.util.Collection;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +26,10 @@ public class MainProgrammingLanguages {
 	private static final Logger LOGGER = LoggerFactory.getLogger(MainProgrammingLanguages.class);
 	
 	public static void main(String[] args) {
+		run();
+	}
+
+	public static void run() {
 		
 		LOGGER.info("Start scraping programming languages");
 		
@@ -38,10 +44,11 @@ public class MainProgrammingLanguages {
 	}
 
 	private static void scrapeGitLab() {
-		PostgrestConnector softwareInfoRepository = new PostgrestConnector(Config.backendBaseUrl() + "/repository_url", CodePlatformProvider.GITLAB);
+		PostgrestConnector softwareInfoRepository = new PostgrestConnector(Config.backendBaseUrl(), CodePlatformProvider.GITLAB);
 		Collection<BasicRepositoryData> dataToScrape = softwareInfoRepository.languagesData(Config.maxRequestsGitLab());
 		CompletableFuture<?>[] futures = new CompletableFuture[dataToScrape.size()];
 		ZonedDateTime scrapedAt = ZonedDateTime.now();
+		Collection<LanguagesData> scrapedData = new ConcurrentLinkedQueue<>();
 		int i = 0;
 		for (BasicRepositoryData programmingLanguageData : dataToScrape) {
 			CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
@@ -54,7 +61,7 @@ public class MainProgrammingLanguages {
 
 					String scrapedLanguages = new GitlabScraper(apiUrl, projectPath).languages();
 					LanguagesData updatedData = new LanguagesData(new BasicRepositoryData(programmingLanguageData.software(), null), scrapedLanguages, scrapedAt);
-					softwareInfoRepository.saveLanguagesData(updatedData);
+					scrapedData.add(updatedData);
 				} catch (RsdRateLimitException e) {
 					Utils.saveExceptionInDatabase("GitLab programming languages scraper", "repository_url", programmingLanguageData.software(), e);
 					Utils.saveErrorMessageInDatabase(e.getMessage(), "repository_url", "languages_last_error", programmingLanguageData.software().toString(), "software", null, null);
@@ -65,18 +72,20 @@ public class MainProgrammingLanguages {
 					Utils.saveExceptionInDatabase("GitLab programming languages scraper", "repository_url", programmingLanguageData.software(), e);
 					Utils.saveErrorMessageInDatabase("Unknown error", "repository_url", "languages_last_error", programmingLanguageData.software().toString(), "software", scrapedAt, "languages_scraped_at");
 				}
-			});
+			}, ScraperExecutor.executor());
 			futures[i] = future;
 			i++;
 		}
 		CompletableFuture.allOf(futures).join();
+		softwareInfoRepository.saveLanguagesData(scrapedData, "GitLab programming languages scraper");
 	}
 
 	private static void scrapeGithub() {
-		PostgrestConnector softwareInfoRepository = new PostgrestConnector(Config.backendBaseUrl() + "/repository_url", CodePlatformProvider.GITHUB);
+		PostgrestConnector softwareInfoRepository = new PostgrestConnector(Config.backendBaseUrl(), CodePlatformProvider.GITHUB);
 		Collection<BasicRepositoryData> dataToScrape = softwareInfoRepository.languagesData(Config.maxRequestsGithub());
 		CompletableFuture<?>[] futures = new CompletableFuture[dataToScrape.size()];
 		ZonedDateTime scrapedAt = ZonedDateTime.now();
+		Collection<LanguagesData> scrapedData = new ConcurrentLinkedQueue<>();
 		int i = 0;
 		for (BasicRepositoryData programmingLanguageData : dataToScrape) {
 			CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
@@ -92,7 +101,7 @@ public class MainProgrammingLanguages {
 					GithubScraper githubScraper = githubScraperOptional.get();
 					String scrapedLanguages = githubScraper.languages();
 					LanguagesData updatedData = new LanguagesData(new BasicRepositoryData(programmingLanguageData.software(), null), scrapedLanguages, scrapedAt);
-					softwareInfoRepository.saveLanguagesData(updatedData);
+					scrapedData.add(updatedData);
 				} catch (RsdRateLimitException e) {
 					Utils.saveExceptionInDatabase("GitHub programming languages scraper", "repository_url", programmingLanguageData.software(), e);
 					Utils.saveErrorMessageInDatabase(e.getMessage(), "repository_url", "languages_last_error", programmingLanguageData.software().toString(), "software", null, null);
@@ -103,10 +112,11 @@ public class MainProgrammingLanguages {
 					Utils.saveExceptionInDatabase("GitHub programming languages scraper", "repository_url", programmingLanguageData.software(), e);
 					Utils.saveErrorMessageInDatabase("Unknown error", "repository_url", "languages_last_error", programmingLanguageData.software().toString(), "software", scrapedAt, "languages_scraped_at");
 				}
-			});
+			}, ScraperExecutor.executor());
 			futures[i] = future;
 			i++;
 		}
 		CompletableFuture.allOf(futures).join();
+		softwareInfoRepository.saveLanguagesData(scrapedData, "GitHub programming languages scraper");
 	}
 }
@@ -10,21 +10,36 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import nl.esciencecenter.rsd.scraper.ScraperMetrics;
 import nl.esciencecenter.rsd.scraper.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 
 public class PostgrestConnector {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(PostgrestConnector.class);
+
+	private static final int BULK_SIZE = 500;
+	// the length of the *_last_error columns of the repository_url table
+	static final int MAX_ERROR_MESSAGE_LENGTH = 500;
+
 	private final String backendUrl;
+	private final String repositoryUrlEndpoint;
 	private final String filter;
 
 	public PostgrestConnector(String backendUrl, CodePlatformProvider codePlatform) {
 		this.backendUrl = Objects.requireNonNull(backendUrl);
+		this.repositoryUrlEndpoint = backendUrl + "/repository_url";
 		Objects.requireNonNull(codePlatform);
 		this.filter = "scraping_disabled_reason=is.null&code_platform=eq." + codePlatform.name().toLowerCase();
 	}
@@ -36,7 +51,7 @@ public class PostgrestConnector {
 	 * @return The data corresponding to the git repositories of which the programming languages data were scraped the longest time ago
 	 */
 	public Collection<BasicRepositoryData> languagesData(int limit) {
-		String data = Utils.getAsAdmin(backendUrl + "?" + filter + "&select=software,url&order=languages_scraped_at.asc.nullsfirst&limit=" + limit + "&" + Utils.atLeastOneHourAgoFilter("languages_scraped_at"));
+		String data = Utils.getAsAdmin(repositoryUrlEndpoint + "?" + filter + "&select=software,url&order=languages_scraped_at.asc.nullsfirst&limit=" + limit + "&" + Utils.atLeastOneHourAgoFilter("languages_scraped_at"));
 		return parseBasicJsonData(data);
 	}
 
@@ -47,10 +62,21 @@ public class PostgrestConnector {
 	 * @return The data corresponding to the git repositories of which the commit data were scraped the longest time ago
 	 */
 	public Collection<BasicRepositoryData> commitData(int limit) {
-		String data = Utils.getAsAdmin(backendUrl + "?" + filter + "&select=software,url&order=commit_history_scraped_at.asc.nullsfirst&limit=" + limit + "&" + Utils.atLeastOneHourAgoFilter("commit_history_scraped_at"));
+		String data = Utils.getAsAdmin(repositoryUrlEndpoint + "?" + filter + "&select=software,url&order=commit_history_scraped_at.asc.nullsfirst&limit=" + limit + "&" + Utils.atLeastOneHourAgoFilter("commit_history_scraped_at"));
 		return parseBasicJsonData(data);
 	}
 
+	/**
+	 * Fetch commit data from PostgREST, together with the commit history that was scraped before
+	 *
+	 * @param limit The number of rows requested from PostgREST
+	 * @return The data corresponding to the git repositories of which the commit data were scraped the longest time ago
+	 */
+	public Collection<CommitData> commitDataWithHistory(int limit) {
+		String data = Utils.getAsAdmin(repositoryUrlEndpoint + "?" + filter + "&select=software,url,commit_history,commit_history_scraped_at&order=commit_history_scraped_at.asc.nullsfirst&limit=" + limit + "&" + Utils.atLeastOneHourAgoFilter("commit_history_scraped_at"));
+		return parseCommitJsonData(data);
+	}
+
 	/**
 	 * Fetch basic data from PostgREST
 	 *
@@ -58,12 +84,12 @@ public class PostgrestConnector {
 	 * @return The data corresponding to the git repositories of which the basic data were scraped the longest time ago
 	 */
 	public Collection<BasicRepositoryData> statsData(int limit) {
-		String data = Utils.getAsAdmin(backendUrl + "?" + filter + "&select=software,url&order=basic_data_scraped_at.asc.nullsfirst&limit=" + limit + "&" + Utils.atLeastOneHourAgoFilter("basic_data_scraped_at"));
+		String data = Utils.getAsAdmin(repositoryUrlEndpoint + "?" + filter + "&select=software,url&order=basic_data_scraped_at.asc.nullsfirst&limit=" + limit + "&" + Utils.atLeastOneHourAgoFilter("basic_data_scraped_at"));
 		return parseBasicJsonData(data);
 	}
 
 	public Collection<BasicRepositoryData> contributorData(int limit) {
-		String data = Utils.getAsAdmin(backendUrl + "?" + filter + "&select=software,url&order=contributor_count_scraped_at.asc.nullsfirst&limit=" + limit + "&" + Utils.atLeastOneHourAgoFilter("contributor_count_scraped_at"));
+		String data = Utils.getAsAdmin(repositoryUrlEndpoint + "?" + filter + "&select=software,url&order=contributor_count_scraped_at.asc.nullsfirst&limit=" + limit + "&" + Utils.atLeastOneHourAgoFilter("contributor_count_scraped_at"));
 		return parseBasicJsonData(data);
 	}
 
@@ -81,42 +107,173 @@ public class PostgrestConnector {
 		return result;
 	}
 
-	public void saveLanguagesData(LanguagesData languagesData) {
-		String json = String.format("{\"languages_last_error\": null, \"languages\": %s, \"languages_scraped_at\": \"%s\"}", languagesData.languages(), languagesData.languagesScrapedAt().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
-		Utils.patchAsAdmin(backendUrl + "?software=eq." + languagesData.basicData().software().toString(), json);
+	static Collection<CommitData> parseCommitJsonData(String data) {
+		JsonArray dataInArray = JsonParser.parseString(data).getAsJsonArray();
+		Collection<CommitData> result = new ArrayList<>();
+		for (JsonElement element : dataInArray) {
+			JsonObject jsonObject = element.getAsJsonObject();
+			UUID software = UUID.fromString(jsonObject.getAsJsonPrimitive("software").getAsString());
+			String url = jsonObject.getAsJsonPrimitive("url").getAsString();
+			JsonElement commitHistoryElement = jsonObject.get("commit_history");
+			CommitsPerWeek commitHistory = commitHistoryElement == null || commitHistoryElement.isJsonNull() ? null : CommitsPerWeek.fromJson(commitHistoryElement.toString());
+			String scrapedAt = Utils.stringOrNull(jsonObject.get("commit_history_scraped_at"));
+
+			result.add(new CommitData(new BasicRepositoryData(software, url), commitHistory, scrapedAt == null ? null : ZonedDateTime.parse(scrapedAt)));
+		}
+		return result;
+	}
+
+	/**
+	 * Save the scraped programming languages in bulk. Rows that could not be saved are reported per row.
+	 *
+	 * @param languagesData the scraped data
+	 * @param serviceName   the name of the scraper, used when reporting failed rows
+	 */
+	public void saveLanguagesData(Collection<LanguagesData> languagesData, String serviceName) {
+		Collection<ScrapedRow> rows = new ArrayList<>(languagesData.size());
+		for (LanguagesData data : languagesData) {
+			JsonObject jsonObject = new JsonObject();
+			jsonObject.add("languages_last_error", JsonNull.INSTANCE);
+			jsonObject.add("languages", JsonParser.parseString(data.languages()));
+			jsonObject.addProperty("languages_scraped_at", data.languagesScrapedAt().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+			rows.add(new ScrapedRow(data.basicData().software(), jsonObject, data.languagesScrapedAt()));
+		}
+
+		saveInBulk(rows, serviceName, "languages_last_error", "languages_scraped_at");
+	}
+
+	/**
+	 * Save the scraped commit histories in bulk. Rows that could not be saved are reported per row.
+	 *
+	 * @param commitData  the scraped data
+	 * @param serviceName the name of the scraper, used when reporting failed rows
+	 */
+	public void saveCommitData(Collection<CommitData> commitData, String serviceName) {
+		Collection<ScrapedRow> rows = new ArrayList<>(commitData.size());
+		for (CommitData data : commitData) {
+			JsonObject jsonObject = new JsonObject();
+			jsonObject.add("commit_history_last_error", JsonNull.INSTANCE);
+			if (data.commitHistory() != null) {
+				data.commitHistory().addMissingZeros();
+				jsonObject.add("commit_history", JsonParser.parseString(data.commitHistory().toJson()));
+			}
+			jsonObject.addProperty("commit_history_scraped_at", data.commitHistoryScrapedAt().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+			rows.add(new ScrapedRow(data.basicData().software(), jsonObject, data.commitHistoryScrapedAt()));
+		}
+
+		saveInBulk(rows, serviceName, "commit_history_last_error", "commit_history_scraped_at");
+	}
+
+	/**
+	 * Save the scraped basic data in bulk. Rows that could not be saved are reported per row.
+	 *
+	 * @param basicData   the scraped data
+	 * @param serviceName the name of the scraper, used when reporting failed rows
+	 */
+	public void saveBasicData(Collection<BasicGitDatabaseData> basicData, String serviceName) {
+		Collection<ScrapedRow> rows = new ArrayList<>(basicData.size());
+		for (BasicGitDatabaseData data : basicData) {
+			JsonObject jsonObject = new JsonObject();
+			jsonObject.add("basic_data_last_error", JsonNull.INSTANCE);
+			jsonObject.addProperty("basic_data_scraped_at", data.dataScrapedAt().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+			jsonObject.addProperty("license", data.statsData().license);
+			jsonObject.addProperty("star_count", data.statsData().starCount);
+			jsonObject.addProperty("fork_count", data.statsData().forkCount);
+			jsonObject.addProperty("open_issue_count", data.statsData().openIssueCount);
+			rows.add(new ScrapedRow(data.basicData().software(), jsonObject, data.dataScrapedAt()));
+		}
+
+		saveInBulk(rows, serviceName, "basic_data_last_error", "basic_data_scraped_at");
 	}
 
-	public void saveCommitData(CommitData commitData) {
-		String json;
-		if (commitData.commitHistory() == null) {
-			json = String.format("{\"commit_history_last_error\": null, \"commit_history_scraped_at\": \"%s\"}", commitData.commitHistoryScrapedAt().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
-		} else {
-			commitData.commitHistory().addMissingZeros();
-			json = String.format("{\"commit_history_last_error\": null, \"commit_history\": %s, \"commit_history_scraped_at\": \"%s\"}", commitData.commitHistory().toJson(), commitData.commitHistoryScrapedAt().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+	/**
+	 * Save the scraped contributor counts in bulk. Rows that could not be saved are reported per row.
+	 *
+	 * @param contributorData the scraped data
+	 * @param serviceName     the name of the scraper, used when reporting failed rows
+	 */
+	public void saveContributorCount(Collection<ContributorDatabaseData> contributorData, String serviceName) {
+		Collection<ScrapedRow> rows = new ArrayList<>(contributorData.size());
+		for (ContributorDatabaseData data : contributorData) {
+			JsonObject jsonObject = new JsonObject();
+			jsonObject.add("contributor_count_last_error", JsonNull.INSTANCE);
+			jsonObject.addProperty("contributor_count_scraped_at", data.dataScrapedAt().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+			if (data.contributorCount() != null) {
+				jsonObject.addProperty("contributor_count", data.contributorCount());
+			}
+			rows.add(new ScrapedRow(data.basicData().software(), jsonObject, data.dataScrapedAt()));
 		}
-		Utils.patchAsAdmin(backendUrl + "?software=eq." + commitData.basicData().software().toString(), json);
+
+		saveInBulk(rows, serviceName, "contributor_count_last_error", "contributor_count_scraped_at");
 	}
 
-	public void saveBasicData(BasicGitDatabaseData basicData) {
-		JsonObject jsonObject = new JsonObject();
-		jsonObject.add("basic_data_last_error", JsonNull.INSTANCE);
-		jsonObject.addProperty("basic_data_scraped_at", basicData.dataScrapedAt().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
-		jsonObject.addProperty("license", basicData.statsData().license);
-		jsonObject.addProperty("star_count", basicData.statsData().starCount);
-		jsonObject.addProperty("fork_count", basicData.statsData().forkCount);
-		jsonObject.addProperty("open_issue_count", basicData.statsData().openIssueCount);
+	private record ScrapedRow(UUID software, JsonObject data, ZonedDateTime scrapedAt) {
+	}
 
-		Utils.patchAsAdmin(backendUrl + "?software=eq." + basicData.basicData().software().toString(), jsonObject.toString());
+	private void saveInBulk(Collection<ScrapedRow> rows, String serviceName, String errorColumnName, String scrapedAtColumnName) {
+		Map<UUID, ScrapedRow> rowsPerSoftware = new HashMap<>();
+		List<JsonObject> batch = new ArrayList<>(BULK_SIZE);
+		for (ScrapedRow row : rows) {
+			row.data().addProperty("software", row.software().toString());
+			rowsPerSoftware.put(row.software(), row);
+			batch.add(row.data());
+			if (batch.size() == BULK_SIZE) {
+				saveBatch(batch, rowsPerSoftware, serviceName, errorColumnName, scrapedAtColumnName);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()) {
+			saveBatch(batch, rowsPerSoftware, serviceName, errorColumnName, scrapedAtColumnName);
+		}
 	}
 
-	public void saveContributorCount(ContributorDatabaseData contributorData) {
-		JsonObject jsonObject = new JsonObject();
-		jsonObject.add("contributor_count_last_error", JsonNull.INSTANCE);
-		jsonObject.addProperty("contributor_count_scraped_at", contributorData.dataScrapedAt().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
-		if (contributorData.contributorCount() != null) {
-			jsonObject.addProperty("contributor_count", contributorData.contributorCount());
+	private void saveBatch(List<JsonObject> batch, Map<UUID, ScrapedRow> rowsPerSoftware, String serviceName, String errorColumnName, String scrapedAtColumnName) {
+		Map<UUID, String> failedRows;
+		try {
+			failedRows = bulkUpdate(batch);
+		} catch (RuntimeException e) {
+			// the scraped_at values are not updated, so these rows will be scraped again first in the next run
+			LOGGER.error("Failed to save a batch of {} rows of {}", batch.size(), serviceName, e);
+			Utils.saveExceptionInDatabase(serviceName, "repository_url", null, e);
+			return;
 		}
 
-		Utils.patchAsAdmin(backendUrl + "?software=eq." + contributorData.basicData().software().toString(), jsonObject.toString());
+		ScraperMetrics.instance().countItems(serviceName, ScraperMetrics.ItemOutcome.SCRAPED, batch.size() - failedRows.size());
+		for (Map.Entry<UUID, String> failedRow : failedRows.entrySet()) {
+			UUID software = failedRow.getKey();
+			ScrapedRow row = rowsPerSoftware.get(software);
+			ZonedDateTime scrapedAt = row != null ? row.scrapedAt() : null;
+			Utils.saveExceptionInDatabase(serviceName, "repository_url", software, new RuntimeException("Failed to save scraped data: " + failedRow.getValue()));
+			Utils.saveErrorMessageInDatabase(lastErrorMessage(failedRow.getValue()), "repository_url", errorColumnName, software.toString(), "software", scrapedAt, scrapedAtColumnName);
+		}
+	}
+
+	static String lastErrorMessage(String errorMessage) {
+		if (errorMessage == null || errorMessage.isBlank()) {
+			return "Unknown error";
+		}
+		return errorMessage.length() > MAX_ERROR_MESSAGE_LENGTH ? errorMessage.substring(0, MAX_ERROR_MESSAGE_LENGTH) : errorMessage;
+	}
+
+	private Map<UUID, String> bulkUpdate(List<JsonObject> batch) {
+		JsonArray rows = new JsonArray(batch.size());
+		batch.forEach(rows::add);
+		JsonObject body = new JsonObject();
+		body.add("data", rows);
+
+		String response = Utils.postAsAdmin(backendUrl + "/rpc/update_repository_url_scraped_data", body.toString());
+		return parseFailedRows(response);
+	}
+
+	static Map<UUID, String> parseFailedRows(String data) {
+		JsonArray dataInArray = JsonParser.parseString(data).getAsJsonArray();
+		Map<UUID, String> result = new HashMap<>();
+		for (JsonElement element : dataInArray) {
+			JsonObject jsonObject = element.getAsJsonObject();
+			UUID software = UUID.fromString(jsonObject.getAsJsonPrimitive("software_id").getAsString());
+			String message = Utils.stringOrNull(jsonObject.get("error_message"));
+			result.put(software, message);
+		}
+		return result;
 	}
 }
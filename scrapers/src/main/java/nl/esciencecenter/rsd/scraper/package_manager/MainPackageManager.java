@@ -8,6 +8,7 @@ package nl.esciencecenter.rsd.scraper.package_manager;
 import nl.esciencecenter.rsd.scraper.Config;
 import nl.esciencecenter.rsd.scraper.RsdRateLimitException;
 import nl.esciencecenter.rsd.scraper.RsdResponseException;
+import nl.esciencecenter.rsd.scraper.ScraperExecutor;
 import nl.esciencecenter.rsd.scraper.Utils;
 import nl.esciencecenter.rsd.scraper.package_manager.scrapers.AnacondaScraper;
 import nl.esciencecenter.rsd.scraper.package_manager.scrapers.CranScraper;
@@ -28,8 +29,6 @@ import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 public class MainPackageManager {
@@ -37,6 +36,10 @@ public class MainPackageManager {
 	private static final Logger LOGGER = LoggerFactory.getLogger(MainPackageManager.class);
 
 	public static void main(String[] args) {
+		run();
+	}
+
+	public static void run() {
 		LOGGER.info("Start scraping package manager data");
 
 		long t1 = System.currentTimeMillis();
@@ -61,8 +64,8 @@ public class MainPackageManager {
 			tasks.add(task);
 		}
 
-		try (ExecutorService executorService = Executors.newCachedThreadPool()) {
-			List<Future<Void>> completedTasks = executorService.invokeAll(tasks);
+		try {
+			List<Future<Void>> completedTasks = ScraperExecutor.executor().invokeAll(tasks);
 			for (Future<Void> completedTask : completedTasks) {
 				try {
 					completedTask.get();
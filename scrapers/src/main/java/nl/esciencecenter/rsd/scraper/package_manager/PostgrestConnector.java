@@ -9,6 +9,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import nl.esciencecenter.rsd.scraper.ScraperMetrics;
 import nl.esciencecenter.rsd.scraper.Utils;
 
 import java.time.ZonedDateTime;
@@ -43,11 +44,13 @@ public class PostgrestConnector {
 	public void saveDownloadCount(UUID id, Long count, ZonedDateTime scrapedAt) {
 		String json = "{\"download_count\": %s, \"download_count_scraped_at\": \"%s\", \"download_count_last_error\": null}".formatted(count, scrapedAt.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
 		Utils.patchAsAdmin(backendUrl + "?id=eq." + id, json);
+		ScraperMetrics.instance().countItems("Package manager downloads scraper", ScraperMetrics.ItemOutcome.SCRAPED, 1);
 	}
 
 	public void saveReverseDependencyCount(UUID id, Integer count, ZonedDateTime scrapedAt) {
 		String json = "{\"reverse_dependency_count\": %s, \"reverse_dependency_count_scraped_at\": \"%s\", \"reverse_dependency_count_last_error\": null}".formatted(count, scrapedAt.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
 		Utils.patchAsAdmin(backendUrl + "?id=eq." + id, json);
+		ScraperMetrics.instance().countItems("Package manager reverse dependencies scraper", ScraperMetrics.ItemOutcome.SCRAPED, 1);
 	}
 
 	Collection<BasicPackageManagerData> parseBasicJsonData(String json) {
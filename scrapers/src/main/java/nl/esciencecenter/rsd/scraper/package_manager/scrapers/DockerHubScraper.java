@@ -6,11 +6,11 @@
 package nl.esciencecenter.rsd.scraper.package_manager.scrapers;
 
 import com.google.gson.JsonParser;
+import nl.esciencecenter.rsd.scraper.HttpTransport;
 import nl.esciencecenter.rsd.scraper.RsdResponseException;
 
 import java.io.IOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
@@ -40,15 +40,12 @@ public class DockerHubScraper implements PackageManagerScraper {
 		String url;
 		if (owner.equals("_")) url = "https://hub.docker.com/v2/repositories/library/" + packageName;
 		else url = "https://hub.docker.com/v2/repositories/" + owner + "/" + packageName;
-		HttpClient client = HttpClient.newBuilder()
-				.followRedirects(HttpClient.Redirect.NORMAL)
-				.build();
 		HttpRequest request = HttpRequest.newBuilder(URI.create(url))
 				.timeout(Duration.ofSeconds(30))
 				.build();
 		String json;
 		try {
-			HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+			HttpResponse<String> response = HttpTransport.send(request);
 			json = switch (response.statusCode()) {
 				case 200 -> response.body();
 				default ->
@@ -6,12 +6,12 @@
 package nl.esciencecenter.rsd.scraper.package_manager.scrapers;
 
 import nl.esciencecenter.rsd.scraper.Config;
+import nl.esciencecenter.rsd.scraper.HttpTransport;
 import nl.esciencecenter.rsd.scraper.RsdRateLimitException;
 import nl.esciencecenter.rsd.scraper.RsdResponseException;
 
 import java.io.IOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
@@ -31,19 +31,15 @@ public interface PackageManagerScraper {
 		HttpRequest request = HttpRequest.newBuilder(URI.create(url))
 				.timeout(Duration.ofSeconds(30))
 				.build();
-		try (HttpClient client = HttpClient.newBuilder()
-				.followRedirects(HttpClient.Redirect.NORMAL)
-				.build();) {
-			HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-			return switch (response.statusCode()) {
-				case 429 ->
-						throw new RsdRateLimitException(429, request.uri(), response.body(), "Rate limit reached for libraries.io");
-				case 404 ->
-						throw new RsdResponseException(404, request.uri(), response.body(), "Not found, is the URL correct?");
-				case 200 -> response.body();
-				default ->
-						throw new RsdResponseException(response.statusCode(), response.uri(), response.body(), "Unexpected response");
-			};
-		}
+		HttpResponse<String> response = HttpTransport.send(request);
+		return switch (response.statusCode()) {
+			case 429 ->
+					throw new RsdRateLimitException(429, request.uri(), response.body(), "Rate limit reached for libraries.io");
+			case 404 ->
+					throw new RsdResponseException(404, request.uri(), response.body(), "Not found, is the URL correct?");
+			case 200 -> response.body();
+			default ->
+					throw new RsdResponseException(response.statusCode(), response.uri(), response.body(), "Unexpected response");
+		};
 	}
 }
@@ -9,13 +9,18 @@ package nl.esciencecenter.rsd.scraper.ror;
 
 import nl.esciencecenter.rsd.scraper.Config;
 import nl.esciencecenter.rsd.scraper.RsdResponseException;
+import nl.esciencecenter.rsd.scraper.ScraperExecutor;
 import nl.esciencecenter.rsd.scraper.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 public class MainRor {
@@ -24,6 +29,10 @@ public class MainRor {
 	private static final int SCRAPING_LIMIT = Config.maxRequestsRor();
 	
 	public static void main(String[] args) {
+		run();
+	}
+
+	public static void run() {
 		LOGGER.info("Start scraping ROR data.");
 		long t1 = System.currentTimeMillis();
 		scrapeLocationData();
@@ -33,9 +42,48 @@ public class MainRor {
 
 	private static void scrapeLocationData() {
 		RorPostgrestConnector organisationsInRSD = new RorPostgrestConnector();
-		Collection<BasicOrganisationData> organisationsToScrape = organisationsInRSD.organisationsWithoutLocation(SCRAPING_LIMIT);
-		CompletableFuture<?> [] futures = new CompletableFuture[organisationsToScrape.size()];
 		ZonedDateTime scrapedAt = ZonedDateTime.now();
+		Optional<RorDumpIndex> dumpIndex = loadDumpIndex();
+		if (dumpIndex.isEmpty()) {
+			scrapeFromApi(organisationsInRSD.organisationsWithoutLocation(SCRAPING_LIMIT), organisationsInRSD, scrapedAt);
+			return;
+		}
+
+		// the dump makes enriching cheap, so we do all organisations at once, and only use the API for the ones missing from it
+		Collection<BasicOrganisationDatabaseData> foundInDump = new ArrayList<>();
+		List<BasicOrganisationData> notInDump = new ArrayList<>();
+		for (BasicOrganisationData organisation : organisationsInRSD.organisationsWithoutLocation()) {
+			Optional<RorDumpIndex.RorOrganisation> rorOrganisation = dumpIndex.get().organisation(organisation.rorId());
+			if (rorOrganisation.isPresent()) {
+				BasicOrganisationData updatedOrganisationData = new BasicOrganisationData(organisation.id(), organisation.rorId(), rorOrganisation.get().country(), rorOrganisation.get().city());
+				foundInDump.add(new BasicOrganisationDatabaseData(updatedOrganisationData, scrapedAt));
+			} else {
+				notInDump.add(organisation);
+			}
+		}
+		LOGGER.info("Found {} organisations in the ROR dump, {} not", foundInDump.size(), notInDump.size());
+		organisationsInRSD.saveLocationDataInBulk(foundInDump, "ROR location scraper");
+
+		scrapeFromApi(notInDump.subList(0, Math.min(SCRAPING_LIMIT, notInDump.size())), organisationsInRSD, scrapedAt);
+	}
+
+	private static Optional<RorDumpIndex> loadDumpIndex() {
+		Optional<String> dumpFile = Config.rorDumpFile();
+		if (dumpFile.isEmpty()) {
+			return Optional.empty();
+		}
+
+		try {
+			return Optional.of(RorDumpIndex.load(Path.of(dumpFile.get())));
+		} catch (IOException | RuntimeException e) {
+			// the API still works without the dump
+			Utils.saveExceptionInDatabase("ROR location scraper", "organisation", null, new RuntimeException("Failed to read the ROR dump " + dumpFile.get(), e));
+			return Optional.empty();
+		}
+	}
+
+	private static void scrapeFromApi(Collection<BasicOrganisationData> organisationsToScrape, RorPostgrestConnector organisationsInRSD, ZonedDateTime scrapedAt) {
+		CompletableFuture<?> [] futures = new CompletableFuture[organisationsToScrape.size()];
 		int i = 0;
 		String tableName = "organisation";
 		String columnName = "ror_last_error";
@@ -61,7 +109,7 @@ public class MainRor {
 					Utils.saveExceptionInDatabase("ROR location scraper", tableName, organisation.id(), e);
 					Utils.saveErrorMessageInDatabase("Unknown error", tableName, columnName, organisation.id().toString(), primaryKeyName, scrapedAt, scrapedAtName);
 				}
-			});
+			}, ScraperExecutor.executor());
 			futures[i] = future;
 			i++;
 		}
@@ -0,0 +1,246 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.ror;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import nl.esciencecenter.rsd.scraper.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Index of the organisations in a data dump of ROR (https://ror.readme.io/docs/data-dump), with only the fields the
+ * scraper needs. The dump, either the zip file as published or the JSON file in it, is parsed as a stream, so the
+ * organisations are never all in memory as JSON. Both the v1 and the v2 schema are supported.
+ * <p>
+ * Parsing a dump takes a while, so the index is also saved next to the dump and read from there as long as it is not
+ * older than the dump.
+ */
+public class RorDumpIndex {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RorDumpIndex.class);
+
+	private static final String ROR_ID_PREFIX = "https://ror.org/";
+	private static final JsonPrimitive ROR_DISPLAY_TYPE = new JsonPrimitive("ror_display");
+	private static final Set<String> SELECTED_FIELDS = Set.of("id", "name", "names", "country", "addresses", "locations");
+	// the version of the format of the index file, change it when the format changes so that old index files are rebuilt
+	private static final int INDEX_FORMAT_VERSION = 1;
+
+	public record RorOrganisation(String country, String city, String name) {
+	}
+
+	// keys are the ROR ids without the https://ror.org/ prefix, in lower case
+	private final Map<String, RorOrganisation> organisationPerId;
+
+	RorDumpIndex(Map<String, RorOrganisation> organisationPerId) {
+		this.organisationPerId = organisationPerId;
+	}
+
+	/**
+	 * Loads the index of a dump, from the index file next to it if that is up-to-date, otherwise by parsing the dump.
+	 *
+	 * @param dumpFile the dump, a zip file or a JSON file
+	 * @return the index
+	 * @throws IOException if the dump cannot be read
+	 */
+	public static RorDumpIndex load(Path dumpFile) throws IOException {
+		Path indexFile = dumpFile.resolveSibling(dumpFile.getFileName() + ".index");
+		if (Files.isRegularFile(indexFile) && Files.getLastModifiedTime(indexFile).compareTo(Files.getLastModifiedTime(dumpFile)) >= 0) {
+			try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+				return readIndex(input);
+			} catch (IOException | RuntimeException e) {
+				LOGGER.warn("Ignoring unreadable ROR index {}", indexFile, e);
+			}
+		}
+
+		RorDumpIndex index = parseDump(dumpFile);
+		try {
+			// write to a temporary file first, so that a concurrent run never reads a partially written index
+			Path temporaryFile = Files.createTempFile(indexFile.toAbsolutePath().getParent(), "ror", ".tmp");
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+				index.write(output);
+			}
+			Files.move(temporaryFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			// e.g. when the dump is mounted read-only, the index is then built again on the next run
+			LOGGER.warn("Failed to save the ROR index {}", indexFile, e);
+		}
+		return index;
+	}
+
+	private static RorDumpIndex parseDump(Path dumpFile) throws IOException {
+		long start = System.currentTimeMillis();
+		RorDumpIndex index;
+		if (dumpFile.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".zip")) {
+			try (ZipFile zipFile = new ZipFile(dumpFile.toFile())) {
+				ZipEntry entry = jsonEntry(zipFile);
+				try (InputStream input = zipFile.getInputStream(entry)) {
+					index = parse(new InputStreamReader(input, StandardCharsets.UTF_8));
+				}
+			}
+		} else {
+			try (Reader reader = Files.newBufferedReader(dumpFile, StandardCharsets.UTF_8)) {
+				index = parse(reader);
+			}
+		}
+		LOGGER.info("Indexed {} organisations of ROR dump {} ({} ms)", index.size(), dumpFile, System.currentTimeMillis() - start);
+		return index;
+	}
+
+	// dumps since the introduction of the v2 schema contain a JSON file for both schemas, we prefer the v2 one
+	private static ZipEntry jsonEntry(ZipFile zipFile) throws IOException {
+		ZipEntry jsonEntry = null;
+		for (ZipEntry entry : zipFile.stream().toList()) {
+			String name = entry.getName().toLowerCase(Locale.ROOT);
+			if (name.endsWith("_schema_v2.json")) {
+				return entry;
+			}
+			if (name.endsWith(".json") && jsonEntry == null) {
+				jsonEntry = entry;
+			}
+		}
+		if (jsonEntry == null) {
+			throw new IOException("No JSON file found in ROR dump " + zipFile.getName());
+		}
+		return jsonEntry;
+	}
+
+	/**
+	 * Parses a dump, which is a JSON array of organisations.
+	 *
+	 * @param json the dump
+	 * @return the index
+	 * @throws IOException if the dump cannot be read
+	 */
+	static RorDumpIndex parse(Reader json) throws IOException {
+		Map<String, RorOrganisation> organisationPerId = new HashMap<>();
+		JsonReader reader = new JsonReader(json);
+		reader.beginArray();
+		while (reader.hasNext()) {
+			JsonObject organisationJson = Utils.readSelectedMembers(reader, SELECTED_FIELDS);
+			JsonElement id = organisationJson.get("id");
+			if (id != null && id.isJsonPrimitive()) {
+				organisationPerId.put(shortId(id.getAsString()), parseOrganisation(organisationJson));
+			}
+		}
+		reader.endArray();
+		return new RorDumpIndex(organisationPerId);
+	}
+
+	static RorOrganisation parseOrganisation(JsonObject organisationJson) {
+		// v2 schema
+		if (organisationJson.has("locations") || organisationJson.has("names")) {
+			String name = null;
+			for (JsonElement nameJson : arrayOrEmpty(organisationJson.get("names"))) {
+				JsonObject nameObject = nameJson.getAsJsonObject();
+				if (arrayOrEmpty(nameObject.get("types")).contains(ROR_DISPLAY_TYPE)) {
+					name = Utils.stringOrNull(nameObject.get("value"));
+				}
+			}
+			JsonArray locations = arrayOrEmpty(organisationJson.get("locations"));
+			JsonObject firstLocation = locations.isEmpty() ? null : objectOrNull(locations.get(0));
+			JsonObject geonamesDetails = firstLocation == null ? null : objectOrNull(firstLocation.get("geonames_details"));
+			String country = geonamesDetails == null ? null : Utils.stringOrNull(geonamesDetails.get("country_name"));
+			String city = geonamesDetails == null ? null : Utils.stringOrNull(geonamesDetails.get("name"));
+			return new RorOrganisation(country, city, name);
+		}
+
+		// v1 schema, as returned by the v1 API, see RorScraper
+		JsonObject countryJson = objectOrNull(organisationJson.get("country"));
+		String country = countryJson == null ? null : Utils.stringOrNull(countryJson.get("country_name"));
+		JsonArray addresses = arrayOrEmpty(organisationJson.get("addresses"));
+		JsonObject firstAddress = addresses.isEmpty() ? null : objectOrNull(addresses.get(0));
+		String city = firstAddress == null ? null : Utils.stringOrNull(firstAddress.get("city"));
+		return new RorOrganisation(country, city, Utils.stringOrNull(organisationJson.get("name")));
+	}
+
+	private static JsonArray arrayOrEmpty(JsonElement element) {
+		return element != null && element.isJsonArray() ? element.getAsJsonArray() : new JsonArray();
+	}
+
+	private static JsonObject objectOrNull(JsonElement element) {
+		return element != null && element.isJsonObject() ? element.getAsJsonObject() : null;
+	}
+
+	/**
+	 * @param rorId a ROR id, with or without the https://ror.org/ prefix
+	 * @return the id without the prefix, in lower case
+	 */
+	static String shortId(String rorId) {
+		String id = rorId.strip().toLowerCase(Locale.ROOT);
+		return id.startsWith(ROR_ID_PREFIX) ? id.substring(ROR_ID_PREFIX.length()) : id;
+	}
+
+	/**
+	 * @param rorId a ROR id, with or without the https://ror.org/ prefix
+	 * @return the organisation, or empty if it is not in the dump
+	 */
+	public Optional<RorOrganisation> organisation(String rorId) {
+		return Optional.ofNullable(organisationPerId.get(shortId(rorId)));
+	}
+
+	public int size() {
+		return organisationPerId.size();
+	}
+
+	void write(DataOutputStream output) throws IOException {
+		output.writeInt(INDEX_FORMAT_VERSION);
+		output.writeInt(organisationPerId.size());
+		for (Map.Entry<String, RorOrganisation> entry : organisationPerId.entrySet()) {
+			output.writeUTF(entry.getKey());
+			writeNullable(output, entry.getValue().country());
+			writeNullable(output, entry.getValue().city());
+			writeNullable(output, entry.getValue().name());
+		}
+	}
+
+	static RorDumpIndex readIndex(DataInputStream input) throws IOException {
+		int version = input.readInt();
+		if (version != INDEX_FORMAT_VERSION) {
+			throw new IOException("Unsupported ROR index version " + version);
+		}
+		int size = input.readInt();
+		Map<String, RorOrganisation> organisationPerId = HashMap.newHashMap(size);
+		for (int i = 0; i < size; i++) {
+			String id = input.readUTF();
+			organisationPerId.put(id, new RorOrganisation(readNullable(input), readNullable(input), readNullable(input)));
+		}
+		return new RorDumpIndex(organisationPerId);
+	}
+
+	private static void writeNullable(DataOutputStream output, String value) throws IOException {
+		output.writeBoolean(value != null);
+		if (value != null) {
+			output.writeUTF(value);
+		}
+	}
+
+	private static String readNullable(DataInputStream input) throws IOException {
+		return input.readBoolean() ? input.readUTF() : null;
+	}
+}
@@ -13,14 +13,21 @@ import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import nl.esciencecenter.rsd.scraper.Config;
+import nl.esciencecenter.rsd.scraper.ScraperMetrics;
 import nl.esciencecenter.rsd.scraper.Utils;
 
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public class RorPostgrestConnector {
+
+	private static final int BULK_SIZE = 500;
+
 	private final String backendUrl;
 
 	public RorPostgrestConnector() {
@@ -33,6 +40,12 @@ public class RorPostgrestConnector {
 		return parseBasicJsonData(data);
 	}
 
+	public Collection<BasicOrganisationData> organisationsWithoutLocation() {
+		String filter = "organisation?ror_id=not.is.null&or=(country.is.null,city.is.null)";
+		String data = Utils.getAsAdmin(backendUrl + "/" + filter);
+		return parseBasicJsonData(data);
+	}
+
 	static Collection<BasicOrganisationData> parseBasicJsonData(String data) {
 		JsonArray dataInArray = JsonParser.parseString(data).getAsJsonArray();
 		Collection<BasicOrganisationData> result = new ArrayList<>();
@@ -55,5 +68,59 @@ public class RorPostgrestConnector {
 		jsonObject.add("ror_last_error", JsonNull.INSTANCE);
 
 		Utils.patchAsAdmin(backendUrl + "/organisation?id=eq." + organisationData.basicData().id().toString(), jsonObject.toString());
+		ScraperMetrics.instance().countItems("ROR location scraper", ScraperMetrics.ItemOutcome.SCRAPED, 1);
+	}
+
+	/**
+	 * Saves the locations of many organisations at once. Organisations that could not be saved are reported per
+	 * organisation.
+	 *
+	 * @param organisationData the organisations with their locations
+	 * @param serviceName      the name of the scraper, used when reporting failed organisations
+	 */
+	public void saveLocationDataInBulk(Collection<BasicOrganisationDatabaseData> organisationData, String serviceName) {
+		List<BasicOrganisationDatabaseData> organisations = new ArrayList<>(organisationData);
+		for (int from = 0; from < organisations.size(); from += BULK_SIZE) {
+			List<BasicOrganisationDatabaseData> batch = organisations.subList(from, Math.min(from + BULK_SIZE, organisations.size()));
+			Map<UUID, String> failedRows;
+			try {
+				failedRows = bulkUpdate(batch);
+			} catch (RuntimeException e) {
+				// ror_scraped_at is not updated, so these organisations will be scraped again in the next run
+				Utils.saveExceptionInDatabase(serviceName, "organisation", null, e);
+				continue;
+			}
+
+			ScraperMetrics.instance().countItems(serviceName, ScraperMetrics.ItemOutcome.SCRAPED, batch.size() - failedRows.size());
+			failedRows.forEach((id, message) -> Utils.saveExceptionInDatabase(serviceName, "organisation", id, new RuntimeException("Failed to save ROR data: " + message)));
+		}
+	}
+
+	private Map<UUID, String> bulkUpdate(List<BasicOrganisationDatabaseData> batch) {
+		JsonArray rows = new JsonArray(batch.size());
+		for (BasicOrganisationDatabaseData organisation : batch) {
+			JsonObject row = new JsonObject();
+			row.addProperty("id", organisation.basicData().id().toString());
+			row.addProperty("country", organisation.basicData().country());
+			row.addProperty("city", organisation.basicData().city());
+			row.addProperty("ror_scraped_at", organisation.rorScrapedAt().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+			rows.add(row);
+		}
+		JsonObject body = new JsonObject();
+		body.add("data", rows);
+
+		String response = Utils.postAsAdmin(backendUrl + "/rpc/update_organisation_ror_data", body.toString());
+		return parseFailedRows(response);
+	}
+
+	static Map<UUID, String> parseFailedRows(String data) {
+		JsonArray dataInArray = JsonParser.parseString(data).getAsJsonArray();
+		Map<UUID, String> result = new HashMap<>();
+		for (JsonElement element : dataInArray) {
+			JsonObject jsonObject = element.getAsJsonObject();
+			UUID id = UUID.fromString(jsonObject.getAsJsonPrimitive("organisation_id").getAsString());
+			result.put(id, Utils.stringOrNull(jsonObject.get("error_message")));
+		}
+		return result;
 	}
 }
@@ -0,0 +1,60 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AdminJwtTest {
+
+	private static final long TEN_MINUTES_IN_MILLISECONDS = 10L * 60L * 1000L;
+
+	private final AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+	private final List<Runnable> scheduledRenewals = new ArrayList<>();
+	private final AdminJwt adminJwt = new AdminJwt("secret", TEN_MINUTES_IN_MILLISECONDS, clock::get, scheduledRenewals::add);
+
+	@Test
+	void givenFreshToken_whenGettingAgain_thenSameTokenReturnedWithoutRenewal() {
+		String first = adminJwt.get();
+		clock.addAndGet(60_000L);
+		String second = adminJwt.get();
+
+		Assertions.assertEquals(first, second);
+		Assertions.assertTrue(scheduledRenewals.isEmpty());
+	}
+
+	@Test
+	void givenTokenCloseToExpiry_whenGetting_thenCurrentTokenReturnedAndOneRenewalScheduled() {
+		String first = adminJwt.get();
+		clock.addAndGet(TEN_MINUTES_IN_MILLISECONDS - 90_000L);
+
+		String second = adminJwt.get();
+		String third = adminJwt.get();
+
+		Assertions.assertEquals(first, second);
+		Assertions.assertEquals(first, third);
+		Assertions.assertEquals(1, scheduledRenewals.size());
+
+		scheduledRenewals.getFirst().run();
+		String renewed = adminJwt.get();
+
+		Assertions.assertNotEquals(first, renewed);
+	}
+
+	@Test
+	void givenExpiredToken_whenGetting_thenNewTokenSignedImmediately() {
+		String first = adminJwt.get();
+		clock.addAndGet(TEN_MINUTES_IN_MILLISECONDS);
+
+		String second = adminJwt.get();
+
+		Assertions.assertNotEquals(first, second);
+		Assertions.assertTrue(scheduledRenewals.isEmpty());
+	}
+}
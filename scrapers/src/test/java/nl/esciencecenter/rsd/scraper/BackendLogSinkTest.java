@@ -0,0 +1,121 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class BackendLogSinkTest {
+
+	private static JsonObject entry(String message, String referenceId) {
+		JsonObject entry = new JsonObject();
+		entry.addProperty("service_name", "GitHub contributor scraper");
+		entry.addProperty("table_name", "repository_url");
+		entry.addProperty("reference_id", referenceId);
+		entry.addProperty("message", message);
+		entry.addProperty("stack_trace", "RsdRateLimitException: " + message + "\n\tat GithubScraper.contributorCount");
+		return entry;
+	}
+
+	@Test
+	void givenEntriesWithSameStackTrace_whenMerging_thenOneEntryWithOccurrencesAndReferenceIds() {
+		List<JsonObject> entries = List.of(
+				entry("Rate limit reached", "00000000-0000-0000-0000-000000000001"),
+				entry("Not found", "00000000-0000-0000-0000-000000000002"),
+				entry("Rate limit reached", "00000000-0000-0000-0000-000000000003"),
+				entry("Rate limit reached", "00000000-0000-0000-0000-000000000001")
+		);
+
+		List<JsonObject> merged = new ArrayList<>(BackendLogSink.mergeDuplicates(entries));
+
+		Assertions.assertEquals(2, merged.size());
+		JsonObject rateLimit = merged.get(0);
+		Assertions.assertEquals("00000000-0000-0000-0000-000000000001", rateLimit.get("reference_id").getAsString());
+		JsonObject otherData = rateLimit.getAsJsonObject("other_data");
+		Assertions.assertEquals(3, otherData.get("occurrences").getAsInt());
+		JsonArray otherReferenceIds = otherData.getAsJsonArray("other_reference_ids");
+		Assertions.assertEquals(1, otherReferenceIds.size());
+		Assertions.assertEquals("00000000-0000-0000-0000-000000000003", otherReferenceIds.get(0).getAsString());
+		Assertions.assertTrue(merged.get(1).get("other_data").isJsonNull());
+	}
+
+	@Test
+	void givenEntriesWithDifferentKeys_whenMerging_thenAllEntriesHaveSameKeys() {
+		JsonObject withOtherData = entry("Unexpected response", null);
+		JsonObject other = new JsonObject();
+		other.addProperty("status_code", 500);
+		withOtherData.add("other_data", other);
+		JsonObject minimal = new JsonObject();
+		minimal.addProperty("message", "Unknown error");
+
+		List<JsonObject> merged = new ArrayList<>(BackendLogSink.mergeDuplicates(List.of(withOtherData, minimal)));
+
+		Set<String> expectedKeys = Set.of("service_name", "table_name", "reference_id", "message", "stack_trace", "other_data");
+		Assertions.assertEquals(expectedKeys, merged.get(0).keySet());
+		Assertions.assertEquals(expectedKeys, merged.get(1).keySet());
+		Assertions.assertEquals(500, merged.get(0).getAsJsonObject("other_data").get("status_code").getAsInt());
+	}
+
+	@Test
+	void givenBufferedEntries_whenFlushing_thenOneBulkInsertWithAllEntries() {
+		List<String> inserts = new ArrayList<>();
+		BackendLogSink sink = new BackendLogSink(10, inserts::add);
+		sink.add(entry("Rate limit reached", "00000000-0000-0000-0000-000000000001"));
+		sink.add(entry("Not found", "00000000-0000-0000-0000-000000000002"));
+
+		sink.flush();
+		sink.flush();
+
+		Assertions.assertEquals(1, inserts.size());
+		JsonElement inserted = JsonParser.parseString(inserts.getFirst());
+		Assertions.assertEquals(2, inserted.getAsJsonArray().size());
+	}
+
+	@Test
+	void givenFullBuffer_whenAdding_thenEntryDroppedWithoutBlocking() {
+		List<String> inserts = new ArrayList<>();
+		BackendLogSink sink = new BackendLogSink(1, inserts::add);
+		sink.add(entry("First", null));
+		sink.add(entry("Second", null));
+
+		sink.flush();
+
+		JsonArray inserted = JsonParser.parseString(inserts.getFirst()).getAsJsonArray();
+		Assertions.assertEquals(1, inserted.size());
+		Assertions.assertEquals("First", inserted.get(0).getAsJsonObject().get("message").getAsString());
+	}
+
+	@Test
+	void givenFailingInsert_whenFlushingAgain_thenEntriesRetriedOnce() {
+		List<String> inserts = new ArrayList<>();
+		List<Boolean> failures = new ArrayList<>(List.of(true, true, false));
+		BackendLogSink sink = new BackendLogSink(10, json -> {
+			inserts.add(json);
+			if (failures.removeFirst()) {
+				throw new RuntimeException("Backend unavailable");
+			}
+		});
+		sink.add(entry("First", null));
+
+		Assertions.assertThrows(RuntimeException.class, sink::flush);
+		sink.add(entry("Second", null));
+		Assertions.assertThrows(RuntimeException.class, sink::flush);
+		sink.flush();
+
+		Assertions.assertEquals(3, inserts.size());
+		Assertions.assertEquals(2, JsonParser.parseString(inserts.get(1)).getAsJsonArray().size());
+		JsonArray lastInsert = JsonParser.parseString(inserts.get(2)).getAsJsonArray();
+		Assertions.assertEquals(1, lastInsert.size());
+		Assertions.assertEquals("Second", lastInsert.get(0).getAsJsonObject().get("message").getAsString());
+	}
+}
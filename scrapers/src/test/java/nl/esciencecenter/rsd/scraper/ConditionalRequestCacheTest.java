@@ -0,0 +1,118 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class ConditionalRequestCacheTest {
+
+	@Test
+	void givenStoredResponse_whenParsingBack_thenHeadersAndBodyKept() {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("https://api.github.com/repos/research-software-directory/RSD-as-a-service/languages")).build();
+		HttpHeaders headers = HttpHeaders.of(Map.of(
+				"etag", List.of("W/\"abc\""),
+				"link", List.of("<https://api.github.com/repositories/1/contributors?per_page=1&page=2>; rel=\"next\"")
+		), (name, value) -> true);
+		HttpResponse<String> response = new ConditionalRequestCache.CachedResponse(request, request.uri(), headers, "{\"Java\": 1200}");
+
+		HttpResponse<String> result = ConditionalRequestCache.parseCachedResponse(ConditionalRequestCache.toJson(response), request);
+
+		Assertions.assertEquals(200, result.statusCode());
+		Assertions.assertEquals(request.uri(), result.uri());
+		Assertions.assertEquals("{\"Java\": 1200}", result.body());
+		Assertions.assertEquals("W/\"abc\"", result.headers().firstValue("ETag").orElseThrow());
+		Assertions.assertEquals(headers.allValues("link"), result.headers().allValues("link"));
+	}
+
+	@Test
+	void givenUnmodifiedResource_whenRequestingAgain_thenConditionalRequestSentAndStoredResponseReturned() throws IOException, InterruptedException {
+		List<String> receivedValidators = new CopyOnWriteArrayList<>();
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/languages", exchange -> {
+			String validator = exchange.getRequestHeaders().getFirst("If-None-Match");
+			receivedValidators.add(String.valueOf(validator));
+			if ("\"v1\"".equals(validator)) {
+				exchange.sendResponseHeaders(304, -1);
+			} else {
+				byte[] body = "{\"Java\": 1200}".getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().add("ETag", "\"v1\"");
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream outputStream = exchange.getResponseBody()) {
+					outputStream.write(body);
+				}
+			}
+			exchange.close();
+		});
+		server.start();
+
+		try {
+			ConditionalRequestCache cache = new ConditionalRequestCache(Files.createTempDirectory("rsd-http-cache"));
+			HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getAddress().getPort() + "/languages")).build();
+
+			HttpResponse<String> first = cache.send(request);
+			HttpResponse<String> second = cache.send(request);
+
+			Assertions.assertEquals(List.of("null", "\"v1\""), receivedValidators);
+			Assertions.assertEquals(200, first.statusCode());
+			Assertions.assertEquals(200, second.statusCode());
+			Assertions.assertEquals(first.body(), second.body());
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	@Test
+	void givenRequestsWithDifferentCredentials_whenComputingKey_thenKeysDiffer() {
+		URI uri = URI.create("https://api.github.com/repos/research-software-directory/RSD-as-a-service");
+		HttpRequest withoutCredentials = HttpRequest.newBuilder(uri).build();
+		HttpRequest withToken1 = HttpRequest.newBuilder(uri).header("Authorization", "Bearer token1").build();
+		HttpRequest withToken2 = HttpRequest.newBuilder(uri).header("Authorization", "Bearer token2").build();
+
+		Assertions.assertNotEquals(ConditionalRequestCache.key(withoutCredentials), ConditionalRequestCache.key(withToken1));
+		Assertions.assertNotEquals(ConditionalRequestCache.key(withToken1), ConditionalRequestCache.key(withToken2));
+		Assertions.assertEquals(ConditionalRequestCache.key(withToken1), ConditionalRequestCache.key(HttpRequest.newBuilder(uri).header("Authorization", "Bearer token1").build()));
+		Assertions.assertFalse(ConditionalRequestCache.key(withToken1).contains("token1"));
+	}
+
+	@Test
+	void givenNotModifiedResponse_whenReplayingStoredResponse_thenRateLimitHeadersOfNotModifiedResponseUsed() {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("https://api.github.com/repos/research-software-directory/RSD-as-a-service")).build();
+		HttpHeaders storedHeaders = HttpHeaders.of(Map.of(
+				"etag", List.of("\"v1\""),
+				"x-ratelimit-remaining", List.of("4000"),
+				"x-ratelimit-reset", List.of("1700000000"),
+				"x-ratelimit-used", List.of("1000")
+		), (name, value) -> true);
+		HttpHeaders notModifiedHeaders = HttpHeaders.of(Map.of(
+				"X-RateLimit-Remaining", List.of("12"),
+				"X-RateLimit-Reset", List.of("1700003600"),
+				"etag", List.of("\"v2\"")
+		), (name, value) -> true);
+		ConditionalRequestCache.CachedResponse cached = new ConditionalRequestCache.CachedResponse(request, request.uri(), storedHeaders, "{}");
+
+		HttpResponse<String> result = ConditionalRequestCache.withRateLimitHeadersOf(cached, notModifiedHeaders);
+
+		Assertions.assertEquals("12", result.headers().firstValue("x-ratelimit-remaining").orElseThrow());
+		Assertions.assertEquals("1700003600", result.headers().firstValue("x-ratelimit-reset").orElseThrow());
+		Assertions.assertTrue(result.headers().firstValue("x-ratelimit-used").isEmpty());
+		Assertions.assertEquals("\"v1\"", result.headers().firstValue("etag").orElseThrow());
+		Assertions.assertEquals("{}", result.body());
+	}
+}
@@ -0,0 +1,44 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+public class HostPermitsTest {
+
+	@Test
+	void givenLimitsPerHost_whenParsing_thenValidLimitsReturned() {
+		Map<String, Integer> permitsPerHost = HostPermits.parsePermitsPerHost("api.github.com=8, gitlab.com = 4,invalid,zero=0,nan=x");
+
+		Assertions.assertEquals(Map.of("api.github.com", 8, "gitlab.com", 4), permitsPerHost);
+	}
+
+	@Test
+	void givenHostWithOwnLimit_whenGettingPermits_thenOwnLimitUsedAndDefaultForOthers() {
+		HostPermits hostPermits = new HostPermits(16, Map.of("api.github.com", 2));
+
+		Assertions.assertEquals(2, hostPermits.forHost("api.github.com").availablePermits());
+		Assertions.assertEquals(16, hostPermits.forHost("gitlab.com").availablePermits());
+		Assertions.assertSame(hostPermits.forHost("gitlab.com"), hostPermits.forHost("gitlab.com"));
+	}
+
+	@Test
+	void givenLimitWithUpperCaseHost_whenGettingPermits_thenLimitUsedRegardlessOfCase() {
+		HostPermits hostPermits = new HostPermits(16, HostPermits.parsePermitsPerHost("API.GitHub.com=2"));
+
+		Assertions.assertEquals(2, hostPermits.forHost("api.github.com").availablePermits());
+		Assertions.assertSame(hostPermits.forHost("api.github.com"), hostPermits.forHost("Api.GitHub.com"));
+	}
+
+	@Test
+	void givenDefaultLimitOfZero_whenGettingPermits_thenOnePermit() {
+		HostPermits hostPermits = new HostPermits(0, Map.of());
+
+		Assertions.assertEquals(1, hostPermits.forHost("gitlab.com").availablePermits());
+	}
+}
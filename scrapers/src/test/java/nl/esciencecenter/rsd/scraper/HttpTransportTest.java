@@ -0,0 +1,110 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+
+public class HttpTransportTest {
+
+	@Test
+	void givenPlainHttpRequest_whenSelectingVersion_thenHttp11UsedAndHeadersKept() {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://backend:3500/repository_url"))
+				.header("Authorization", "Bearer token")
+				.build();
+
+		HttpRequest result = HttpTransport.withSupportedVersion(request);
+
+		Assertions.assertEquals(HttpClient.Version.HTTP_1_1, result.version().orElseThrow());
+		Assertions.assertEquals("Bearer token", result.headers().firstValue("Authorization").orElseThrow());
+		Assertions.assertEquals(request.uri(), result.uri());
+	}
+
+	@Test
+	void givenHttpsRequest_whenSelectingVersion_thenRequestUnchanged() {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("https://api.github.com/repos/research-software-directory/RSD-as-a-service")).build();
+
+		HttpRequest result = HttpTransport.withSupportedVersion(request);
+
+		Assertions.assertSame(request, result);
+	}
+
+	@Test
+	void givenRequestsWithDifferentCredentials_whenComputingBudgetKey_thenKeysDifferAndDoNotContainCredentials() {
+		URI uri = URI.create("https://api.github.com/repos/research-software-directory/RSD-as-a-service");
+		HttpRequest withoutCredentials = HttpRequest.newBuilder(uri).build();
+		HttpRequest withFirstToken = HttpRequest.newBuilder(uri).header("Authorization", "bearer first-token").build();
+		HttpRequest withSecondToken = HttpRequest.newBuilder(uri).header("Authorization", "bearer second-token").build();
+
+		Assertions.assertEquals("api.github.com", HttpTransport.budgetKey(withoutCredentials));
+		Assertions.assertTrue(HttpTransport.budgetKey(withFirstToken).startsWith("api.github.com#"));
+		Assertions.assertNotEquals(HttpTransport.budgetKey(withFirstToken), HttpTransport.budgetKey(withSecondToken));
+		Assertions.assertFalse(HttpTransport.budgetKey(withFirstToken).contains("first-token"));
+	}
+
+	@Test
+	void givenRequestWithAuthorization_whenReplacingAuthorization_thenOnlyNewAuthorizationSent() {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("https://api.github.com/repos/research-software-directory/RSD-as-a-service"))
+				.header("Authorization", "Basic first")
+				.header("If-None-Match", "\"v1\"")
+				.build();
+
+		HttpRequest result = HttpTransport.withAuthorization(request, "Basic second");
+
+		Assertions.assertEquals(List.of("Basic second"), result.headers().allValues("Authorization"));
+		Assertions.assertEquals(List.of("\"v1\""), result.headers().allValues("If-None-Match"));
+	}
+
+	@Test
+	void givenBodyWithNonAsciiCharacters_whenCountingBytes_thenBytesCountedAndBodyUnchanged() {
+		String body = "Café €";
+		List<Long> counted = new ArrayList<>();
+		HttpResponse.ResponseInfo responseInfo = new HttpResponse.ResponseInfo() {
+			@Override
+			public int statusCode() {
+				return 200;
+			}
+
+			@Override
+			public HttpHeaders headers() {
+				return HttpHeaders.of(Map.of("content-type", List.of("text/plain; charset=utf-8")), (name, value) -> true);
+			}
+
+			@Override
+			public HttpClient.Version version() {
+				return HttpClient.Version.HTTP_2;
+			}
+		};
+
+		HttpResponse.BodySubscriber<String> subscriber = HttpTransport.countingBytes(HttpResponse.BodyHandlers.ofString(), counted::add).apply(responseInfo);
+		subscriber.onSubscribe(new Flow.Subscription() {
+			@Override
+			public void request(long n) {
+			}
+
+			@Override
+			public void cancel() {
+			}
+		});
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		subscriber.onNext(List.of(ByteBuffer.wrap(bytes, 0, 4), ByteBuffer.wrap(bytes, 4, bytes.length - 4)));
+		subscriber.onComplete();
+
+		Assertions.assertEquals(body, subscriber.getBody().toCompletableFuture().join());
+		Assertions.assertEquals(List.of(9L), counted);
+	}
+}
@@ -0,0 +1,145 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+public class RateLimiterTest {
+
+	private static final long NOW = 1_700_000_000_000L;
+	private static final URI GITHUB_URI = URI.create("https://api.github.com/repos/research-software-directory/RSD-as-a-service");
+
+	private final AtomicLong clock = new AtomicLong(NOW);
+	private final RateLimiter rateLimiter = new RateLimiter(60_000L, clock::get);
+
+	private static HttpHeaders headers(Map<String, String> values) {
+		return HttpHeaders.of(values.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> List.of(e.getValue()))), (name, value) -> true);
+	}
+
+	@Test
+	void givenHostWithoutRateLimitHeaders_whenReserving_thenNoWait() {
+		boolean rateLimited = rateLimiter.update(GITHUB_URI, headers(Map.of("content-type", "application/json")));
+
+		Assertions.assertFalse(rateLimited);
+		Assertions.assertEquals(0, rateLimiter.reserve("api.github.com"));
+		Assertions.assertEquals(0, rateLimiter.reserve("gitlab.com"));
+	}
+
+	@Test
+	void givenRemainingBudget_whenReservingMoreThanBurst_thenRequestsPacedOverWindow() {
+		// 100 requests left in the next 100 seconds, so one request per second with a burst of 10
+		rateLimiter.update(GITHUB_URI, headers(Map.of(
+				"x-ratelimit-remaining", "100",
+				"x-ratelimit-reset", String.valueOf(NOW / 1000 + 100)
+		)));
+
+		for (int i = 0; i < 10; i++) {
+			Assertions.assertEquals(0, rateLimiter.reserve("api.github.com"));
+		}
+		Assertions.assertEquals(1000, rateLimiter.reserve("api.github.com"));
+		Assertions.assertEquals(2000, rateLimiter.reserve("api.github.com"));
+
+		clock.addAndGet(2000);
+		Assertions.assertEquals(1000, rateLimiter.reserve("api.github.com"));
+	}
+
+	@Test
+	void givenResponsesWithinWindow_whenReservingAndUpdating_thenBurstNotRefilledAndWaitsGrow() {
+		String resetAt = String.valueOf(NOW / 1000 + 100);
+		rateLimiter.update(GITHUB_URI, headers(Map.of("x-ratelimit-remaining", "100", "x-ratelimit-reset", resetAt)));
+
+		long[] waits = new long[15];
+		for (int i = 0; i < waits.length; i++) {
+			waits[i] = rateLimiter.reserve("api.github.com");
+			rateLimiter.update(GITHUB_URI, headers(Map.of("x-ratelimit-remaining", String.valueOf(99 - i), "x-ratelimit-reset", resetAt)));
+		}
+
+		for (int i = 0; i < 10; i++) {
+			Assertions.assertEquals(0, waits[i]);
+		}
+		for (int i = 10; i < waits.length; i++) {
+			Assertions.assertTrue(waits[i] > waits[i - 1], "wait " + i + " should be longer than wait " + (i - 1));
+		}
+	}
+
+	@Test
+	void givenNewWindow_whenUpdating_thenBurstAvailableAgain() {
+		rateLimiter.update(GITHUB_URI, headers(Map.of("x-ratelimit-remaining", "10", "x-ratelimit-reset", String.valueOf(NOW / 1000 + 100))));
+		Assertions.assertEquals(0, rateLimiter.reserve("api.github.com"));
+		Assertions.assertTrue(rateLimiter.reserve("api.github.com") > 0);
+
+		rateLimiter.update(GITHUB_URI, headers(Map.of("x-ratelimit-remaining", "5000", "x-ratelimit-reset", String.valueOf(NOW / 1000 + 3600))));
+
+		Assertions.assertEquals(0, rateLimiter.reserve("api.github.com"));
+	}
+
+	@Test
+	void givenNoRemainingBudget_whenReserving_thenWaitUntilReset() {
+		boolean rateLimited = rateLimiter.update(GITHUB_URI, headers(Map.of(
+				"x-ratelimit-remaining", "0",
+				"x-ratelimit-reset", String.valueOf(NOW / 1000 + 30)
+		)));
+
+		Assertions.assertTrue(rateLimited);
+		Assertions.assertEquals(30_000, rateLimiter.reserve("api.github.com"));
+
+		clock.addAndGet(30_000);
+		Assertions.assertEquals(0, rateLimiter.reserve("api.github.com"));
+	}
+
+	@Test
+	void givenBudgetsPerKey_whenOneKeyExhausted_thenOtherKeyNotLimited() {
+		boolean rateLimited = rateLimiter.update("api.github.com#1", headers(Map.of(
+				"x-ratelimit-remaining", "0",
+				"x-ratelimit-reset", String.valueOf(NOW / 1000 + 30)
+		)));
+
+		Assertions.assertTrue(rateLimited);
+		Assertions.assertEquals(30_000, rateLimiter.reserve("api.github.com#1"));
+		Assertions.assertEquals(0, rateLimiter.reserve("api.github.com#2"));
+		Assertions.assertEquals(0, rateLimiter.reserve("api.github.com"));
+	}
+
+	@Test
+	void givenRetryAfter_whenReserving_thenWaitForRetryAfter() {
+		boolean rateLimited = rateLimiter.update(URI.create("https://gitlab.com/api/v4/projects"), headers(Map.of("Retry-After", "20")));
+
+		Assertions.assertTrue(rateLimited);
+		Assertions.assertEquals(20_000, rateLimiter.reserve("gitlab.com"));
+		Assertions.assertEquals(0, rateLimiter.reserve("api.github.com"));
+	}
+
+	@Test
+	void givenWaitLongerThanMaxPause_whenAcquiring_thenRateLimitExceptionThrown() {
+		rateLimiter.update(GITHUB_URI, headers(Map.of(
+				"x-ratelimit-remaining", "0",
+				"x-ratelimit-reset", String.valueOf(NOW / 1000 + 3600)
+		)));
+
+		Assertions.assertThrows(RsdRateLimitException.class, () -> rateLimiter.acquire(GITHUB_URI));
+	}
+
+	@Test
+	void givenResetValues_whenConvertingToEpochMillis_thenEpochAndDeltaSecondsSupported() {
+		Assertions.assertEquals(1_700_000_100_000L, RateLimiter.toEpochMillis(1_700_000_100L, NOW));
+		Assertions.assertEquals(NOW + 60_000L, RateLimiter.toEpochMillis(60, NOW));
+	}
+
+	@Test
+	void givenRetryAfterValues_whenParsing_thenSecondsAndHttpDatesSupported() {
+		Assertions.assertEquals(OptionalLong.of(NOW + 120_000L), RateLimiter.parseRetryAfter("120", NOW));
+		Assertions.assertEquals(OptionalLong.of(1_445_412_480_000L), RateLimiter.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT", NOW));
+		Assertions.assertEquals(OptionalLong.empty(), RateLimiter.parseRetryAfter("soon", NOW));
+	}
+}
@@ -0,0 +1,181 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+public class ResponseCacheTest {
+
+	private static final long NOW = 1_700_000_000_000L;
+	private static final Map<String, Duration> TIMES_TO_LIVE = Map.of("api.ror.org", Duration.ofHours(1));
+
+	private final AtomicLong clock = new AtomicLong(NOW);
+
+	private static HttpRequest rorRequest(String id) {
+		return HttpRequest.newBuilder(URI.create("https://api.ror.org/organizations/" + id)).build();
+	}
+
+	private static HttpResponse<String> response(HttpRequest request, String body) {
+		HttpHeaders headers = HttpHeaders.of(Map.of("content-type", List.of("application/json")), (name, value) -> true);
+		return new ConditionalRequestCache.CachedResponse(request, request.uri(), headers, body);
+	}
+
+	private static List<Path> files(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.toList();
+		}
+	}
+
+	@Test
+	void givenTimesToLive_whenParsing_thenValidEntriesKept() {
+		Map<String, Duration> result = ResponseCache.parseTimesToLive("api.ror.org=168, API.Crossref.org=24,invalid,libraries.io=soon");
+
+		Assertions.assertEquals(Map.of("api.ror.org", Duration.ofHours(168), "api.crossref.org", Duration.ofHours(24)), result);
+	}
+
+	@Test
+	void givenRequests_whenCheckingCacheable_thenOnlyGetRequestsToHostsWithTimeToLive() throws IOException {
+		ResponseCache cache = new ResponseCache(Files.createTempDirectory("response-cache"), TIMES_TO_LIVE, 1024, 1024, clock::get);
+
+		Assertions.assertTrue(cache.isCacheable(rorRequest("04tsk2644")));
+		Assertions.assertFalse(cache.isCacheable(HttpRequest.newBuilder(URI.create("https://api.github.com/repos/a/b")).build()));
+		Assertions.assertFalse(cache.isCacheable(HttpRequest.newBuilder(URI.create("https://api.ror.org/organizations")).POST(HttpRequest.BodyPublishers.noBody()).build()));
+	}
+
+	@Test
+	void givenStoredResponse_whenGettingWithinTimeToLive_thenServedFromMemoryAndAfterRestartFromDisk() throws IOException {
+		Path directory = Files.createTempDirectory("response-cache");
+		HttpRequest request = rorRequest("04tsk2644");
+		ResponseCache cache = new ResponseCache(directory, TIMES_TO_LIVE, 1024 * 1024, 1024 * 1024, clock::get);
+
+		Assertions.assertTrue(cache.get(request).isEmpty());
+		cache.put(request, response(request, "{\"name\": \"Netherlands eScience Center\"}"));
+		clock.addAndGet(Duration.ofMinutes(30).toMillis());
+
+		Assertions.assertEquals("{\"name\": \"Netherlands eScience Center\"}", cache.get(request).orElseThrow().body());
+		Assertions.assertEquals(new ResponseCache.Statistics(1, 0, 1, cache.statistics().memoryBytes(), cache.statistics().diskBytes()), cache.statistics());
+
+		ResponseCache restartedCache = new ResponseCache(directory, TIMES_TO_LIVE, 1024 * 1024, 1024 * 1024, clock::get);
+		HttpResponse<String> fromDisk = restartedCache.get(request).orElseThrow();
+		Assertions.assertEquals(200, fromDisk.statusCode());
+		Assertions.assertEquals("application/json", fromDisk.headers().firstValue("content-type").orElseThrow());
+		Assertions.assertEquals(1, restartedCache.statistics().diskHits());
+	}
+
+	@Test
+	void givenExpiredResponse_whenGetting_thenMiss() throws IOException {
+		HttpRequest request = rorRequest("04tsk2644");
+		ResponseCache cache = new ResponseCache(Files.createTempDirectory("response-cache"), TIMES_TO_LIVE, 1024 * 1024, 1024 * 1024, clock::get);
+		cache.put(request, response(request, "{}"));
+
+		clock.addAndGet(Duration.ofHours(1).toMillis());
+
+		Assertions.assertTrue(cache.get(request).isEmpty());
+		Assertions.assertEquals(1, cache.statistics().misses());
+	}
+
+	@Test
+	void givenUnsuccessfulResponse_whenStoring_thenNotCached() throws IOException {
+		HttpRequest request = rorRequest("does-not-exist");
+		ResponseCache cache = new ResponseCache(Files.createTempDirectory("response-cache"), TIMES_TO_LIVE, 1024 * 1024, 1024 * 1024, clock::get);
+
+		cache.put(request, new NotFoundResponse(request));
+
+		Assertions.assertTrue(cache.get(request).isEmpty());
+	}
+
+	private record NotFoundResponse(HttpRequest request) implements HttpResponse<String> {
+
+		@Override
+		public int statusCode() {
+			return 404;
+		}
+
+		@Override
+		public Optional<HttpResponse<String>> previousResponse() {
+			return Optional.empty();
+		}
+
+		@Override
+		public HttpHeaders headers() {
+			return HttpHeaders.of(Map.of(), (name, value) -> true);
+		}
+
+		@Override
+		public String body() {
+			return "{\"errors\": [\"Not found\"]}";
+		}
+
+		@Override
+		public Optional<SSLSession> sslSession() {
+			return Optional.empty();
+		}
+
+		@Override
+		public URI uri() {
+			return request.uri();
+		}
+
+		@Override
+		public HttpClient.Version version() {
+			return HttpClient.Version.HTTP_1_1;
+		}
+	}
+
+	@Test
+	void givenMoreResponsesThanFit_whenStoring_thenLeastRecentlyUsedEvicted() throws IOException {
+		Path directory = Files.createTempDirectory("response-cache");
+		String body = "x".repeat(100);
+		// room for two responses in memory, and for about two on disk
+		ResponseCache cache = new ResponseCache(directory, TIMES_TO_LIVE, 500, 400, clock::get);
+
+		cache.put(rorRequest("1"), response(rorRequest("1"), body));
+		clock.addAndGet(1000);
+		cache.put(rorRequest("2"), response(rorRequest("2"), body));
+		clock.addAndGet(1000);
+		Assertions.assertTrue(cache.get(rorRequest("1")).isPresent());
+		clock.addAndGet(1000);
+		cache.put(rorRequest("3"), response(rorRequest("3"), body));
+
+		Assertions.assertTrue(cache.statistics().memoryBytes() <= 500);
+		Assertions.assertTrue(cache.statistics().diskBytes() <= 400);
+		Assertions.assertTrue(files(directory).size() < 3);
+
+		ResponseCache restartedCache = new ResponseCache(directory, TIMES_TO_LIVE, 500, 400, clock::get);
+		Assertions.assertTrue(restartedCache.get(rorRequest("2")).isEmpty());
+		Assertions.assertTrue(restartedCache.get(rorRequest("3")).isPresent());
+	}
+
+	@Test
+	void givenApiKeyInUrl_whenStoring_thenUrlNotWrittenToDisk() throws IOException {
+		Path directory = Files.createTempDirectory("response-cache");
+		HttpRequest request = HttpRequest.newBuilder(URI.create("https://api.ror.org/organizations/04tsk2644?api_key=secret")).build();
+		ResponseCache cache = new ResponseCache(directory, TIMES_TO_LIVE, 1024 * 1024, 1024 * 1024, clock::get);
+
+		cache.put(request, response(request, "{}"));
+
+		List<Path> files = files(directory);
+		Assertions.assertEquals(1, files.size());
+		Assertions.assertFalse(Files.readString(files.getFirst()).contains("secret"));
+		Assertions.assertNotEquals(ResponseCache.key(request), ResponseCache.key(HttpRequest.newBuilder(request.uri()).header("User-Agent", "RSD").build()));
+	}
+}
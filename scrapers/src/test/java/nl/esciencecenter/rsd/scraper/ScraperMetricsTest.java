@@ -0,0 +1,84 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+public class ScraperMetricsTest {
+
+	private static HttpHeaders headers(Map<String, List<String>> headers) {
+		return HttpHeaders.of(headers, (name, value) -> true);
+	}
+
+	@Test
+	void givenHttpResponses_whenWritingText_thenCountersGaugesAndCumulativeBuckets() {
+		ScraperMetrics metrics = new ScraperMetrics();
+
+		metrics.recordHttpResponse("api.github.com", 200, 30_000_000, headers(Map.of("content-length", List.of("1000"), "x-ratelimit-remaining", List.of("4999"))));
+		metrics.countHttpResponseBytes("api.github.com", 1000);
+		metrics.recordHttpResponse("api.github.com", 200, 2_000_000_000L, headers(Map.of("x-ratelimit-remaining", List.of("4998"))));
+		metrics.countHttpResponseBytes("api.github.com", 500);
+		metrics.recordHttpResponse("api.github.com", 403, 200_000_000, headers(Map.of()));
+		metrics.countHttpResponseBytes("api.github.com", 0);
+		String text = metrics.toPrometheusText();
+
+		Assertions.assertTrue(text.contains("# TYPE rsd_scraper_http_responses_total counter\n"));
+		Assertions.assertTrue(text.contains("rsd_scraper_http_responses_total{host=\"api.github.com\",status=\"200\"} 2\n"));
+		Assertions.assertTrue(text.contains("rsd_scraper_http_responses_total{host=\"api.github.com\",status=\"403\"} 1\n"));
+		Assertions.assertTrue(text.contains("rsd_scraper_http_response_bytes_total{host=\"api.github.com\"} 1500\n"));
+		Assertions.assertTrue(text.contains("rsd_scraper_rate_limit_remaining{host=\"api.github.com\"} 4998\n"));
+		Assertions.assertTrue(text.contains("rsd_scraper_http_request_duration_seconds_bucket{host=\"api.github.com\",le=\"0.01\"} 0\n"));
+		Assertions.assertTrue(text.contains("rsd_scraper_http_request_duration_seconds_bucket{host=\"api.github.com\",le=\"0.05\"} 1\n"));
+		Assertions.assertTrue(text.contains("rsd_scraper_http_request_duration_seconds_bucket{host=\"api.github.com\",le=\"0.25\"} 2\n"));
+		Assertions.assertTrue(text.contains("rsd_scraper_http_request_duration_seconds_bucket{host=\"api.github.com\",le=\"2.5\"} 3\n"));
+		Assertions.assertTrue(text.contains("rsd_scraper_http_request_duration_seconds_bucket{host=\"api.github.com\",le=\"+Inf\"} 3\n"));
+		Assertions.assertTrue(text.contains("rsd_scraper_http_request_duration_seconds_count{host=\"api.github.com\"} 3\n"));
+	}
+
+	@Test
+	void givenSeriesOfOneMetric_whenWritingText_thenHeaderWrittenOnce() {
+		ScraperMetrics metrics = new ScraperMetrics();
+
+		metrics.countItems("Git scraper", ScraperMetrics.ItemOutcome.SCRAPED, 10);
+		metrics.countItems("Git scraper", ScraperMetrics.ItemOutcome.FAILED, 2);
+		metrics.countItems("Git scraper", ScraperMetrics.ItemOutcome.SKIPPED, 0);
+		String text = metrics.toPrometheusText();
+
+		Assertions.assertEquals("""
+				# HELP rsd_scraper_items_total Items per scraper that were scraped, failed or were skipped because of a rate limit.
+				# TYPE rsd_scraper_items_total counter
+				rsd_scraper_items_total{service="Git scraper",outcome="failed"} 2
+				rsd_scraper_items_total{service="Git scraper",outcome="scraped"} 10
+				""", text);
+	}
+
+	@Test
+	void givenLabelValueWithSpecialCharacters_whenEscaping_thenValidLabel() {
+		Assertions.assertEquals("a \\\"b\\\" \\\\ c\\n", ScraperMetrics.escape("a \"b\" \\ c\n"));
+		Assertions.assertEquals("", ScraperMetrics.escape(null));
+	}
+
+	@Test
+	void givenMetrics_whenWritingToFile_thenFileContainsText() throws IOException {
+		ScraperMetrics metrics = new ScraperMetrics();
+		metrics.recordJobRun("git", 1_000_000_000L, true);
+		metrics.recordPostgrestWrite("POST", "/rpc/update_repository_url_scraped_data", 50_000_000);
+		Path file = Files.createTempDirectory("metrics").resolve("scrapers.prom");
+
+		metrics.writeToFile(file);
+
+		Assertions.assertEquals(metrics.toPrometheusText(), Files.readString(file));
+		Assertions.assertTrue(Files.readString(file).contains("rsd_scraper_job_runs_total{job=\"git\",result=\"success\"} 1\n"));
+		Assertions.assertTrue(Files.readString(file).contains("rsd_scraper_postgrest_write_duration_seconds_count{method=\"POST\",endpoint=\"/rpc/update_repository_url_scraped_data\"} 1\n"));
+	}
+}
@@ -0,0 +1,60 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.doi;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public class CrossrefMentionRepositoryTest {
+
+	@Test
+	void givenDois_whenCreatingWorksUrl_thenDoisInFilterWithRowsAndSelect() {
+		String url = CrossrefMentionRepository.worksUrl(List.of("10.1000/a", "10.1000/B"), Optional.of("rsd@example.org"));
+
+		Assertions.assertEquals("https://api.crossref.org/works?filter=doi%3A10.1000%2Fa%2Cdoi%3A10.1000%2FB&rows=2"
+				+ "&select=DOI%2Ctitle%2Cauthor%2Cpublisher%2Cissued%2Ccontainer-title%2Cpage%2Ctype&mailto=rsd%40example.org", url);
+	}
+
+	@Test
+	void givenListOfWorks_whenParsing_thenMentionsWithRequestedDoisReturned() {
+		String json = """
+				{"status": "ok", "message-type": "work-list", "message": {"total-results": 3, "items": [
+					{"DOI": "10.1000/abc", "title": ["A title"], "author": [{"given": "Jane", "family": "Doe"}, {"family": "Roe"}],
+						"publisher": "A publisher", "issued": {"date-parts": [[2021, 3]]}, "container-title": ["A journal"], "type": "journal-article"},
+					{"DOI": "10.1000/def", "title": ["Another title"], "issued": {"date-parts": [[null]]}, "type": "not-a-type"},
+					{"DOI": "10.1000/no-title", "issued": {"date-parts": [[2020]]}, "type": "book"}
+				]}}""";
+		Instant scrapedAt = Instant.now();
+		Collection<RuntimeException> invalidWorks = new ArrayList<>();
+
+		List<MentionRecord> mentions = new ArrayList<>(CrossrefMentionRepository.parseWorks(json, List.of("10.1000/ABC", "10.1000/def", "10.1000/no-title"), scrapedAt, invalidWorks::add));
+
+		Assertions.assertEquals(2, mentions.size());
+		Assertions.assertEquals(1, invalidWorks.size());
+
+		MentionRecord first = mentions.get(0);
+		Assertions.assertEquals("10.1000/ABC", first.doi);
+		Assertions.assertEquals("A title", first.title);
+		Assertions.assertEquals("Jane Doe, Roe", first.authors);
+		Assertions.assertEquals("A publisher", first.publisher);
+		Assertions.assertEquals(2021, first.publicationYear);
+		Assertions.assertEquals("A journal", first.journal);
+		Assertions.assertEquals(MentionType.journalArticle, first.mentionType);
+		Assertions.assertEquals("Crossref", first.source);
+		Assertions.assertEquals(scrapedAt, first.scrapedAt);
+
+		MentionRecord second = mentions.get(1);
+		Assertions.assertEquals("10.1000/def", second.doi);
+		Assertions.assertNull(second.publicationYear);
+		Assertions.assertNull(second.journal);
+		Assertions.assertEquals(MentionType.other, second.mentionType);
+	}
+}
@@ -0,0 +1,67 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.doi;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class DataCiteReleaseRepositoryTest {
+
+	private static MentionRecord mention(String doi) {
+		MentionRecord mention = new MentionRecord();
+		mention.doi = doi;
+		return mention;
+	}
+
+	@Test
+	void givenConceptAndVersionDois_whenParsing_thenVersionDoisPerConceptDoiReturned() {
+		String json = """
+				{"data": {"works": {"nodes": [
+					{"doi": "10.5281/zenodo.1", "versionOfCount": 0, "relatedIdentifiers": [
+						{"relationType": "HasVersion", "relatedIdentifierType": "DOI", "relatedIdentifier": "10.5281/zenodo.2"},
+						{"relationType": "IsSupplementTo", "relatedIdentifierType": "URL", "relatedIdentifier": "https://github.com/a/b/tree/v1"}
+					]},
+					{"doi": "10.5281/zenodo.3", "versionOfCount": 1, "relatedIdentifiers": []}
+				]}}}""";
+
+		Map<String, Collection<String>> versionDois = DataCiteReleaseRepository.parseVersionDois(new StringReader(json));
+
+		Assertions.assertEquals(Map.of("10.5281/zenodo.1", List.of("10.5281/zenodo.2")), versionDois);
+	}
+
+	@Test
+	void givenVersionsOfAllConceptDois_whenGrouping_thenVersionsPerConceptDoiIgnoringCase() {
+		Map<String, Collection<String>> versionDois = Map.of(
+				"10.5281/zenodo.1", List.of("10.5281/zenodo.2", "10.5281/zenodo.3"),
+				"10.5281/zenodo.10", List.of()
+		);
+		List<MentionRecord> versions = List.of(mention("10.5281/ZENODO.2"), mention("10.5281/zenodo.3"));
+
+		Map<String, Collection<MentionRecord>> releases = DataCiteReleaseRepository.releasesPerConceptDoi(versionDois, versions);
+
+		Assertions.assertEquals(2, releases.get("10.5281/zenodo.1").size());
+		Assertions.assertTrue(releases.get("10.5281/zenodo.10").isEmpty());
+	}
+
+	@Test
+	void givenFailedConceptAndVersionDois_whenCollectingFailures_thenConceptDoisOfBothReported() {
+		Map<String, Collection<String>> versionDois = Map.of(
+				"10.5281/zenodo.1", List.of("10.5281/zenodo.2", "10.5281/zenodo.3"),
+				"10.5281/zenodo.10", List.of("10.5281/zenodo.11")
+		);
+
+		Set<String> failed = DataCiteReleaseRepository.failedConceptDois(Set.of("10.5281/zenodo.20"), versionDois, Set.of("10.5281/ZENODO.3"));
+
+		Assertions.assertEquals(2, failed.size());
+		Assertions.assertTrue(failed.contains("10.5281/zenodo.1"));
+		Assertions.assertTrue(failed.contains("10.5281/zenodo.20"));
+	}
+}
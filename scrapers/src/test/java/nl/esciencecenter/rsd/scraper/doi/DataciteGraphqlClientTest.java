@@ -0,0 +1,94 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.doi;
+
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class DataciteGraphqlClientTest {
+
+	// answers every request with the query it received, so the test can see which DOIs were in the chunk
+	private static InputStream echo(String body) {
+		String query = JsonParser.parseString(body).getAsJsonObject().get("query").getAsString();
+		return new ByteArrayInputStream(query.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String read(Reader json) throws IOException {
+		StringWriter writer = new StringWriter();
+		json.transferTo(writer);
+		return writer.toString();
+	}
+
+	@Test
+	void givenChunkFailingOnce_whenQuerying_thenChunkRetriedAndAllResultsReturned() {
+		Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+		Function<String, InputStream> post = body -> {
+			if (body.contains("10.1/c") && attempts.computeIfAbsent(body, b -> new AtomicInteger()).incrementAndGet() == 1) {
+				throw new RuntimeException("Error fetching data from endpoint");
+			}
+			return echo(body);
+		};
+		List<RuntimeException> failures = Collections.synchronizedList(new ArrayList<>());
+		DataciteGraphqlClient client = new DataciteGraphqlClient(2, 2, 1, post, failures::add);
+
+		List<String> results = client.query(List.of("10.1/a", "10.1/b", "10.1/c"), "[%s]", DataciteGraphqlClientTest::read);
+
+		Assertions.assertEquals(List.of("[\"10.1/a\",\"10.1/b\"]", "[\"10.1/c\"]"), results);
+		Assertions.assertTrue(failures.isEmpty());
+	}
+
+	@Test
+	void givenChunkFailingEveryAttempt_whenQuerying_thenOtherChunksReturnedAndFailureReported() {
+		AtomicInteger failingAttempts = new AtomicInteger();
+		Function<String, InputStream> post = body -> {
+			if (body.contains("10.1/c")) {
+				failingAttempts.incrementAndGet();
+				throw new RuntimeException("Error fetching data from endpoint");
+			}
+			return echo(body);
+		};
+		List<RuntimeException> failures = Collections.synchronizedList(new ArrayList<>());
+		DataciteGraphqlClient client = new DataciteGraphqlClient(2, 2, 1, post, failures::add);
+
+		List<String> results = client.query(List.of("10.1/a", "10.1/b", "10.1/c"), "[%s]", DataciteGraphqlClientTest::read);
+
+		Assertions.assertEquals(List.of("[\"10.1/a\",\"10.1/b\"]"), results);
+		Assertions.assertEquals(DataciteGraphqlClient.MAX_ATTEMPTS, failingAttempts.get());
+		Assertions.assertEquals(1, failures.size());
+	}
+
+	@Test
+	void givenChunkFailingEveryAttempt_whenQueryingReportingFailures_thenDoisOfFailedChunkReported() {
+		Function<String, InputStream> post = body -> {
+			if (body.contains("10.1/d")) {
+				throw new RuntimeException("Error fetching data from endpoint");
+			}
+			return echo(body);
+		};
+		DataciteGraphqlClient client = new DataciteGraphqlClient(2, 2, 1, post, e -> {});
+
+		DataciteGraphqlClient.QueryResult<String> result = client.queryReportingFailures(List.of("10.1/a", "10.1/b", "10.1/C", "10.1/d"), "[%s]", DataciteGraphqlClientTest::read);
+
+		Assertions.assertEquals(List.of("[\"10.1/a\",\"10.1/b\"]"), result.results());
+		Assertions.assertEquals(2, result.failedDois().size());
+		Assertions.assertTrue(result.failedDois().contains("10.1/c"));
+		Assertions.assertTrue(result.failedDois().contains("10.1/d"));
+	}
+}
@@ -8,6 +8,7 @@ package nl.esciencecenter.rsd.scraper.doi;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.StringReader;
 import java.util.Collection;
 import java.util.List;
 
@@ -21,4 +22,40 @@ public class DataciteMentionRepositoryTest {
 
 		Assertions.assertEquals("\"abc\",\"def\",\"ghij\"", joinedString);
 	}
+
+	@Test
+	void givenResponseWithDuplicateWorks_whenParsing_thenUniqueMentionsReturned() throws Exception {
+		String work = """
+				{
+					"doi": "%s",
+					"types": {"resourceType": "", "resourceTypeGeneral": "Software"},
+					"version": "1.0.0",
+					"relatedIdentifiers": [],
+					"titles": [{"title": "Some software"}],
+					"publisher": {"name": "Zenodo"},
+					"publicationYear": 2024,
+					"registered": "2024-01-02T03:04:05Z",
+					"creators": [{"givenName": "Jane", "familyName": "Doe"}],
+					"contributors": [{"givenName": null, "familyName": "Doe"}]
+				}""";
+		String json = """
+				{"data": {"works": {"totalCount": 3, "nodes": [%s, %s, %s]}}}""".formatted(
+				work.formatted("10.5281/zenodo.1"), work.formatted("10.5281/ZENODO.1"), work.formatted("10.5281/zenodo.2"));
+
+		Collection<MentionRecord> mentions = DataciteMentionRepository.jsonToUniqueMentions(new StringReader(json));
+
+		Assertions.assertEquals(2, mentions.size());
+		MentionRecord mention = mentions.iterator().next();
+		Assertions.assertEquals("10.5281/zenodo.1", mention.doi);
+		Assertions.assertEquals("Jane Doe, Doe", mention.authors);
+		Assertions.assertEquals(MentionType.computerProgram, mention.mentionType);
+	}
+
+	@Test
+	void givenResponseWithoutData_whenParsing_thenExceptionThrown() {
+		String json = """
+				{"data": null, "errors": [{"message": "Internal server error"}]}""";
+
+		Assertions.assertThrows(RuntimeException.class, () -> DataciteMentionRepository.jsonToUniqueMentions(new StringReader(json)));
+	}
 }
@@ -0,0 +1,71 @@
+// SPDX-FileCopyrightText: 2022 Ewan Cahen (Netherlands eScience Center) <e.cahen@esciencecenter.nl>
+// SPDX-FileCopyrightText: 2022 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.doi;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public class DoiRegistrationAgencyRepositoryTest {
+
+	@Test
+	void givenValidDoiSourceData_whenParsing_thenMapReturned() {
+		String validDoiSourceData = """
+				[
+				  {
+				    "DOI": "10.5240/B1FA-0EEC-C316-3316-3A73-L",
+				    "RA": "EIDR"
+				  },
+				  {
+				    "DOI": "notADoi",
+				    "status": "Invalid DOI"
+				  },
+				  {
+				    "DOI": "10.5281/zenodo.1436372",
+				    "RA": "DataCite"
+				  },
+				  {
+				    "DOI": "10.5281/zenodo.2633819",
+				    "RA": "DataCite"
+				  },
+				  {
+				    "DOI": "10.5281/zenodo.5825192",
+				    "RA": "DataCite"
+				  },
+				  {
+				    "DOI": "10.35802/218300",
+				    "RA": "Crossref"
+				  }
+				]""";
+
+		Map<String, String> doiToAgency = DoiRegistrationAgencyRepository.parseRegistrationAgencies(validDoiSourceData);
+		Assertions.assertEquals(5, doiToAgency.size());
+		Assertions.assertEquals("EIDR", doiToAgency.get("10.5240/B1FA-0EEC-C316-3316-3A73-L"));
+		Assertions.assertFalse(doiToAgency.containsKey("notADoi"));
+		Assertions.assertEquals("DataCite", doiToAgency.get("10.5281/zenodo.1436372"));
+		Assertions.assertEquals("DataCite", doiToAgency.get("10.5281/zenodo.2633819"));
+		Assertions.assertEquals("DataCite", doiToAgency.get("10.5281/zenodo.5825192"));
+		Assertions.assertEquals("Crossref", doiToAgency.get("10.35802/218300"));
+	}
+
+	@Test
+	void givenDois_whenChunkingByEncodedLength_thenChunksStayWithinMaximumLength() {
+		// each of these is 21 characters encoded (10.5281%2Fzenodo.1111), plus 10 for the separators makes 31, so two fit in 70
+		List<String> dois = List.of("10.5281/zenodo.1111", "10.5281/zenodo.2222", "10.5281/zenodo.3333", "10.5281/zenodo.4444", "10.5281/zenodo.5555");
+
+		List<List<String>> chunks = DoiRegistrationAgencyRepository.chunksByEncodedLength(dois, 70);
+
+		Assertions.assertEquals(List.of(
+				List.of("10.5281/zenodo.1111", "10.5281/zenodo.2222"),
+				List.of("10.5281/zenodo.3333", "10.5281/zenodo.4444"),
+				List.of("10.5281/zenodo.5555")
+		), chunks);
+		Assertions.assertEquals(List.of(List.of("10.5281/zenodo.1111"), List.of("10.5281/zenodo.2222")), DoiRegistrationAgencyRepository.chunksByEncodedLength(dois.subList(0, 2), 10));
+		Assertions.assertTrue(DoiRegistrationAgencyRepository.chunksByEncodedLength(List.of(), 10).isEmpty());
+	}
+}
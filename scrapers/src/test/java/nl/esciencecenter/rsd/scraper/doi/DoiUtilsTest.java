@@ -0,0 +1,28 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.doi;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class DoiUtilsTest {
+
+	@Test
+	void givenDoisWithDuplicates_whenChunking_thenDuplicatesIgnoringCaseRemoved() {
+		List<List<String>> chunks = DoiUtils.chunks(List.of("10.1/a", "10.1/B", "10.1/A", "10.1/c", "10.1/b"), 2);
+
+		Assertions.assertEquals(List.of(List.of("10.1/a", "10.1/B"), List.of("10.1/c")), chunks);
+	}
+
+	@Test
+	void givenDoisWithNull_whenChunking_thenNullIgnored() {
+		List<List<String>> chunks = DoiUtils.chunks(Arrays.asList("10.1/a", null, "10.1/b"), 5);
+
+		Assertions.assertEquals(List.of(List.of("10.1/a", "10.1/b")), chunks);
+	}
+}
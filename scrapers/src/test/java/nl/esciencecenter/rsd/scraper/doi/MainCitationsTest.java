@@ -0,0 +1,122 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.doi;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+public class MainCitationsTest {
+
+	private static MentionRecord mention(String doi, String externalId) {
+		MentionRecord mention = new MentionRecord();
+		mention.doi = doi;
+		mention.externalId = externalId;
+		mention.source = "OpenAlex";
+		return mention;
+	}
+
+	@Test
+	void givenPagesOfCitations_whenScraping_thenPagesSavedInOrderAndCitationsSaved() {
+		Collection<String> knownDois = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+		knownDois.add("10.1000/known");
+		CitationData citationData = new CitationData(UUID.randomUUID(), "10.1000/cited", knownDois, null, null);
+
+		OpenAlexCitations openAlexCitations = new OpenAlexCitations() {
+			@Override
+			public void citationPages(String doi, String email, UUID id, String extraFilter, Consumer<Collection<MentionRecord>> pageConsumer) {
+				Assertions.assertNull(extraFilter);
+				pageConsumer.accept(new ArrayList<>(List.of(mention("10.1000/a", "W1"), mention("10.1000/KNOWN", "W2"))));
+				pageConsumer.accept(new ArrayList<>(List.of(mention(null, "W3"))));
+				pageConsumer.accept(new ArrayList<>(List.of(mention("10.1000/a", "W1"))));
+			}
+		};
+		List<String> savedExternalIds = Collections.synchronizedList(new ArrayList<>());
+		MentionRepository mentionRepository = new MentionRepository() {
+			@Override
+			public Collection<MentionRecord> leastRecentlyScrapedMentions(int limit) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public Collection<MentionRecord> mentionData(Collection<String> dois) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void save(Collection<MentionRecord> mentions) {
+				for (MentionRecord mention : mentions) {
+					savedExternalIds.add(mention.externalId);
+					mention.id = UUID.nameUUIDFromBytes(mention.externalId.getBytes());
+				}
+			}
+		};
+		List<Collection<UUID>> savedCitations = new ArrayList<>();
+		PostgrestCitationRepository citationRepository = new PostgrestCitationRepository("http://backend") {
+			@Override
+			public void saveCitations(String backendUrl, UUID idCitedMention, Collection<UUID> citingMentions, ZonedDateTime scrapedAt, boolean fullScrape) {
+				Assertions.assertEquals(citationData.id, idCitedMention);
+				Assertions.assertTrue(fullScrape);
+				savedCitations.add(citingMentions);
+			}
+		};
+
+		StageTimings timings = MainCitations.scrapeCitations(citationData, openAlexCitations, null, mentionRepository, citationRepository, "http://backend", ZonedDateTime.now());
+
+		Assertions.assertEquals(List.of("W1", "W3", "W1"), savedExternalIds);
+		Assertions.assertEquals(1, savedCitations.size());
+		Assertions.assertEquals(Set.of(UUID.nameUUIDFromBytes("W1".getBytes()), UUID.nameUUIDFromBytes("W3".getBytes())), Set.copyOf(savedCitations.getFirst()));
+		Assertions.assertEquals(2, savedCitations.getFirst().size());
+		Assertions.assertFalse(timings.duration(MainCitations.STAGE_SAVING_MENTIONS).isNegative());
+	}
+
+	@Test
+	void givenReferencePapers_whenDecidingOnFullRefresh_thenNeverScrapedAndStalePapersAlwaysAndOthersOncePerPeriod() {
+		LocalDate today = LocalDate.of(2024, 6, 15);
+		ZonedDateTime yesterday = today.minusDays(1).atStartOfDay(ZoneOffset.UTC);
+
+		Assertions.assertTrue(MainCitations.isFullRefresh(new CitationData(UUID.randomUUID(), "10.1000/a", List.of(), null, null), today, 14));
+		Assertions.assertTrue(MainCitations.isFullRefresh(new CitationData(UUID.randomUUID(), "10.1000/a", List.of(), yesterday, null), today, 14));
+		Assertions.assertTrue(MainCitations.isFullRefresh(new CitationData(UUID.randomUUID(), "10.1000/a", List.of(), yesterday, today.minusDays(20).atStartOfDay(ZoneOffset.UTC)), today, 14));
+		Assertions.assertTrue(MainCitations.isFullRefresh(new CitationData(UUID.randomUUID(), "10.1000/a", List.of(), yesterday, yesterday), today, 1));
+
+		CitationData scrapedYesterday = new CitationData(UUID.randomUUID(), "10.1000/a", List.of(), yesterday, yesterday);
+		int fullRefreshes = 0;
+		for (int day = 0; day < 14; day++) {
+			if (MainCitations.isFullRefresh(scrapedYesterday, today.plusDays(day), 14)) {
+				fullRefreshes++;
+			}
+		}
+		Assertions.assertEquals(1, fullRefreshes);
+	}
+
+	@Test
+	void givenPaperScrapedIncrementallyEvery7Days_whenDecidingOnFullRefresh_thenFullRefreshWithinEachPeriod() {
+		LocalDate start = LocalDate.of(2024, 6, 15);
+		for (int paper = 0; paper < 20; paper++) {
+			UUID id = UUID.randomUUID();
+			ZonedDateTime fullScrapedAt = start.atStartOfDay(ZoneOffset.UTC);
+			for (int day = 7; day < 365; day += 7) {
+				LocalDate today = start.plusDays(day);
+				CitationData citationData = new CitationData(id, "10.1000/a", List.of(), today.minusDays(7).atStartOfDay(ZoneOffset.UTC), fullScrapedAt);
+				if (MainCitations.isFullRefresh(citationData, today, 14)) {
+					fullScrapedAt = today.atStartOfDay(ZoneOffset.UTC);
+				}
+				Assertions.assertFalse(fullScrapedAt.toLocalDate().isBefore(today.minusDays(14)));
+			}
+		}
+	}
+}
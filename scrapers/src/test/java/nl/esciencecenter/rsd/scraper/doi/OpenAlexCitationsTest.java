@@ -10,7 +10,13 @@ import com.google.gson.JsonObject;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.StringReader;
 import java.net.URI;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 public class OpenAlexCitationsTest {
 
@@ -27,4 +33,99 @@ public class OpenAlexCitationsTest {
 		Assertions.assertNotNull(result);
 		Assertions.assertEquals("https://www.example.com/path%5Cwith%5Cslash", result.toString());
 	}
+
+	@Test
+	void givenPageOfWorks_whenParsing_thenMentionsAndNextCursorReturned() throws Exception {
+		String json = """
+				{
+					"meta": {"count": 2, "per_page": 200, "next_cursor": "IlsxMDAsIDIwXSI="},
+					"results": [
+						{
+							"id": "https://openalex.org/W1",
+							"doi": "https://doi.org/10.1234/abc",
+							"title": "A citing work",
+							"abstract_inverted_index": {"A": [0], "citing": [1], "work": [2]},
+							"referenced_works": ["https://openalex.org/W3"],
+							"authorships": [{"raw_author_name": "Jane Doe", "institutions": []}, {"raw_author_name": "John Doe"}],
+							"publication_year": 2023,
+							"type_crossref": "journal-article",
+							"ids": {"openalex": "https://openalex.org/W1", "doi": "https://doi.org/10.1234/abc"},
+							"locations": []
+						},
+						{
+							"id": "https://openalex.org/W2",
+							"doi": null,
+							"title": null,
+							"authorships": [],
+							"ids": {"openalex": "https://openalex.org/W2"},
+							"locations": []
+						}
+					],
+					"group_by": []
+				}""";
+		List<MentionRecord> mentions = new ArrayList<>();
+		List<RuntimeException> invalidCitations = new ArrayList<>();
+		Instant now = Instant.now();
+
+		String nextCursor = OpenAlexCitations.parseCitationsPage(new StringReader(json), now, mentions, invalidCitations::add);
+
+		Assertions.assertEquals("IlsxMDAsIDIwXSI=", nextCursor);
+		Assertions.assertEquals(1, mentions.size());
+		MentionRecord mention = mentions.get(0);
+		Assertions.assertEquals("10.1234/abc", mention.doi);
+		Assertions.assertEquals("A citing work", mention.title);
+		Assertions.assertEquals("Jane Doe, John Doe", mention.authors);
+		Assertions.assertEquals(2023, mention.publicationYear);
+		Assertions.assertEquals(MentionType.journalArticle, mention.mentionType);
+		Assertions.assertEquals("https://openalex.org/W1", mention.externalId);
+		Assertions.assertEquals(now, mention.scrapedAt);
+		Assertions.assertEquals(1, invalidCitations.size());
+	}
+
+	@Test
+	void givenLastPageOfWorks_whenParsing_thenNoNextCursorReturned() throws Exception {
+		String json = """
+				{"results": [], "meta": {"count": 0, "next_cursor": null}}""";
+
+		String nextCursor = OpenAlexCitations.parseCitationsPage(new StringReader(json), Instant.now(), new ArrayList<>(), e -> {
+			throw e;
+		});
+
+		Assertions.assertNull(nextCursor);
+	}
+
+	@Test
+	void givenLastScrape_whenCreatingIncrementalFilter_thenCreationDateWithApiKeyAndPublicationDateWithout() {
+		ZonedDateTime lastScrapedAt = ZonedDateTime.of(2024, 3, 10, 1, 30, 0, 0, ZoneOffset.ofHours(2));
+
+		Assertions.assertEquals("from_created_date:2024-03-08", OpenAlexCitations.incrementalFilter(lastScrapedAt, true, 30));
+		Assertions.assertEquals("from_publication_date:2024-02-08", OpenAlexCitations.incrementalFilter(lastScrapedAt, false, 30));
+	}
+
+	@Test
+	void givenCitationsUri_whenAddingFilter_thenFilterCombinedWithExistingFilter() {
+		Assertions.assertEquals("https://api.openalex.org/works?filter=cites:W123,from_created_date:2024-03-08",
+				OpenAlexCitations.withExtraFilter("https://api.openalex.org/works?filter=cites:W123", "from_created_date:2024-03-08"));
+		Assertions.assertEquals("https://api.openalex.org/works?filter=cites:W123,from_created_date:2024-03-08&sort=id",
+				OpenAlexCitations.withExtraFilter("https://api.openalex.org/works?filter=cites:W123&sort=id", "from_created_date:2024-03-08"));
+		Assertions.assertEquals("https://api.openalex.org/works?sort=id&filter=from_created_date:2024-03-08",
+				OpenAlexCitations.withExtraFilter("https://api.openalex.org/works?sort=id", "from_created_date:2024-03-08"));
+	}
+
+	@Test
+	void givenCitationsGroupedByYear_whenCreatingShards_thenOneFilterPerYearOnlyIfCountsAddUp() {
+		String json = """
+				{"meta": {"count": 1500, "db_response_time_ms": 30, "page": 1, "per_page": 200, "groups_count": 3},
+				 "results": [],
+				 "group_by": [
+				  {"key": "2023", "key_display_name": "2023", "count": 1000},
+				  {"key": "2022", "key_display_name": "2022", "count": 400},
+				  {"key": "2021", "key_display_name": "2021", "count": 100}
+				 ]}""";
+
+		Assertions.assertEquals(List.of("publication_year:2023", "publication_year:2022", "publication_year:2021"), OpenAlexCitations.parseShardFilters(json, 1000));
+		Assertions.assertTrue(OpenAlexCitations.parseShardFilters(json, 2000).isEmpty());
+		Assertions.assertTrue(OpenAlexCitations.parseShardFilters(json.replace("\"count\": 1500", "\"count\": 1501"), 1000).isEmpty());
+		Assertions.assertTrue(OpenAlexCitations.parseShardFilters(json.replace("\"key\": \"2021\"", "\"key\": \"unknown\""), 1000).isEmpty());
+	}
 }
@@ -0,0 +1,128 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.doi;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiFunction;
+
+public class PostgrestMentionRepositoryTest {
+
+	private static MentionRecord mention(String doi, String externalId, String title) {
+		MentionRecord mention = new MentionRecord();
+		mention.doi = doi;
+		mention.externalId = externalId;
+		mention.source = "OpenAlex";
+		mention.title = title;
+		mention.mentionType = MentionType.other;
+		return mention;
+	}
+
+	// behaves like PostgREST: fails the whole request if one row is invalid, otherwise returns the rows with an ID
+	private static String upsert(String json) {
+		JsonArray rows = JsonParser.parseString(json).getAsJsonArray();
+		JsonArray response = new JsonArray();
+		for (JsonElement row : rows) {
+			JsonObject rowObject = row.getAsJsonObject();
+			if (rowObject.get("title").isJsonNull()) {
+				throw new RuntimeException("null value in column \"title\" violates not-null constraint");
+			}
+			JsonObject saved = new JsonObject();
+			saved.addProperty("id", UUID.randomUUID().toString());
+			// the backend returns the DOI as it is stored, which can differ in case
+			saved.add("doi", rowObject.get("doi").isJsonNull() ? rowObject.get("doi") : new JsonPrimitive(rowObject.get("doi").getAsString().toUpperCase()));
+			saved.add("external_id", rowObject.get("external_id"));
+			saved.add("source", rowObject.get("source"));
+			response.add(saved);
+		}
+		return response.toString();
+	}
+
+	@Test
+	void givenMentionsWithAndWithoutDoi_whenSaving_thenSavedInBulkPerConflictTargetAndIdsAssigned() {
+		List<String> uris = new ArrayList<>();
+		BiFunction<String, String, String> bulkUpsert = (uri, json) -> {
+			uris.add(uri);
+			return upsert(json);
+		};
+		List<MentionRecord> failed = new ArrayList<>();
+		PostgrestMentionRepository repository = new PostgrestMentionRepository("http://backend", bulkUpsert, (mention, e) -> failed.add(mention));
+
+		MentionRecord withDoi = mention("10.1000/abc", "W1", "A title");
+		MentionRecord sameDoi = mention("10.1000/ABC", "W1", "A title");
+		MentionRecord withoutDoi1 = mention(null, "W2", "Another title");
+		MentionRecord withoutDoi2 = mention(null, "W3", "Yet another title");
+		repository.save(List.of(withDoi, sameDoi, withoutDoi1, withoutDoi2));
+
+		Assertions.assertEquals(List.of(
+				"http://backend/mention?on_conflict=doi&select=id,doi,external_id,source",
+				"http://backend/mention?on_conflict=external_id,source&select=id,doi,external_id,source"
+		), uris);
+		Assertions.assertTrue(failed.isEmpty());
+		Assertions.assertNotNull(withDoi.id);
+		Assertions.assertEquals(withDoi.id, sameDoi.id);
+		Assertions.assertNotNull(withoutDoi1.id);
+		Assertions.assertNotNull(withoutDoi2.id);
+		Assertions.assertNotEquals(withoutDoi1.id, withoutDoi2.id);
+	}
+
+	@Test
+	void givenMentionsWithoutDoiAndExternalId_whenSaving_thenSavedSeparatelyWithOwnIds() {
+		List<String> jsons = new ArrayList<>();
+		BiFunction<String, String, String> bulkUpsert = (uri, json) -> {
+			jsons.add(json);
+			return upsert(json);
+		};
+		List<MentionRecord> failed = new ArrayList<>();
+		PostgrestMentionRepository repository = new PostgrestMentionRepository("http://backend", bulkUpsert, (mention, e) -> failed.add(mention));
+
+		MentionRecord first = mention(null, null, "A title");
+		MentionRecord second = mention(null, null, "Another title");
+		repository.save(List.of(first, second));
+
+		Assertions.assertEquals(2, jsons.size());
+		Assertions.assertTrue(failed.isEmpty());
+		Assertions.assertNotNull(first.id);
+		Assertions.assertNotNull(second.id);
+		Assertions.assertNotEquals(first.id, second.id);
+	}
+
+	@Test
+	void givenBatchWithInvalidMentions_whenSaving_thenBatchSplitUntilInvalidMentionsIsolated() {
+		List<String> uris = new ArrayList<>();
+		BiFunction<String, String, String> bulkUpsert = (uri, json) -> {
+			uris.add(uri);
+			return upsert(json);
+		};
+		List<MentionRecord> failed = new ArrayList<>();
+		PostgrestMentionRepository repository = new PostgrestMentionRepository("http://backend", bulkUpsert, (mention, e) -> failed.add(mention));
+
+		List<MentionRecord> mentions = new ArrayList<>();
+		for (int i = 0; i < 16; i++) {
+			mentions.add(mention(null, "W" + i, i == 5 || i == 11 ? null : "Title " + i));
+		}
+		repository.save(mentions);
+
+		Assertions.assertEquals(List.of(mentions.get(5), mentions.get(11)), failed);
+		for (int i = 0; i < 16; i++) {
+			if (i == 5 || i == 11) {
+				Assertions.assertNull(mentions.get(i).id);
+			} else {
+				Assertions.assertNotNull(mentions.get(i).id);
+			}
+		}
+		// 1 request for all, 2 for the halves, 4 for the quarters and so on, only for the parts that failed
+		Assertions.assertEquals(1 + 2 + 4 + 4 + 4, uris.size());
+	}
+}
@@ -8,62 +8,71 @@ package nl.esciencecenter.rsd.scraper.git;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
 import com.google.gson.reflect.TypeToken;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.time.DayOfWeek;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.Period;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
 import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 public class CommitsPerWeekTest {
 
 	@Test
 	void givenInstance_whenValidOperations_thenCorrectResults() {
 		CommitsPerWeek commitsPerWeek = new CommitsPerWeek();
-		Map<Instant, Long> underlyingMap = commitsPerWeek.data;
 
 		Instant sundayMidnight1 = Instant.ofEpochSecond(1670716800);
 		commitsPerWeek.addCommits(sundayMidnight1, 10);
 
-		Assertions.assertEquals(1, underlyingMap.size());
-		Assertions.assertTrue(underlyingMap.containsKey(sundayMidnight1));
-		Assertions.assertEquals(10, underlyingMap.get(sundayMidnight1));
+		Assertions.assertEquals(1, commitsPerWeek.toMap().size());
+		Assertions.assertTrue(commitsPerWeek.toMap().containsKey(sundayMidnight1));
+		Assertions.assertEquals(10, commitsPerWeek.toMap().get(sundayMidnight1));
 
 
 		commitsPerWeek.addCommits(sundayMidnight1, 20);
 
-		Assertions.assertEquals(1, underlyingMap.size());
-		Assertions.assertTrue(underlyingMap.containsKey(sundayMidnight1));
-		Assertions.assertEquals(30, underlyingMap.get(sundayMidnight1));
+		Assertions.assertEquals(1, commitsPerWeek.toMap().size());
+		Assertions.assertTrue(commitsPerWeek.toMap().containsKey(sundayMidnight1));
+		Assertions.assertEquals(30, commitsPerWeek.toMap().get(sundayMidnight1));
 
 
 		Instant smallTimeAfterSundayMidnight1 = sundayMidnight1.plus(Duration.ofDays(3)).plus(Duration.ofSeconds(12345));
 		commitsPerWeek.addCommits(smallTimeAfterSundayMidnight1, 10);
 
-		Assertions.assertEquals(1, underlyingMap.size());
-		Assertions.assertTrue(underlyingMap.containsKey(sundayMidnight1));
-		Assertions.assertEquals(40, underlyingMap.get(sundayMidnight1));
+		Assertions.assertEquals(1, commitsPerWeek.toMap().size());
+		Assertions.assertTrue(commitsPerWeek.toMap().containsKey(sundayMidnight1));
+		Assertions.assertEquals(40, commitsPerWeek.toMap().get(sundayMidnight1));
 
 
 		Instant sundayMidnight2 = sundayMidnight1.plus(Period.ofWeeks(5));
 		commitsPerWeek.addCommits(sundayMidnight2, 5);
 
-		Assertions.assertEquals(2, underlyingMap.size());
-		Assertions.assertTrue(underlyingMap.containsKey(sundayMidnight2));
-		Assertions.assertEquals(5, underlyingMap.get(sundayMidnight2));
-		Assertions.assertEquals(40, underlyingMap.get(sundayMidnight1));
+		Assertions.assertEquals(2, commitsPerWeek.toMap().size());
+		Assertions.assertTrue(commitsPerWeek.toMap().containsKey(sundayMidnight2));
+		Assertions.assertEquals(5, commitsPerWeek.toMap().get(sundayMidnight2));
+		Assertions.assertEquals(40, commitsPerWeek.toMap().get(sundayMidnight1));
 
 
 		commitsPerWeek.addMissingZeros();
-		Assertions.assertEquals(6, underlyingMap.size());
-		Assertions.assertEquals(0, underlyingMap.get(sundayMidnight1.plus(Period.ofWeeks(1))));
-		Assertions.assertEquals(0, underlyingMap.get(sundayMidnight1.plus(Period.ofWeeks(2))));
-		Assertions.assertEquals(0, underlyingMap.get(sundayMidnight1.plus(Period.ofWeeks(3))));
-		Assertions.assertEquals(0, underlyingMap.get(sundayMidnight1.plus(Period.ofWeeks(4))));
-		Assertions.assertEquals(40, underlyingMap.get(sundayMidnight1));
-		Assertions.assertEquals(5, underlyingMap.get(sundayMidnight2));
+		Assertions.assertEquals(6, commitsPerWeek.toMap().size());
+		Assertions.assertEquals(0, commitsPerWeek.toMap().get(sundayMidnight1.plus(Period.ofWeeks(1))));
+		Assertions.assertEquals(0, commitsPerWeek.toMap().get(sundayMidnight1.plus(Period.ofWeeks(2))));
+		Assertions.assertEquals(0, commitsPerWeek.toMap().get(sundayMidnight1.plus(Period.ofWeeks(3))));
+		Assertions.assertEquals(0, commitsPerWeek.toMap().get(sundayMidnight1.plus(Period.ofWeeks(4))));
+		Assertions.assertEquals(40, commitsPerWeek.toMap().get(sundayMidnight1));
+		Assertions.assertEquals(5, commitsPerWeek.toMap().get(sundayMidnight2));
 
 	}
 
@@ -104,4 +113,74 @@ public class CommitsPerWeekTest {
 		Assertions.assertEquals(40, dataFromJson.get(sundayMidnight1));
 		Assertions.assertEquals(5, dataFromJson.get(sundayMidnight2));
 	}
+
+	@Test
+	void givenJson_whenParsing_thenSameJsonProduced() {
+		CommitsPerWeek commitsPerWeek = new CommitsPerWeek();
+		commitsPerWeek.addCommits(Instant.ofEpochSecond(1670716800), 40);
+		commitsPerWeek.addCommits(Instant.ofEpochSecond(1670716800).plus(Period.ofWeeks(3)), 5);
+		commitsPerWeek.addMissingZeros();
+
+		CommitsPerWeek parsed = CommitsPerWeek.fromJson(commitsPerWeek.toJson());
+
+		Assertions.assertEquals(commitsPerWeek.toJson(), parsed.toJson());
+		Assertions.assertTrue(CommitsPerWeek.fromJson("{}").isEmpty());
+	}
+
+	@Test
+	void givenNewerCommits_whenReplacingFromWeek_thenOlderWeeksKeptAndLaterWeeksReplaced() {
+		Instant week1 = Instant.ofEpochSecond(1670716800);
+		Instant week2 = week1.plus(Period.ofWeeks(1));
+		Instant week3 = week1.plus(Period.ofWeeks(2));
+		CommitsPerWeek known = new CommitsPerWeek();
+		known.addCommits(week1, 10);
+		known.addCommits(week2, 3);
+		CommitsPerWeek recent = new CommitsPerWeek();
+		recent.addCommits(week2, 5);
+		recent.addCommits(week3, 1);
+
+		Assertions.assertEquals(week2, known.lastWeek());
+		known.replaceFrom(week2, recent);
+
+		Assertions.assertEquals(10, known.commitsInWeek(week1));
+		Assertions.assertEquals(5, known.commitsInWeek(week2));
+		Assertions.assertEquals(1, known.commitsInWeek(week3));
+		Assertions.assertEquals(week3, known.lastWeek());
+	}
+
+	@Test
+	void givenRandomCommits_whenProducingJson_thenSameJsonAsSortedMapOfWeeks() {
+		Gson gson = new GsonBuilder()
+				.enableComplexMapKeySerialization()
+				.registerTypeAdapter(Instant.class, (JsonSerializer<Instant>) (src, typeOfSrc, context) -> new JsonPrimitive(src.getEpochSecond()))
+				.create();
+		Random random = new Random(42);
+
+		for (int run = 0; run < 100; run++) {
+			CommitsPerWeek commitsPerWeek = new CommitsPerWeek();
+			SortedMap<Instant, Long> expected = new TreeMap<>();
+			// a span of about 80 years around the epoch, so that negative epoch seconds are covered too
+			long start = -1_000_000_000L + random.nextLong(2_000_000_000L);
+			int commitCount = random.nextInt(50);
+			for (int i = 0; i < commitCount; i++) {
+				ZonedDateTime time = ZonedDateTime.ofInstant(Instant.ofEpochSecond(start + random.nextLong(200_000_000L)), ZoneOffset.ofHours(random.nextInt(-12, 13)));
+				long count = random.nextInt(3);
+				commitsPerWeek.addCommits(time, count);
+				Instant sundayMidnight = time.withZoneSameInstant(ZoneOffset.UTC).truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.SUNDAY)).toInstant();
+				expected.merge(sundayMidnight, count, Long::sum);
+			}
+
+			Assertions.assertEquals(gson.toJson(expected), commitsPerWeek.toJson());
+
+			commitsPerWeek.addMissingZeros();
+			if (!expected.isEmpty()) {
+				for (Instant week = expected.firstKey(); week.isBefore(expected.lastKey()); week = week.plus(Period.ofWeeks(1))) {
+					expected.putIfAbsent(week, 0L);
+				}
+			}
+
+			Assertions.assertEquals(gson.toJson(expected), commitsPerWeek.toJson());
+			Assertions.assertEquals(expected, commitsPerWeek.toMap());
+		}
+	}
 }
@@ -0,0 +1,47 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.git;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DelayedRevisitTest {
+
+	@Test
+	void givenTaskWithResultAfterTwoCalls_whenRevisiting_thenResultReturnedAfterTwoRevisits() {
+		AtomicInteger calls = new AtomicInteger();
+
+		String result = DelayedRevisit.untilNonNull(() -> calls.incrementAndGet() < 3 ? null : "computed", 5, Duration.ofMillis(1)).join();
+
+		Assertions.assertEquals("computed", result);
+		Assertions.assertEquals(3, calls.get());
+	}
+
+	@Test
+	void givenTaskWithoutResult_whenRevisiting_thenNullReturnedAfterMaxRevisits() {
+		AtomicInteger calls = new AtomicInteger();
+
+		String result = DelayedRevisit.<String>untilNonNull(() -> {
+			calls.incrementAndGet();
+			return null;
+		}, 3, Duration.ofMillis(1)).join();
+
+		Assertions.assertNull(result);
+		Assertions.assertEquals(4, calls.get());
+	}
+
+	@Test
+	void givenFailingTask_whenRevisiting_thenFutureCompletesWithCause() {
+		CompletionException exception = Assertions.assertThrows(CompletionException.class, () -> DelayedRevisit.untilNonNull(() -> {
+			throw new IllegalStateException("failed");
+		}, 3, Duration.ofMillis(1)).join());
+
+		Assertions.assertInstanceOf(IllegalStateException.class, exception.getCause());
+	}
+}
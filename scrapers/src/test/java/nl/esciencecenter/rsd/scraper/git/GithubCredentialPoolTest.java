@@ -0,0 +1,192 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.git;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLSession;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class GithubCredentialPoolTest {
+
+	private static final long NOW = 1_700_000_000_000L;
+
+	private final AtomicLong clock = new AtomicLong(NOW);
+	private final GithubCredentialPool pool = new GithubCredentialPool(List.of("user1:token1", "user2:token2"), clock::get);
+
+	private static HttpHeaders rateLimitHeaders(long remaining, long resetAtMillis) {
+		return HttpHeaders.of(Map.of(
+				"x-ratelimit-remaining", List.of(String.valueOf(remaining)),
+				"x-ratelimit-reset", List.of(String.valueOf(resetAtMillis / 1000))
+		), (name, value) -> true);
+	}
+
+	private String acquireToken(String affinityKey) {
+		return pool.acquire(affinityKey).orElseThrow().token();
+	}
+
+	@Test
+	void givenSeparatedCredentials_whenParsing_thenAllCredentialsReturned() {
+		Assertions.assertEquals(List.of("user1:token1", "token2", "user3:token3"), GithubCredentialPool.parseCredentials(" user1:token1, token2\nuser3:token3 "));
+		Assertions.assertEquals(List.of("user1:token1"), GithubCredentialPool.parseCredentials("user1:token1"));
+	}
+
+	@Test
+	void givenCredentials_whenGettingToken_thenPartAfterUsernameReturned() {
+		Assertions.assertEquals("ghp_token", GithubCredentialPool.tokenFromCredentials("username:ghp_token"));
+		Assertions.assertEquals("ghp_token", GithubCredentialPool.tokenFromCredentials("ghp_token"));
+	}
+
+	@Test
+	void givenNoCredentials_whenAcquiring_thenEmpty() {
+		GithubCredentialPool emptyPool = new GithubCredentialPool(List.of(), clock::get);
+
+		Assertions.assertTrue(emptyPool.isEmpty());
+		Assertions.assertTrue(emptyPool.acquire().isEmpty());
+	}
+
+	@Test
+	void givenUnknownBudgets_whenAcquiring_thenCredentialsAlternate() {
+		String first = acquireToken(null);
+		String second = acquireToken(null);
+		String third = acquireToken(null);
+
+		Assertions.assertNotEquals(first, second);
+		Assertions.assertEquals(first, third);
+	}
+
+	@Test
+	void givenKnownBudgets_whenAcquiring_thenCredentialWithMostRemainingUsed() {
+		GithubCredentialPool.Credential first = pool.acquire().orElseThrow();
+		GithubCredentialPool.Credential second = pool.acquire().orElseThrow();
+		pool.update(first, rateLimitHeaders(10, NOW + 3_600_000));
+		pool.update(second, rateLimitHeaders(4000, NOW + 3_600_000));
+
+		for (int i = 0; i < 5; i++) {
+			Assertions.assertSame(second, pool.acquire().orElseThrow());
+		}
+	}
+
+	@Test
+	void givenExhaustedCredential_whenAcquiring_thenSkippedUntilReset() {
+		GithubCredentialPool.Credential first = pool.acquire().orElseThrow();
+		GithubCredentialPool.Credential second = pool.acquire().orElseThrow();
+		pool.update(first, rateLimitHeaders(0, NOW + 60_000));
+		pool.update(second, rateLimitHeaders(2, NOW + 3_600_000));
+
+		Assertions.assertSame(second, pool.acquire().orElseThrow());
+		Assertions.assertSame(second, pool.acquire().orElseThrow());
+		// both exhausted now, the first resets earlier
+		Assertions.assertSame(first, pool.acquire().orElseThrow());
+
+		clock.addAndGet(60_000);
+		pool.update(second, rateLimitHeaders(0, NOW + 3_600_000));
+		Assertions.assertSame(first, pool.acquire().orElseThrow());
+	}
+
+	@Test
+	void givenAffinityKey_whenAcquiring_thenSameCredentialUntilExhausted() {
+		String url = "https://api.github.com/repos/research-software-directory/RSD-as-a-service";
+		GithubCredentialPool.Credential preferred = pool.acquire(url).orElseThrow();
+
+		Assertions.assertSame(preferred, pool.acquire(url).orElseThrow());
+		Assertions.assertSame(preferred, pool.acquire(url).orElseThrow());
+
+		pool.update(preferred, rateLimitHeaders(0, NOW + 60_000));
+		Assertions.assertNotSame(preferred, pool.acquire(url).orElseThrow());
+	}
+
+	@Test
+	void givenRateLimitedRequest_whenSending_thenRetriedWithOtherCredentialAndRejectedOneSkipped() throws Exception {
+		GithubCredentialPool.Credential first = pool.acquire().orElseThrow();
+		GithubCredentialPool.Credential second = pool.acquire().orElseThrow();
+		pool.update(first, rateLimitHeaders(100, NOW + 3_600_000));
+		pool.update(second, rateLimitHeaders(50, NOW + 3_600_000));
+		List<String> authorizations = new ArrayList<>();
+
+		// behaves like the HTTP transport: the first attempt is rejected, the retry uses the credentials it is given
+		HttpResponse<String> response = pool.send(null, GithubCredentialPool.Credential::token, (authorization, retryAuthorization) -> {
+			authorizations.add(authorization);
+			String retryWith = retryAuthorization.forRetry(new StubResponse(403, rateLimitHeaders(0, NOW + 600_000))).orElse(authorization);
+			authorizations.add(retryWith);
+			return new StubResponse(200, rateLimitHeaders(49, NOW + 3_600_000));
+		});
+
+		Assertions.assertEquals(200, response.statusCode());
+		Assertions.assertEquals(List.of("token1", "token2"), authorizations);
+		Assertions.assertSame(second, pool.acquire().orElseThrow());
+		Assertions.assertSame(second, pool.acquire().orElseThrow());
+	}
+
+	@Test
+	void givenNoOtherCredentialWithBudget_whenAcquiringOther_thenEmpty() {
+		GithubCredentialPool.Credential first = pool.acquire().orElseThrow();
+		GithubCredentialPool.Credential second = pool.acquire().orElseThrow();
+		pool.update(second, rateLimitHeaders(0, NOW + 3_600_000));
+
+		HttpHeaders retryAfter = HttpHeaders.of(Map.of("retry-after", List.of("30")), (name, value) -> true);
+		Assertions.assertTrue(pool.acquireOther(first, retryAfter, null).isEmpty());
+
+		// the rejected credential is skipped until its Retry-After has passed
+		clock.addAndGet(30_000);
+		Assertions.assertSame(first, pool.acquire().orElseThrow());
+	}
+
+	@Test
+	void givenReplayedNotModifiedResponse_whenSending_thenBudgetOfNotModifiedResponseKept() throws Exception {
+		String url = "https://api.github.com/repos/research-software-directory/RSD-as-a-service";
+		GithubCredentialPool.Credential preferred = pool.acquire(url).orElseThrow();
+		pool.update(preferred, rateLimitHeaders(4000, NOW + 3_600_000));
+
+		// the stored response of a 304 Not Modified, with the rate limit headers of the 304 as the cache returns it,
+		// instead of the ones from when the response was stored
+		pool.send(url, GithubCredentialPool.Credential::basicAuthorization, (authorization, retryAuthorization) -> new StubResponse(200, rateLimitHeaders(0, NOW + 600_000)));
+
+		Assertions.assertNotSame(preferred, pool.acquire(url).orElseThrow());
+	}
+
+	private record StubResponse(int statusCode, HttpHeaders headers) implements HttpResponse<String> {
+
+		@Override
+		public HttpRequest request() {
+			return HttpRequest.newBuilder(uri()).build();
+		}
+
+		@Override
+		public Optional<HttpResponse<String>> previousResponse() {
+			return Optional.empty();
+		}
+
+		@Override
+		public String body() {
+			return "{}";
+		}
+
+		@Override
+		public Optional<SSLSession> sslSession() {
+			return Optional.empty();
+		}
+
+		@Override
+		public URI uri() {
+			return URI.create("https://api.github.com/graphql");
+		}
+
+		@Override
+		public HttpClient.Version version() {
+			return HttpClient.Version.HTTP_1_1;
+		}
+	}
+}
\ No newline at end of file
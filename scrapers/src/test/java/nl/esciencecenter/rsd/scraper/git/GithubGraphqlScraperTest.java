@@ -0,0 +1,124 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.git;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import nl.esciencecenter.rsd.scraper.RsdRateLimitException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+
+public class GithubGraphqlScraperTest {
+
+	private static final URI GRAPHQL_URI = URI.create("https://api.github.com/graphql");
+	private static final UUID SOFTWARE_1 = UUID.fromString("3a07a021-743e-4adf-a2d9-3c85075fe9cf");
+	private static final UUID SOFTWARE_2 = UUID.fromString("5b2f7bc4-95a4-4b1c-a3a2-6c4d2e2a8f11");
+
+	private final List<GithubGraphqlScraper.Repository> repositories = List.of(
+			new GithubGraphqlScraper.Repository(SOFTWARE_1, "research-software-directory", "RSD-as-a-service"),
+			new GithubGraphqlScraper.Repository(SOFTWARE_2, "research-software-directory", "does-not-exist")
+	);
+
+	@Test
+	void givenGithubUrls_whenGettingRepository_thenOwnerAndNameReturnedForValidUrlsOnly() {
+		GithubGraphqlScraper.Repository repository = GithubGraphqlScraper.repository(SOFTWARE_1, "https://github.com/research-software-directory/RSD-as-a-service/");
+
+		Assertions.assertEquals("research-software-directory", repository.owner());
+		Assertions.assertEquals("RSD-as-a-service", repository.name());
+		Assertions.assertNull(GithubGraphqlScraper.repository(SOFTWARE_1, "https://github.com/research-software-directory/RSD-as-a-service/issues"));
+	}
+
+	@Test
+	void givenRepositories_whenCreatingQuery_thenOneAliasAndVariablesPerRepository() {
+		JsonObject body = JsonParser.parseString(GithubGraphqlScraper.queryJson(repositories)).getAsJsonObject();
+
+		String query = body.getAsJsonPrimitive("query").getAsString();
+		Assertions.assertTrue(query.contains("r0: repository(owner: $owner0, name: $name0)"));
+		Assertions.assertTrue(query.contains("r1: repository(owner: $owner1, name: $name1)"));
+		Assertions.assertTrue(query.contains("fragment repositoryData on Repository"));
+		JsonObject variables = body.getAsJsonObject("variables");
+		Assertions.assertEquals("RSD-as-a-service", variables.getAsJsonPrimitive("name0").getAsString());
+		Assertions.assertEquals("does-not-exist", variables.getAsJsonPrimitive("name1").getAsString());
+	}
+
+	@Test
+	void givenResponseWithNotFoundRepository_whenParsing_thenDataAndErrorPerRepositoryReturned() {
+		String json = """
+				{
+					"data": {
+						"r0": {
+							"stargazerCount": 42,
+							"forkCount": 7,
+							"issues": {"totalCount": 10},
+							"pullRequests": {"totalCount": 3},
+							"licenseInfo": {"spdxId": "Apache-2.0"},
+							"languages": {"edges": [
+								{"size": 2000, "node": {"name": "TypeScript"}},
+								{"size": 1000, "node": {"name": "Java"}}
+							]}
+						},
+						"r1": null
+					},
+					"errors": [
+						{
+							"type": "NOT_FOUND",
+							"path": ["r1"],
+							"message": "Could not resolve to a Repository with the name 'research-software-directory/does-not-exist'."
+						}
+					]
+				}""";
+
+		GithubGraphqlScraper.BatchResult result = GithubGraphqlScraper.parseBatch(json, repositories, GRAPHQL_URI);
+
+		Assertions.assertEquals(1, result.data().size());
+		GithubGraphqlScraper.RepositoryData data = result.data().get(SOFTWARE_1);
+		Assertions.assertEquals("Apache-2.0", data.basicData().license);
+		Assertions.assertEquals(42L, data.basicData().starCount);
+		Assertions.assertEquals(7, data.basicData().forkCount);
+		Assertions.assertEquals(13, data.basicData().openIssueCount);
+		Assertions.assertEquals("{\"TypeScript\":2000,\"Java\":1000}", data.languages());
+
+		Assertions.assertEquals(1, result.errors().size());
+		Assertions.assertEquals(404, result.errors().get(SOFTWARE_2).statusCode);
+	}
+
+	@Test
+	void givenRepositoryWithoutLicense_whenParsing_thenLicenseNull() {
+		String json = """
+				{
+					"stargazerCount": 0,
+					"forkCount": 0,
+					"issues": {"totalCount": 0},
+					"pullRequests": {"totalCount": 0},
+					"licenseInfo": null,
+					"languages": {"edges": []}
+				}""";
+
+		GithubGraphqlScraper.RepositoryData data = GithubGraphqlScraper.parseRepositoryData(JsonParser.parseString(json).getAsJsonObject());
+
+		Assertions.assertNull(data.basicData().license);
+		Assertions.assertEquals("{}", data.languages());
+	}
+
+	@Test
+	void givenRateLimitedResponse_whenParsing_thenRateLimitExceptionThrown() {
+		String json = """
+				{
+					"data": null,
+					"errors": [
+						{
+							"type": "RATE_LIMITED",
+							"message": "API rate limit exceeded for user ID 1."
+						}
+					]
+				}""";
+
+		Assertions.assertThrows(RsdRateLimitException.class, () -> GithubGraphqlScraper.parseBatch(json, repositories, GRAPHQL_URI));
+	}
+}
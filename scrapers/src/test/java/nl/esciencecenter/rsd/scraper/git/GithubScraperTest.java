@@ -10,6 +10,8 @@ package nl.esciencecenter.rsd.scraper.git;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.StringReader;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -60,4 +62,27 @@ public class GithubScraperTest {
 		Optional<GithubScraper> scraper3 = GithubScraper.create(githubUrlPrefix + "org-only/");
 		Assertions.assertTrue(scraper3.isEmpty());
 	}
+
+	@Test
+	void givenContributorStatistics_whenParsing_thenCommitsOfAllContributorsSummedPerWeek() throws Exception {
+		String json = """
+				[
+					{
+						"total": 3,
+						"weeks": [{"w": 1670716800, "a": 100, "d": 5, "c": 2}, {"w": 1671321600, "a": 0, "d": 0, "c": 0}],
+						"author": {"login": "first", "id": 1, "site_admin": false}
+					},
+					{
+						"author": {"login": "second", "id": 2},
+						"total": 4,
+						"weeks": [{"a": 12, "c": 3, "d": 1, "w": 1670716800}, {"w": 1671321600, "c": 1}]
+					}
+				]""";
+
+		CommitsPerWeek commits = GithubScraper.parseCommits(new StringReader(json));
+
+		Assertions.assertEquals(5, commits.commitsInWeek(Instant.ofEpochSecond(1670716800)));
+		Assertions.assertEquals(1, commits.commitsInWeek(Instant.ofEpochSecond(1671321600)));
+		Assertions.assertEquals(GithubScraper.parseCommits(json).toJson(), commits.toJson());
+	}
 }
@@ -0,0 +1,96 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.git;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+public class GitlabScraperTest {
+
+	// one commit per page, each in a different week
+	private static final String[] PAGES = {
+			"[{\"committed_date\": \"2022-12-11T10:00:00.000+00:00\"}]",
+			"[{\"committed_date\": \"2022-12-18T10:00:00.000+00:00\"}]",
+			"[{\"committed_date\": \"2022-12-25T10:00:00.000+00:00\"}]"
+	};
+
+	private static HttpServer startServer(boolean withTotalPages) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/api/v4/projects/", exchange -> respondWithPage(exchange, withTotalPages));
+		server.start();
+		return server;
+	}
+
+	private static void respondWithPage(HttpExchange exchange, boolean withTotalPages) throws IOException {
+		String query = exchange.getRequestURI().getQuery();
+		int page = Integer.parseInt(query.replaceAll(".*page=(\\d+).*", "$1"));
+		byte[] body = PAGES[page - 1].getBytes(StandardCharsets.UTF_8);
+
+		exchange.getResponseHeaders().add("x-next-page", page < PAGES.length ? String.valueOf(page + 1) : "");
+		if (withTotalPages) {
+			exchange.getResponseHeaders().add("x-total-pages", String.valueOf(PAGES.length));
+		}
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream outputStream = exchange.getResponseBody()) {
+			outputStream.write(body);
+		}
+		exchange.close();
+	}
+
+	private static void assertAllPagesCounted(CommitsPerWeek commits) {
+		Assertions.assertEquals(1, commits.commitsInWeek(Instant.ofEpochSecond(1670716800)));
+		Assertions.assertEquals(1, commits.commitsInWeek(Instant.ofEpochSecond(1671321600)));
+		Assertions.assertEquals(1, commits.commitsInWeek(Instant.ofEpochSecond(1671926400)));
+	}
+
+	@Test
+	void givenTotalPagesHeader_whenScrapingContributions_thenAllPagesCounted() throws Exception {
+		HttpServer server = startServer(true);
+		try {
+			GitlabScraper scraper = new GitlabScraper("http://localhost:" + server.getAddress().getPort() + "/api", "group/project");
+
+			assertAllPagesCounted(scraper.contributions());
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	@Test
+	void givenNoTotalPagesHeader_whenScrapingContributions_thenNextPagesFollowedAndAllPagesCounted() throws Exception {
+		HttpServer server = startServer(false);
+		try {
+			GitlabScraper scraper = new GitlabScraper("http://localhost:" + server.getAddress().getPort() + "/api", "group/project");
+
+			assertAllPagesCounted(scraper.contributions());
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	@Test
+	void givenCommitPage_whenParsing_thenOnlyCommittedDateUsed() throws Exception {
+		String json = """
+				[
+					{"id": "a1", "title": "First", "committed_date": "2022-12-11T10:00:00.000+00:00", "parent_ids": ["b2"], "stats": {"additions": 1}},
+					{"committed_date": "2022-12-13T23:30:00.000-02:00", "id": "b2", "trailers": {}},
+					{"id": "c3", "committed_date": "2022-12-18T00:00:00.000+00:00"}
+				]""";
+		CommitsPerWeek commits = new CommitsPerWeek();
+
+		GitlabScraper.parseCommitPage(new StringReader(json), commits);
+
+		Assertions.assertEquals(2, commits.commitsInWeek(Instant.ofEpochSecond(1670716800)));
+		Assertions.assertEquals(1, commits.commitsInWeek(Instant.ofEpochSecond(1671321600)));
+	}
+}
@@ -8,7 +8,10 @@ package nl.esciencecenter.rsd.scraper.git;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public class PostgrestConnectorTest {
@@ -110,4 +113,68 @@ public class PostgrestConnectorTest {
 
 		Assertions.assertThrows(RuntimeException.class, () -> PostgrestConnector.parseBasicJsonData(nullUrlJson));
 	}
+
+	@Test
+	void givenEmptyJsonArray_whenParsingFailedRows_thenEmptyMapReturned() {
+		Map<UUID, String> result = PostgrestConnector.parseFailedRows("[]");
+
+		Assertions.assertTrue(result.isEmpty());
+	}
+
+	@Test
+	void givenFailedRows_whenParsingFailedRows_thenErrorMessagePerSoftwareReturned() {
+		String failedRowsJson = """
+				[
+					{
+						"software_id": "3a07a021-743e-4adf-a2d9-3c85075fe9cf",
+						"error_message": "value too long for type character varying(100)"
+					},
+					{
+						"software_id": "5b2f7bc4-95a4-4b1c-a3a2-6c4d2e2a8f11",
+						"error_message": null
+					}
+				]""";
+
+		Map<UUID, String> result = PostgrestConnector.parseFailedRows(failedRowsJson);
+
+		Assertions.assertEquals(2, result.size());
+		Assertions.assertEquals("value too long for type character varying(100)", result.get(UUID.fromString("3a07a021-743e-4adf-a2d9-3c85075fe9cf")));
+		Assertions.assertTrue(result.containsKey(UUID.fromString("5b2f7bc4-95a4-4b1c-a3a2-6c4d2e2a8f11")));
+		Assertions.assertNull(result.get(UUID.fromString("5b2f7bc4-95a4-4b1c-a3a2-6c4d2e2a8f11")));
+	}
+
+	@Test
+	void givenErrorMessagesOfFailedRows_whenCreatingLastErrorMessage_thenMessageKeptAndTruncated() {
+		Assertions.assertEquals("value too long for type character varying(100)", PostgrestConnector.lastErrorMessage("value too long for type character varying(100)"));
+		Assertions.assertEquals("Unknown error", PostgrestConnector.lastErrorMessage(null));
+		Assertions.assertEquals(PostgrestConnector.MAX_ERROR_MESSAGE_LENGTH, PostgrestConnector.lastErrorMessage("x".repeat(1000)).length());
+	}
+
+	@Test
+	void givenCommitJsonWithAndWithoutHistory_whenParsing_thenHistoryParsedWhenPresent() {
+		String commitJson = """
+				[
+					{
+						"software": "3a07a021-743e-4adf-a2d9-3c85075fe9cf",
+						"url": "https://gitlab.com/gitlab-org/gitlab-shell",
+						"commit_history": {"1670716800": 40, "1671321600": 5},
+						"commit_history_scraped_at": "2024-01-08T10:15:30.123+00:00"
+					},
+					{
+						"software": "5b2f7bc4-95a4-4b1c-a3a2-6c4d2e2a8f11",
+						"url": "https://gitlab.com/gitlab-org/gitlab",
+						"commit_history": null,
+						"commit_history_scraped_at": null
+					}
+				]""";
+
+		List<CommitData> result = List.copyOf(PostgrestConnector.parseCommitJsonData(commitJson));
+
+		Assertions.assertEquals(2, result.size());
+		Assertions.assertEquals("https://gitlab.com/gitlab-org/gitlab-shell", result.get(0).basicData().url());
+		Assertions.assertEquals(5, result.get(0).commitHistory().commitsInWeek(Instant.ofEpochSecond(1671321600)));
+		Assertions.assertNotNull(result.get(0).commitHistoryScrapedAt());
+		Assertions.assertNull(result.get(1).commitHistory());
+		Assertions.assertNull(result.get(1).commitHistoryScrapedAt());
+	}
 }
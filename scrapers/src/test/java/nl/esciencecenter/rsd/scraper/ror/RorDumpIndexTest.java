@@ -0,0 +1,111 @@
+// SPDX-FileCopyrightText: 2024 Netherlands eScience Center
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package nl.esciencecenter.rsd.scraper.ror;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RorDumpIndexTest {
+
+	private static final String DUMP_V1 = """
+			[
+				{
+					"id": "https://ror.org/04tsk2644",
+					"name": "Netherlands eScience Center",
+					"types": ["Facility"],
+					"links": ["https://www.esciencecenter.nl"],
+					"addresses": [{"city": "Amsterdam", "lat": 52.35, "lng": 4.95}],
+					"country": {"country_code": "NL", "country_name": "Netherlands"}
+				},
+				{
+					"id": "https://ror.org/04z8jg394",
+					"name": "Helmholtz Centre Potsdam - GFZ German Research Centre for Geosciences",
+					"addresses": [],
+					"country": null
+				}
+			]""";
+
+	private static final String DUMP_V2 = """
+			[
+				{
+					"id": "https://ror.org/04tsk2644",
+					"names": [
+						{"lang": null, "types": ["acronym"], "value": "NLeSC"},
+						{"lang": "en", "types": ["ror_display", "label"], "value": "Netherlands eScience Center"}
+					],
+					"locations": [
+						{"geonames_id": 2759794, "geonames_details": {"country_code": "NL", "country_name": "Netherlands", "name": "Amsterdam"}}
+					],
+					"status": "active"
+				}
+			]""";
+
+	@Test
+	void givenDumpWithV1Schema_whenParsing_thenLocationsAndNamesIndexed() throws IOException {
+		RorDumpIndex index = RorDumpIndex.parse(new StringReader(DUMP_V1));
+
+		assertEquals(2, index.size());
+		assertEquals(Optional.of(new RorDumpIndex.RorOrganisation("Netherlands", "Amsterdam", "Netherlands eScience Center")), index.organisation("https://ror.org/04tsk2644"));
+		assertEquals(Optional.of(new RorDumpIndex.RorOrganisation(null, null, "Helmholtz Centre Potsdam - GFZ German Research Centre for Geosciences")), index.organisation("04Z8JG394"));
+		assertTrue(index.organisation("https://ror.org/000000000").isEmpty());
+	}
+
+	@Test
+	void givenDumpWithV2Schema_whenParsing_thenLocationsAndDisplayNameIndexed() throws IOException {
+		RorDumpIndex index = RorDumpIndex.parse(new StringReader(DUMP_V2));
+
+		assertEquals(Optional.of(new RorDumpIndex.RorOrganisation("Netherlands", "Amsterdam", "Netherlands eScience Center")), index.organisation("https://ror.org/04tsk2644"));
+	}
+
+	@Test
+	void givenIndex_whenWritingAndReading_thenSameOrganisations() throws IOException {
+		RorDumpIndex index = RorDumpIndex.parse(new StringReader(DUMP_V1));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		index.write(new DataOutputStream(bytes));
+
+		RorDumpIndex result = RorDumpIndex.readIndex(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		assertEquals(index.size(), result.size());
+		assertEquals(index.organisation("04tsk2644"), result.organisation("04tsk2644"));
+		assertEquals(index.organisation("04z8jg394"), result.organisation("04z8jg394"));
+	}
+
+	@Test
+	void givenZippedDump_whenLoading_thenV2FileUsedAndIndexSavedNextToDump() throws IOException {
+		Path directory = Files.createTempDirectory("ror-dump");
+		Path dumpFile = directory.resolve("v1.50-2024-07-29-ror-data.zip");
+		try (OutputStream output = Files.newOutputStream(dumpFile); ZipOutputStream zip = new ZipOutputStream(output)) {
+			zip.putNextEntry(new ZipEntry("v1.50-2024-07-29-ror-data.json"));
+			zip.write("[]".getBytes(StandardCharsets.UTF_8));
+			zip.closeEntry();
+			zip.putNextEntry(new ZipEntry("v1.50-2024-07-29-ror-data_schema_v2.json"));
+			zip.write(DUMP_V2.getBytes(StandardCharsets.UTF_8));
+			zip.closeEntry();
+		}
+
+		RorDumpIndex index = RorDumpIndex.load(dumpFile);
+
+		assertEquals(1, index.size());
+		Path indexFile = directory.resolve("v1.50-2024-07-29-ror-data.zip.index");
+		assertTrue(Files.isRegularFile(indexFile));
+		assertEquals(index.organisation("04tsk2644"), RorDumpIndex.load(dumpFile).organisation("04tsk2644"));
+	}
+}
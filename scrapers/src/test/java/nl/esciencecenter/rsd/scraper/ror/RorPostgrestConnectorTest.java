@@ -8,6 +8,7 @@ package nl.esciencecenter.rsd.scraper.ror;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
 
 import org.junit.jupiter.api.Test;
@@ -26,4 +27,13 @@ class RorPostgrestConnectorTest {
 		assertEquals(null, organisation.city());
 		assertEquals(null, organisation.country());
 	}
+
+	@Test
+	void givenFailedRows_whenParsing_thenErrorMessagePerOrganisation() {
+		String data = "[{\"organisation_id\":\"52b13a36-334b-429a-9cbb-5215264b36d2\",\"error_message\":\"value too long for type character varying(100)\"}]";
+
+		Map<UUID, String> result = RorPostgrestConnector.parseFailedRows(data);
+
+		assertEquals(Map.of(UUID.fromString("52b13a36-334b-429a-9cbb-5215264b36d2"), "value too long for type character varying(100)"), result);
+	}
 }